@@ -0,0 +1,55 @@
+package benchmarks;
+
+import java.util.Random;
+
+import model.Image;
+import model.ImagePPM;
+import model.Pixel;
+
+/**
+ * Creates the images the benchmarks work on. The images are filled with random colors from a
+ * fixed seed, so every run measures the same pixels.
+ */
+final class BenchmarkImages {
+
+  private BenchmarkImages() {
+  }
+
+  /**
+   * Creates an image of random colors.
+   *
+   * @param width  the width of the image.
+   * @param height the height of the image.
+   * @return the image.
+   */
+  static Image random(int width, int height) {
+    Random random = new Random(42);
+    Pixel[][] pixels = new Pixel[height][width];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        pixels[i][j] = new Pixel(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+      }
+    }
+    return new ImagePPM(width, height, 255, pixels);
+  }
+
+  /**
+   * Creates a clipping mask that selects every other block of 8 by 8 pixels, so that the partial
+   * operations change half of the image.
+   *
+   * @param width  the width of the mask.
+   * @param height the height of the mask.
+   * @return the mask.
+   */
+  static Image mask(int width, int height) {
+    Pixel black = new Pixel(0);
+    Pixel white = new Pixel(255);
+    Pixel[][] pixels = new Pixel[height][width];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        pixels[i][j] = ((i / 8 + j / 8) % 2 == 0) ? black : white;
+      }
+    }
+    return new ImagePPM(width, height, 255, pixels);
+  }
+}
@@ -0,0 +1,34 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the garbage collection profiler, so that the bytes allocated by every
+ * operation are reported next to its time. The usual JMH options can be given on the command
+ * line, for example "ImageBenchmark.blur -p size=1024" to run one benchmark on one size.
+ */
+public class BenchmarkMain {
+
+  /**
+   * Runs the benchmarks.
+   *
+   * @param args the JMH options.
+   * @throws CommandLineOptionException if the options cannot be understood.
+   * @throws RunnerException            if the benchmarks cannot be run.
+   */
+  public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    OptionsBuilder builder = new OptionsBuilder();
+    if (commandLine.getIncludes().isEmpty()) {
+      builder.include("benchmarks\\..*Benchmark\\..*");
+    }
+    Options options = builder.parent(commandLine).addProfiler(GCProfiler.class).build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,116 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.Image;
+import model.ImageOther;
+import model.ImagePPM;
+import model.ImageReader;
+import model.ImageReaderGen;
+import model.ImageWriter;
+import model.ImageWriterGen;
+
+/**
+ * Measures reading and writing images in every supported format, exactly as the load and save
+ * commands do, on square images from 16 by 16 pixels up to 7072 by 7072 pixels (50 megapixels).
+ * The files are written to and read from the temporary directory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms12g", "-Xmx12g"})
+public class CodecBenchmark {
+
+  /**
+   * The width and height of the image in pixels.
+   */
+  @Param({"16", "256", "1024", "4096", "7072"})
+  public int size;
+
+  /**
+   * The format of the file.
+   */
+  @Param({"ppm", "png", "jpg", "bmp"})
+  public String format;
+
+  private Image image;
+  private File input;
+  private File output;
+
+  /**
+   * Creates the image and writes the file that is read.
+   *
+   * @throws IOException if the files cannot be created.
+   */
+  @Setup(Level.Trial)
+  public void create() throws IOException {
+    this.image = BenchmarkImages.random(this.size, this.size);
+    this.input = File.createTempFile("benchmark-in", "." + this.format);
+    this.output = File.createTempFile("benchmark-out", "." + this.format);
+    write(this.input.getPath());
+  }
+
+  /**
+   * Deletes the files.
+   */
+  @TearDown(Level.Trial)
+  public void delete() {
+    this.input.delete();
+    this.output.delete();
+  }
+
+  /**
+   * Measures reading and decoding a file and building its pixels.
+   *
+   * @return the image read.
+   */
+  @Benchmark
+  public Image read() {
+    ImageReader reader = new ImageReaderGen();
+    if (this.format.equals("ppm")) {
+      reader.readPPM(this.input.getPath());
+      return new ImagePPM(reader);
+    }
+    reader.readOther(this.input.getPath());
+    return new ImageOther(reader);
+  }
+
+  /**
+   * Measures encoding the image and writing it to a file.
+   *
+   * @return the file written.
+   * @throws IOException if the file cannot be written.
+   */
+  @Benchmark
+  public File write() throws IOException {
+    write(this.output.getPath());
+    return this.output;
+  }
+
+  private void write(String path) throws IOException {
+    ImageWriter writer = new ImageWriterGen(this.image);
+    if (this.format.equals("ppm")) {
+      writer.writeImagePPM(path);
+    } else {
+      writer.writeImageOther(path, this.format);
+    }
+  }
+}
@@ -0,0 +1,456 @@
+package benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.Image;
+import model.Pixel;
+
+/**
+ * Measures every operation of an image, on square images from 16 by 16 pixels up to 7072 by 7072
+ * pixels (50 megapixels). Operations that change the image work on a fresh copy of it in every
+ * invocation; the copy is made outside of the measurement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms12g", "-Xmx12g"})
+public class ImageBenchmark {
+
+  /**
+   * The image every benchmark starts from, and a clipping mask of the same size.
+   */
+  @State(Scope.Thread)
+  public static class Source {
+    /**
+     * The width and height of the image in pixels.
+     */
+    @Param({"16", "256", "1024", "4096", "7072"})
+    public int size;
+
+    Image image;
+    Image mask;
+
+    /**
+     * Creates the image and the mask.
+     */
+    @Setup(Level.Trial)
+    public void create() {
+      this.image = BenchmarkImages.random(this.size, this.size);
+      this.mask = BenchmarkImages.mask(this.size, this.size);
+    }
+  }
+
+  /**
+   * A copy of the source image, made again before every invocation so that the operations that
+   * change an image always start from the same pixels.
+   */
+  @State(Scope.Thread)
+  public static class Copy {
+    Image image;
+
+    /**
+     * Copies the source image.
+     *
+     * @param source the image to be copied.
+     */
+    @Setup(Level.Invocation)
+    public void copy(Source source) {
+      this.image = source.image.createCopy();
+    }
+  }
+
+  /**
+   * Measures copying an image. A copy shares the pixels of the image until it is first changed,
+   * so the copy is also brightened by nothing, which is when its pixels are copied.
+   *
+   * @param source the image.
+   * @return the copy.
+   */
+  @Benchmark
+  public Image createCopy(Source source) {
+    Image copy = source.image.createCopy();
+    copy.changeBrightness(0);
+    return copy;
+  }
+
+  /**
+   * Measures the red component.
+   *
+   * @param copy the image.
+   * @return the changed image.
+   */
+  @Benchmark
+  public Image createGrayScaleRed(Copy copy) {
+    copy.image.createGrayScaleRed();
+    return copy.image;
+  }
+
+  /**
+   * Measures the green component.
+   *
+   * @param copy the image.
+   * @return the changed image.
+   */
+  @Benchmark
+  public Image createGrayScaleGreen(Copy copy) {
+    copy.image.createGrayScaleGreen();
+    return copy.image;
+  }
+
+  /**
+   * Measures the blue component.
+   *
+   * @param copy the image.
+   * @return the changed image.
+   */
+  @Benchmark
+  public Image createGrayScaleBlue(Copy copy) {
+    copy.image.createGrayScaleBlue();
+    return copy.image;
+  }
+
+  /**
+   * Measures the value component.
+   *
+   * @param copy the image.
+   * @return the changed image.
+   */
+  @Benchmark
+  public Image visualiseImageValue(Copy copy) {
+    copy.image.visualiseImageValue();
+    return copy.image;
+  }
+
+  /**
+   * Measures the intensity component.
+   *
+   * @param copy the image.
+   * @return the changed image.
+   */
+  @Benchmark
+  public Image visualiseImageIntensity(Copy copy) {
+    copy.image.visualiseImageIntensity();
+    return copy.image;
+  }
+
+  /**
+   * Measures the luma component.
+   *
+   * @param copy the image.
+   * @return the changed image.
+   */
+  @Benchmark
+  public Image visualiseImageLuma(Copy copy) {
+    copy.image.visualiseImageLuma();
+    return copy.image;
+  }
+
+  /**
+   * Measures the vertical flip. A flip only marks the image as flipped, so the pixels of the
+   * flipped image are also read, which is when they are reordered.
+   *
+   * @param copy the image.
+   * @return the pixels of the changed image.
+   */
+  @Benchmark
+  public Pixel[][] verticalFlip(Copy copy) {
+    copy.image.verticalFlip();
+    return copy.image.returnPixels();
+  }
+
+  /**
+   * Measures the horizontal flip. A flip only marks the image as flipped, so the pixels of the
+   * flipped image are also read, which is when they are reordered.
+   *
+   * @param copy the image.
+   * @return the pixels of the changed image.
+   */
+  @Benchmark
+  public Pixel[][] horizontalFlip(Copy copy) {
+    copy.image.horizontalFlip();
+    return copy.image.returnPixels();
+  }
+
+  /**
+   * Measures brightening.
+   *
+   * @param copy the image.
+   * @return the changed image.
+   */
+  @Benchmark
+  public Image changeBrightness(Copy copy) {
+    copy.image.changeBrightness(50);
+    return copy.image;
+  }
+
+  /**
+   * Measures sepia.
+   *
+   * @param copy the image.
+   * @return the changed image.
+   */
+  @Benchmark
+  public Image createSepia(Copy copy) {
+    copy.image.createSepia();
+    return copy.image;
+  }
+
+  /**
+   * Measures grayscale.
+   *
+   * @param copy the image.
+   * @return the changed image.
+   */
+  @Benchmark
+  public Image createGrayScale(Copy copy) {
+    copy.image.createGrayScale();
+    return copy.image;
+  }
+
+  /**
+   * Measures blurring.
+   *
+   * @param copy the image.
+   * @return the changed image.
+   */
+  @Benchmark
+  public Image blurImage(Copy copy) {
+    copy.image.blurImage();
+    return copy.image;
+  }
+
+  /**
+   * Measures sharpening.
+   *
+   * @param copy the image.
+   * @return the changed image.
+   */
+  @Benchmark
+  public Image sharpenImage(Copy copy) {
+    copy.image.sharpenImage();
+    return copy.image;
+  }
+
+  /**
+   * Measures downsizing the image to half its width and height.
+   *
+   * @param copy the image.
+   * @return the changed image.
+   */
+  @Benchmark
+  public Image downSize(Copy copy) {
+    copy.image.downSize(copy.image.getWidth() / 2, copy.image.getHeight() / 2);
+    return copy.image;
+  }
+
+  /**
+   * Measures partial sepia.
+   *
+   * @param copy   the image.
+   * @param source the clipping mask.
+   * @return the changed image.
+   */
+  @Benchmark
+  public Image clipSepia(Copy copy, Source source) {
+    copy.image.clipSepia(source.mask);
+    return copy.image;
+  }
+
+  /**
+   * Measures partial grayscale.
+   *
+   * @param copy   the image.
+   * @param source the clipping mask.
+   * @return the changed image.
+   */
+  @Benchmark
+  public Image clipGrayScale(Copy copy, Source source) {
+    copy.image.clipGrayScale(source.mask);
+    return copy.image;
+  }
+
+  /**
+   * Measures partial blur.
+   *
+   * @param copy   the image.
+   * @param source the clipping mask.
+   * @return the changed image.
+   */
+  @Benchmark
+  public Image clipBlur(Copy copy, Source source) {
+    copy.image.clipBlur(source.mask);
+    return copy.image;
+  }
+
+  /**
+   * Measures partial sharpening.
+   *
+   * @param copy   the image.
+   * @param source the clipping mask.
+   * @return the changed image.
+   */
+  @Benchmark
+  public Image clipSharpen(Copy copy, Source source) {
+    copy.image.clipSharpen(source.mask);
+    return copy.image;
+  }
+
+  /**
+   * Measures the partial luma component.
+   *
+   * @param copy   the image.
+   * @param source the clipping mask.
+   * @return the changed image.
+   */
+  @Benchmark
+  public Image clipLuma(Copy copy, Source source) {
+    copy.image.clipLuma(source.mask);
+    return copy.image;
+  }
+
+  /**
+   * Measures the partial intensity component.
+   *
+   * @param copy   the image.
+   * @param source the clipping mask.
+   * @return the changed image.
+   */
+  @Benchmark
+  public Image clipIntensity(Copy copy, Source source) {
+    copy.image.clipIntensity(source.mask);
+    return copy.image;
+  }
+
+  /**
+   * Measures the partial value component.
+   *
+   * @param copy   the image.
+   * @param source the clipping mask.
+   * @return the changed image.
+   */
+  @Benchmark
+  public Image clipValue(Copy copy, Source source) {
+    copy.image.clipValue(source.mask);
+    return copy.image;
+  }
+
+  /**
+   * Measures the partial red component.
+   *
+   * @param copy   the image.
+   * @param source the clipping mask.
+   * @return the changed image.
+   */
+  @Benchmark
+  public Image clipRedComponent(Copy copy, Source source) {
+    copy.image.clipRedComponent(source.mask);
+    return copy.image;
+  }
+
+  /**
+   * Measures the partial green component.
+   *
+   * @param copy   the image.
+   * @param source the clipping mask.
+   * @return the changed image.
+   */
+  @Benchmark
+  public Image clipGreenComponent(Copy copy, Source source) {
+    copy.image.clipGreenComponent(source.mask);
+    return copy.image;
+  }
+
+  /**
+   * Measures the partial blue component.
+   *
+   * @param copy   the image.
+   * @param source the clipping mask.
+   * @return the changed image.
+   */
+  @Benchmark
+  public Image clipBlueComponent(Copy copy, Source source) {
+    copy.image.clipBlueComponent(source.mask);
+    return copy.image;
+  }
+
+  /**
+   * Measures the red histogram.
+   *
+   * @param source the image.
+   * @return the histogram.
+   */
+  @Benchmark
+  public Map<Integer, Integer> getRedHistogram(Source source) {
+    return source.image.getRedHistogram();
+  }
+
+  /**
+   * Measures the green histogram.
+   *
+   * @param source the image.
+   * @return the histogram.
+   */
+  @Benchmark
+  public Map<Integer, Integer> getGreenHistogram(Source source) {
+    return source.image.getGreenHistogram();
+  }
+
+  /**
+   * Measures the blue histogram.
+   *
+   * @param source the image.
+   * @return the histogram.
+   */
+  @Benchmark
+  public Map<Integer, Integer> getBlueHistogram(Source source) {
+    return source.image.getBlueHistogram();
+  }
+
+  /**
+   * Measures the intensity histogram.
+   *
+   * @param source the image.
+   * @return the histogram.
+   */
+  @Benchmark
+  public Map<Integer, Integer> getIntensityHistogram(Source source) {
+    return source.image.getIntensityHistogram();
+  }
+
+  /**
+   * Measures converting the image to a buffered image.
+   *
+   * @param source the image.
+   * @return the buffered image.
+   */
+  @Benchmark
+  public Object createImage(Source source) {
+    return source.image.createImage();
+  }
+
+  /**
+   * Measures formatting the image as the text of a ppm file.
+   *
+   * @param source the image.
+   * @return the text.
+   */
+  @Benchmark
+  public StringBuilder formatTextPPM(Source source) {
+    return source.image.formatTextPPM();
+  }
+}
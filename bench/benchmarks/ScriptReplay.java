@@ -0,0 +1,354 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import controller.CommandListener;
+import controller.ImageController;
+import model.CodecUsage;
+import model.DecodeCache;
+import view.ImageView;
+
+/**
+ * Replays a script through the image controller, in this program, a number of times after a few
+ * warm-up runs, and reports for every kind of command how many times it ran, the 50th, 95th and
+ * 99th percentiles of the time it took, the bytes it allocated and the megapixels it processed per
+ * second, together with the total throughput of the script and the peak size of the heap.
+ *
+ * <pre>
+ * java benchmarks.ScriptReplay ImageCommands.txt --iterations 20 --format csv --out replay.csv
+ * java benchmarks.ScriptReplay --synthetic Images/manhattan-small.png 200 --mode console
+ * </pre>
+ *
+ * <p>Options: --iterations (10 by default) and --warmup (3 by default) runs, --mode script (the
+ * script is planned and its commands run concurrently, the default) or console (the commands run
+ * one after the other), --format json (the default) or csv, and --out to write the report to a
+ * file instead of the console. A synthetic script of the given number of commands on the given
+ * image can be replayed instead of a script file. The decode cache is cleared before every run,
+ * so every run decodes the files it loads, and a run ends once the images it saves are written:
+ * the time of writing an image in the background is charged to the save that queued it.
+ */
+public class ScriptReplay {
+  private static final String[] OPERATIONS = {"blur", "sharpen", "sepia", "grayscale",
+      "luma-component", "value-component", "intensity-component", "red-component",
+      "horizontal-flip", "vertical-flip"};
+
+  private final String script;
+  private final boolean concurrent;
+  private final Recorder recorder;
+
+  /**
+   * Constructor for a replay of a script.
+   *
+   * @param script     the text of the script.
+   * @param concurrent true to run the script the way script files are run, false to run it the
+   *                   way the console does.
+   */
+  public ScriptReplay(String script, boolean concurrent) {
+    if (script == null) {
+      throw new IllegalArgumentException("Fields cannot be null.");
+    }
+    this.script = script;
+    this.concurrent = concurrent;
+    this.recorder = new Recorder();
+  }
+
+  /**
+   * Replays a script and prints the report.
+   *
+   * @param args the script and the options described above.
+   * @throws IOException if the script cannot be read or the report cannot be written.
+   */
+  public static void main(String[] args) throws IOException {
+    int iterations = 10;
+    int warmup = 3;
+    boolean concurrent = true;
+    String format = "json";
+    String out = null;
+    String script = null;
+    String name = null;
+
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--iterations":
+          iterations = Integer.parseInt(args[++i]);
+          break;
+        case "--warmup":
+          warmup = Integer.parseInt(args[++i]);
+          break;
+        case "--mode":
+          concurrent = !args[++i].equalsIgnoreCase("console");
+          break;
+        case "--format":
+          format = args[++i].toLowerCase(Locale.ROOT);
+          break;
+        case "--out":
+          out = args[++i];
+          break;
+        case "--synthetic":
+          name = "synthetic " + args[i + 1] + " " + args[i + 2];
+          script = synthetic(args[i + 1], Integer.parseInt(args[i + 2]));
+          i += 2;
+          break;
+        default:
+          name = args[i];
+          script = new String(Files.readAllBytes(new File(args[i]).toPath()));
+      }
+    }
+    if (script == null) {
+      System.out.println("Usage: ScriptReplay <script> | --synthetic <image> <commands> "
+              + "[--iterations n] [--warmup n] [--mode script|console] [--format json|csv] "
+              + "[--out file]");
+      return;
+    }
+
+    ScriptReplay replay = new ScriptReplay(script, concurrent);
+    long nanos = replay.run(warmup, iterations);
+    String report = format.equals("csv") ? replay.csv(nanos) : replay.json(name, iterations,
+            nanos);
+    if (out == null) {
+      System.out.print(report);
+    } else {
+      try (Writer writer = new FileWriter(out)) {
+        writer.write(report);
+      }
+    }
+  }
+
+  /**
+   * Runs the script the given number of times after the given number of warm-up runs, which are
+   * not measured.
+   *
+   * @param warmup     the number of runs before measuring.
+   * @param iterations the number of runs measured.
+   * @return the total time the measured runs took, in nanoseconds.
+   */
+  public long run(int warmup, int iterations) {
+    // errors the commands print are not part of the report.
+    PrintStream console = System.out;
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    try {
+      for (int i = 0; i < warmup; i++) {
+        runOnce(null);
+      }
+      System.gc();
+      for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+        pool.resetPeakUsage();
+      }
+
+      long start = System.nanoTime();
+      for (int i = 0; i < iterations; i++) {
+        runOnce(this.recorder);
+      }
+      return System.nanoTime() - start;
+    } finally {
+      System.setOut(console);
+    }
+  }
+
+  /**
+   * Describes the measured runs as json.
+   *
+   * @param name       the name of the script.
+   * @param iterations the number of runs measured.
+   * @param nanos      the total time of the runs, in nanoseconds.
+   * @return the report.
+   */
+  public String json(String name, int iterations, long nanos) {
+    StringBuilder text = new StringBuilder("{\n");
+    text.append("  \"script\": \"").append(name.replace("\\", "\\\\").replace("\"", "\\\""))
+            .append("\",\n");
+    text.append("  \"mode\": \"").append(this.concurrent ? "script" : "console").append("\",\n");
+    text.append("  \"iterations\": ").append(iterations).append(",\n");
+    text.append(String.format(Locale.ROOT, "  \"seconds\": %.3f,\n", nanos / 1e9));
+    text.append(String.format(Locale.ROOT, "  \"megapixelsPerSecond\": %.3f,\n",
+            this.recorder.totalPixels() / 1e6 / (nanos / 1e9)));
+    text.append("  \"peakHeapBytes\": ").append(peakHeap()).append(",\n");
+    text.append("  \"commands\": {");
+    String separator = "\n";
+    for (Map.Entry<String, Stats> entry : this.recorder.stats().entrySet()) {
+      Stats stats = entry.getValue();
+      text.append(separator).append("    \"").append(entry.getKey()).append("\": {");
+      text.append(String.format(Locale.ROOT, "\"count\": %d, \"p50Ms\": %.3f, \"p95Ms\": %.3f, "
+                      + "\"p99Ms\": %.3f, \"meanMs\": %.3f, \"allocatedBytes\": %d, "
+                      + "\"bytesWritten\": %d, \"megapixelsPerSecond\": %.3f}", stats.count(),
+              stats.percentile(50), stats.percentile(95), stats.percentile(99), stats.mean(),
+              stats.allocated(), stats.bytesWritten, stats.megapixelsPerSecond()));
+      separator = ",\n";
+    }
+    text.append("\n  }\n}\n");
+    return text.toString();
+  }
+
+  /**
+   * Describes the measured runs as csv, with a line for every kind of command and a last line for
+   * the whole script.
+   *
+   * @param nanos the total time of the runs, in nanoseconds.
+   * @return the report.
+   */
+  public String csv(long nanos) {
+    StringBuilder text = new StringBuilder("command,count,p50_ms,p95_ms,p99_ms,mean_ms,"
+            + "allocated_bytes,bytes_written,megapixels_per_second,peak_heap_bytes\n");
+    long count = 0;
+    for (Map.Entry<String, Stats> entry : this.recorder.stats().entrySet()) {
+      Stats stats = entry.getValue();
+      count += stats.count();
+      text.append(String.format(Locale.ROOT, "%s,%d,%.3f,%.3f,%.3f,%.3f,%d,%d,%.3f,\n",
+              entry.getKey(), stats.count(), stats.percentile(50), stats.percentile(95),
+              stats.percentile(99), stats.mean(), stats.allocated(), stats.bytesWritten,
+              stats.megapixelsPerSecond()));
+    }
+    text.append(String.format(Locale.ROOT, "total,%d,,,,,,,%.3f,%d\n", count,
+            this.recorder.totalPixels() / 1e6 / (nanos / 1e9), peakHeap()));
+    return text.toString();
+  }
+
+  // runs the script once, from files that are not cached, waiting for every image it saves.
+  private void runOnce(CommandListener listener) {
+    DecodeCache.getInstance().clear();
+    Reader input = new StringReader(this.script);
+    ImageView view = new ImageView(Writer.nullWriter());
+    ImageController controller = new ImageController(view, input, this.concurrent);
+    controller.useCommandListener(listener);
+    controller.runProgram();
+  }
+
+  // the sum of the highest use of every heap pool since the peaks were reset.
+  private static long peakHeap() {
+    long bytes = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        bytes += pool.getPeakUsage().getUsed();
+      }
+    }
+    return bytes;
+  }
+
+  // loads the image, then applies the operations in turn, each to the previous result or to the
+  // image itself, saving every tenth result.
+  private static String synthetic(String image, int commands) throws IOException {
+    File directory = Files.createTempDirectory("replay").toFile();
+    directory.deleteOnExit();
+    StringBuilder script = new StringBuilder("load " + image + " image0\n");
+    String previous = "image0";
+    for (int i = 1; i <= commands; i++) {
+      String input = i % 3 == 0 ? "image0" : previous;
+      String output = "image" + i;
+      script.append(OPERATIONS[i % OPERATIONS.length]).append(" ").append(input).append(" ")
+              .append(output).append("\n");
+      if (i % 10 == 0 || i == commands) {
+        File file = new File(directory, output + (i % 20 == 0 ? ".ppm" : ".png"));
+        file.deleteOnExit();
+        script.append("save ").append(file.getPath()).append(" ").append(output).append("\n");
+      }
+      previous = output;
+    }
+    return script.append("q\n").toString();
+  }
+
+  /**
+   * Collects the measurements of every command, by name.
+   */
+  private static class Recorder implements CommandListener {
+    private final Map<String, Stats> stats = new TreeMap<>();
+
+    @Override
+    public synchronized void executed(String name, long nanos, long allocated, long pixels,
+                                      CodecUsage codecs) {
+      this.stats.computeIfAbsent(name, k -> new Stats()).add(nanos, allocated, pixels);
+    }
+
+    @Override
+    public synchronized void written(String name, long nanos, long bytes) {
+      this.stats.computeIfAbsent(name, k -> new Stats()).addWrite(nanos, bytes);
+    }
+
+    private synchronized Map<String, Stats> stats() {
+      return new TreeMap<>(this.stats);
+    }
+
+    private synchronized long totalPixels() {
+      long pixels = 0;
+      for (Stats stats : this.stats.values()) {
+        pixels += stats.pixels;
+      }
+      return pixels;
+    }
+  }
+
+  /**
+   * The measurements of one kind of command.
+   */
+  private static class Stats {
+    private final List<Long> nanos = new ArrayList<>();
+    private final List<Long> writeNanos = new ArrayList<>();
+    private long totalNanos;
+    private long bytesWritten;
+    private long allocated;
+    private long measuredAllocations;
+    private long pixels;
+
+    private void add(long nanos, long allocated, long pixels) {
+      this.nanos.add(nanos);
+      this.totalNanos += nanos;
+      this.pixels += pixels;
+      if (allocated >= 0) {
+        this.allocated += allocated;
+        this.measuredAllocations++;
+      }
+    }
+
+    // an image written in the background for one of the executions.
+    private void addWrite(long nanos, long bytes) {
+      this.writeNanos.add(nanos);
+      this.totalNanos += nanos;
+      this.bytesWritten += bytes;
+    }
+
+    private int count() {
+      return this.nanos.size();
+    }
+
+    // the nearest-rank percentile, in milliseconds. Writes finish in about the order their
+    // executions queued them, so the i-th write is charged to the i-th execution.
+    private double percentile(double percent) {
+      List<Long> sorted = new ArrayList<>(this.nanos);
+      for (int i = 0; i < this.writeNanos.size() && i < sorted.size(); i++) {
+        sorted.set(i, sorted.get(i) + this.writeNanos.get(i));
+      }
+      Collections.sort(sorted);
+      int rank = (int) Math.ceil(percent / 100 * sorted.size());
+      return sorted.get(Math.max(rank - 1, 0)) / 1e6;
+    }
+
+    private double mean() {
+      return this.totalNanos / 1e6 / count();
+    }
+
+    // the mean number of bytes allocated by one execution, or -1 if they were not counted.
+    private long allocated() {
+      return this.measuredAllocations == 0 ? -1 : this.allocated / this.measuredAllocations;
+    }
+
+    private double megapixelsPerSecond() {
+      return this.totalNanos == 0 ? 0 : this.pixels / 1e6 / (this.totalNanos / 1e9);
+    }
+  }
+}
@@ -0,0 +1,95 @@
+import java.io.File;
+import java.io.FileReader;
+import java.io.InputStreamReader;
+
+import javax.swing.JOptionPane;
+
+import controller.GuiController;
+import controller.ImageController;
+import controller.ImageServer;
+import controller.ResultCache;
+import model.Image;
+import model.ImagePPM;
+import model.ImageReader;
+import model.ImageReaderGen;
+import view.Gui;
+import view.ImageView;
+
+/**
+ * The entry point of the image processing program. Runs the script, the text based interface or
+ * the graphical user interface depending on the command line arguments.
+ */
+public class ImageProcessingProgram {
+
+  /**
+   * Runs the program. The results of the script, the console and the server are cached on disk
+   * if the imageCache system property names a directory; imageCacheSize limits the size of the
+   * cache in bytes (1 GB by default).
+   *
+   * @param args "ImageCommands.txt" to run the script, "-text" to run the program through the
+   *             console, "-server" followed by an optional port (8080 by default) to run the
+   *             program as a local HTTP service, or no arguments to run the graphical user
+   *             interface.
+   */
+  public static void main(String[] args) {
+    Readable rd;
+
+    if (args.length > 0 && args[0].equalsIgnoreCase("ImageCommands.txt")) {
+      try {
+        rd = new FileReader("ImageCommands.txt");
+        ImageView view = new ImageView();
+        ImageController controller = new ImageController(view, rd, true);
+        controller.useResultCache(resultCache());
+        controller.runProgram();
+      } catch (Exception e) {
+        System.out.println("File ImageCommand.txt does not exist.");
+        System.exit(0);
+      }
+    } else if (args.length > 0 && args[0].equalsIgnoreCase("-text")) {
+      try {
+        rd = new InputStreamReader(System.in);
+        ImageView view = new ImageView();
+        ImageController controller = new ImageController(view, rd);
+        controller.useResultCache(resultCache());
+        controller.runProgram();
+      } catch (Exception e) {
+        System.out.println("The inputs could not be read.");
+        System.exit(0);
+      }
+    } else if (args.length > 0 && args[0].equalsIgnoreCase("-server")) {
+      try {
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+        ImageServer server = new ImageServer(port, new ImageView());
+        server.useResultCache(resultCache());
+        server.runProgram();
+      } catch (Exception e) {
+        System.out.println("The port must be a number between 0 and 65535.");
+        System.exit(0);
+      }
+    } else if (args.length == 0) {
+      try {
+        ImageReader reader = new ImageReaderGen();
+        Gui gui = new Gui();
+        Image model = new ImagePPM(reader);
+        GuiController controller = new GuiController(model, gui);
+        controller.start();
+      } catch (Exception e) {
+        Gui gui = new Gui();
+        JOptionPane.showMessageDialog(gui, "The inputs could not be read.", "Error!",
+                JOptionPane.ERROR_MESSAGE);
+        System.exit(0);
+      }
+    } else {
+      System.out.println("Invalid input!");
+      System.exit(0);
+    }
+  }
+
+  private static ResultCache resultCache() {
+    String directory = System.getProperty("imageCache");
+    if (directory == null) {
+      return null;
+    }
+    return new ResultCache(new File(directory), Long.getLong("imageCacheSize", 1L << 30));
+  }
+}
@@ -0,0 +1,42 @@
+package commands;
+
+import java.util.HashMap;
+import java.util.Scanner;
+
+import model.Image;
+import view.ImageView;
+
+/**
+ * Represents a command to crop an image to a rectangular region of it. The region shares the
+ * pixels of the image it was cut from, so cropping copies nothing and the commands applied to the
+ * region afterwards only process its pixels.
+ */
+public class Crop extends SimpleCommand {
+  private int x;
+  private int y;
+  private int width;
+  private int height;
+
+  @Override
+  public void execute(Scanner sc, ImageView view, HashMap<String, Image> images) {
+    clearContentInteger();
+    for (int i = 0; i < 4; i++) {
+      addInteger(sc, view);
+    }
+    this.x = relevantIntegers.get(0);
+    this.y = relevantIntegers.get(1);
+    this.width = relevantIntegers.get(2);
+    this.height = relevantIntegers.get(3);
+    super.execute(sc, view, images);
+  }
+
+  @Override
+  protected void executeCommand(Image model) {
+    model.crop(this.x, this.y, this.width, this.height);
+  }
+
+  @Override
+  protected String message() {
+    return "The Image has been successfully cropped.";
+  }
+}
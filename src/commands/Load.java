@@ -3,16 +3,16 @@ package commands;
 import java.util.HashMap;
 import java.util.Scanner;
 
-import model.ImageOther;
-import model.ImagePPM;
+import model.CodecRegistry;
+import model.DecodeCache;
 import model.Image;
-import model.ImageReader;
-import model.ImageReaderGen;
 import view.ImageView;
 
 /**
  * represents a class for the load command, which is a complex command. Loads the image and
- * initialises a new instance of Image.
+ * initialises a new instance of Image. Files that were loaded before and have not changed since
+ * are not decoded again. The format of a file is recognised by the codec registry from the first
+ * bytes of the file, whatever its extension.
  */
 public class Load extends AbstractCommand {
 
@@ -32,29 +32,14 @@ public class Load extends AbstractCommand {
     this.addString(sc, view);
     String imageName = this.relevantStrings.get(1);
 
-    ImageReader reader = new ImageReaderGen();
-
-    String[] extensionArray = path.split("\\.");
-
-    if (extensionArray[1].equals("ppm")) {
-      try {
-        reader.readPPM(path);
-        Image localImage = new ImagePPM(reader);
-        images.put(imageName, localImage);
-        this.sendMessage(view, "The image has been successfully loaded\n");
-      } catch (Exception e) {
-        this.sendMessage(view, e.getMessage() + "\n");
-      }
-
-    } else {
-      try {
-        reader.readOther(path);
-        Image localImage = new ImageOther(reader);
-        images.put(imageName, localImage);
-        this.sendMessage(view, "The image has been successfully loaded\n");
-      } catch (Exception e) {
-        this.sendMessage(view, e.getMessage() + "\n");
-      }
+    try {
+      // the codec is found from the first bytes of the file when it is not cached.
+      Image localImage = DecodeCache.getInstance().load(path,
+              () -> CodecRegistry.getInstance().load(path));
+      images.put(imageName, localImage);
+      this.sendMessage(view, "The image has been successfully loaded\n");
+    } catch (Exception e) {
+      this.sendMessage(view, e.getMessage() + "\n");
     }
   }
 }
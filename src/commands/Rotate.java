@@ -0,0 +1,49 @@
+package commands;
+
+import java.awt.geom.AffineTransform;
+import java.util.HashMap;
+import java.util.Scanner;
+
+import model.Image;
+import model.Interpolation;
+import view.ImageView;
+
+/**
+ * Represents a command to rotate an image clockwise. Rotations by a multiple of 90 degrees move
+ * no pixel, and other rotations resample the image into the rectangle around the rotated image.
+ */
+public class Rotate extends SimpleCommand {
+  private int degrees;
+
+  @Override
+  public void execute(Scanner sc, ImageView view, HashMap<String, Image> images) {
+    clearContentInteger();
+    addInteger(sc, view);
+    this.degrees = relevantIntegers.get(0);
+    super.execute(sc, view, images);
+  }
+
+  @Override
+  protected void executeCommand(Image model) {
+    if (this.degrees % 90 == 0) {
+      model.rotate(this.degrees);
+      return;
+    }
+    double angle = Math.toRadians(this.degrees);
+    double cos = Math.abs(Math.cos(angle));
+    double sin = Math.abs(Math.sin(angle));
+    int width = (int) Math.ceil(model.getWidth() * cos + model.getHeight() * sin - 1e-9);
+    int height = (int) Math.ceil(model.getWidth() * sin + model.getHeight() * cos - 1e-9);
+
+    // turns the image around its center, then moves the center to that of the result.
+    AffineTransform rotation = AffineTransform.getTranslateInstance(width / 2.0, height / 2.0);
+    rotation.rotate(angle);
+    rotation.translate(-model.getWidth() / 2.0, -model.getHeight() / 2.0);
+    model.transform(rotation, width, height, Interpolation.getDefault());
+  }
+
+  @Override
+  protected String message() {
+    return "The Image has been successfully rotated.";
+  }
+}
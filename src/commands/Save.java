@@ -0,0 +1,48 @@
+package commands;
+
+import java.util.HashMap;
+import java.util.Scanner;
+
+import model.CodecRegistry;
+import model.Image;
+import model.ImageCodec;
+import view.ImageView;
+
+/**
+ * represents a class for the save command, which is a complex command. Saves the image under the
+ * given name to a file through the codec of the extension of the file.
+ */
+public class Save extends AbstractCommand {
+
+  /**
+   * executes the specified command for the user, which is saving the image in this case.
+   *
+   * @param sc     the scanner of the current controller.
+   * @param view   the current view of the image.
+   * @param images the hashmap of images currently stored.
+   */
+  @Override
+  public void execute(Scanner sc, ImageView view, HashMap<String, Image> images) {
+    this.clearContentString();
+    // obtain the data - the path name and the name in the HashMap.
+    this.addString(sc, view);
+    String path = this.relevantStrings.get(0);
+    this.addString(sc, view);
+    String imageName = this.relevantStrings.get(1);
+
+    if (images.containsKey(imageName)) {
+      ImageCodec codec = CodecRegistry.getInstance()
+              .forExtension(CodecRegistry.extensionOf(path));
+      if (codec != null) {
+        try {
+          codec.encode(images.get(imageName), path);
+          this.sendMessage(view, "The image has been successfully saved.\n");
+        } catch (Exception e) {
+          this.sendMessage(view, e.getMessage());
+        }
+      } else {
+        this.sendMessage(view, "Extension does not exist.");
+      }
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package commands;
+
+import java.awt.geom.AffineTransform;
+import java.util.HashMap;
+import java.util.Scanner;
+
+import model.Image;
+import model.Interpolation;
+import view.ImageView;
+
+/**
+ * Represents a command to scale an image up or down by a percentage of its size.
+ */
+public class Scale extends SimpleCommand {
+  private int percent;
+
+  @Override
+  public void execute(Scanner sc, ImageView view, HashMap<String, Image> images) {
+    clearContentInteger();
+    addInteger(sc, view);
+    this.percent = relevantIntegers.get(0);
+    super.execute(sc, view, images);
+  }
+
+  @Override
+  protected void executeCommand(Image model) {
+    if (this.percent <= 0) {
+      throw new IllegalArgumentException("The percentage must be positive.");
+    }
+    int width = Math.max(1, (int) Math.round(model.getWidth() * this.percent / 100.0));
+    int height = Math.max(1, (int) Math.round(model.getHeight() * this.percent / 100.0));
+    model.transform(AffineTransform.getScaleInstance((double) width / model.getWidth(),
+            (double) height / model.getHeight()), width, height, Interpolation.getDefault());
+  }
+
+  @Override
+  protected String message() {
+    return "The Image has been successfully scaled.";
+  }
+}
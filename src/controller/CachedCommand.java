@@ -0,0 +1,101 @@
+package controller;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Scanner;
+
+import commands.Command;
+import model.Image;
+import view.ImageView;
+
+/**
+ * Represents a command whose result is looked up in a result cache before it is computed. Only
+ * commands that store a single image can be cached; the arguments are read first so that the
+ * images and files the command depends on are known, and then handed on to the command itself
+ * if the result is not in the cache.
+ */
+public class CachedCommand implements Command {
+  private final String name;
+  private final ScriptCommand.Argument[] signature;
+  private final Command command;
+  private final ResultCache cache;
+
+  /**
+   * Constructor for a cached command.
+   *
+   * @param name      the name of the command.
+   * @param signature the role of each argument of the command. Exactly one must be written.
+   * @param command   the command that computes the result when it is not cached.
+   * @param cache     the cache to look results up in and store them into.
+   */
+  public CachedCommand(String name, ScriptCommand.Argument[] signature, Command command,
+                       ResultCache cache) {
+    if (name == null || signature == null || command == null || cache == null) {
+      throw new IllegalArgumentException("Fields cannot be null.");
+    }
+    this.name = name;
+    this.signature = signature;
+    this.command = command;
+    this.cache = cache;
+  }
+
+  /**
+   * Executes the command, reading the result from the cache if it holds it and storing the
+   * result into the cache otherwise.
+   *
+   * @param sc     the scanner of the current controller.
+   * @param view   the current view of the image.
+   * @param images the hashmap of images currently stored.
+   * @throws IOException if a message cannot be rendered.
+   */
+  @Override
+  public void execute(Scanner sc, ImageView view, HashMap<String, Image> images)
+          throws IOException {
+    List<String> arguments = new ArrayList<>();
+    for (int i = 0; i < this.signature.length && sc.hasNext(); i++) {
+      arguments.add(sc.next());
+    }
+    ScriptCommand parsed = new ScriptCommand(0, this.name, this.signature, arguments);
+    String key = key(parsed, images);
+    String output = parsed.writes().isEmpty() ? null : parsed.writes().get(0);
+
+    if (key != null) {
+      ResultCache.Result result = this.cache.get(key);
+      if (result != null) {
+        images.put(output, result.getImage());
+        view.renderMessage(result.getMessages());
+        return;
+      }
+    }
+
+    StringBuilder messages = new StringBuilder();
+    Image before = output == null ? null : images.get(output);
+    try {
+      this.command.execute(parsed.scanner(), new ImageView(messages), images);
+    } finally {
+      view.renderMessage(messages.toString());
+    }
+
+    Image after = output == null ? null : images.get(output);
+    if (key != null && after != null && after != before) {
+      this.cache.put(key, after, messages.toString());
+    }
+  }
+
+  // the key of the result, or null if an argument is missing or an input does not exist.
+  private String key(ScriptCommand parsed, HashMap<String, Image> images) {
+    if (parsed.getArguments().size() != this.signature.length || parsed.writes().size() != 1) {
+      return null;
+    }
+    List<Image> inputs = new ArrayList<>();
+    for (String name : parsed.reads()) {
+      if (!images.containsKey(name)) {
+        return null;
+      }
+      inputs.add(images.get(name));
+    }
+    return this.cache.key(this.name, parsed.params(), inputs, parsed.filesRead());
+  }
+}
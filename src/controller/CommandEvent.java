@@ -0,0 +1,51 @@
+package controller;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A flight recorder event for the execution of one command, with its arguments and what it
+ * processed. Recorded by the timed command, so every command of the controller is recorded
+ * while it measures its commands.
+ */
+@Name("imageprocessing.Command")
+@Label("Command")
+@Category({"Image Processing", "Commands"})
+@Description("The execution of a command")
+@StackTrace(false)
+class CommandEvent extends Event {
+  @Label("Command")
+  String command;
+
+  @Label("Arguments")
+  String arguments;
+
+  @Label("Pixels")
+  long pixels;
+
+  @Label("Decode Time")
+  @Timespan(Timespan.NANOSECONDS)
+  long decodeTime;
+
+  @Label("Bytes Read")
+  @DataAmount
+  long bytesRead;
+
+  @Label("Encode Time")
+  @Timespan(Timespan.NANOSECONDS)
+  long encodeTime;
+
+  @Label("Bytes Written")
+  @DataAmount
+  long bytesWritten;
+
+  @Label("Allocated")
+  @DataAmount
+  long allocated;
+}
@@ -0,0 +1,33 @@
+package controller;
+
+import model.CodecUsage;
+
+/**
+ * Represents an object that is told about every command a controller executes, with how long it
+ * took and how much it allocated, and about every image written in the background. Commands of a
+ * script can be executed on several threads at the same time, so a listener must be safe for use
+ * by several threads.
+ */
+public interface CommandListener {
+
+  /**
+   * Called after a command has been executed.
+   *
+   * @param name      the name of the command.
+   * @param nanos     the time the command took, in nanoseconds.
+   * @param allocated the number of bytes the command allocated, or -1 if it is not known.
+   * @param pixels    the number of pixels of the image the command stored or read, or 0 if
+   *                  there is none.
+   * @param codecs    the decoding and encoding done by the command while it ran.
+   */
+  void executed(String name, long nanos, long allocated, long pixels, CodecUsage codecs);
+
+  /**
+   * Called after an image saved by a command has been encoded and written in the background.
+   *
+   * @param name  the name of the command.
+   * @param nanos the time encoding and writing took, in nanoseconds.
+   * @param bytes the number of bytes written, or 0 if the image could not be written.
+   */
+  void written(String name, long nanos, long bytes);
+}
@@ -0,0 +1,160 @@
+package controller;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import model.CodecUsage;
+
+/**
+ * Keeps the measurements of every command executed by the program, by the name of the command:
+ * how many times it was executed, a histogram of the time it took, the pixels it processed, the
+ * time it spent decoding and encoding, the bytes of the files it read and wrote (with the time
+ * spent encoding and writing them in the background) and the bytes it allocated. The
+ * measurements are shared by the whole program, published over JMX and shown by the stats
+ * command.
+ */
+public class CommandMetrics implements CommandListener, CommandMetricsMXBean {
+  /**
+   * The name the measurements are published under over JMX.
+   */
+  public static final String NAME = "imageprocessing:type=CommandMetrics";
+  private static final int BUCKETS = 17;
+  private static CommandMetrics instance;
+
+  private final Map<String, Entry> entries;
+
+  /**
+   * Constructor for an empty set of measurements, which is not published.
+   */
+  public CommandMetrics() {
+    this.entries = new TreeMap<>();
+  }
+
+  /**
+   * Gets the measurements of the program, publishing them over JMX the first time.
+   *
+   * @return the measurements shared by the whole program.
+   */
+  public static synchronized CommandMetrics getInstance() {
+    if (instance == null) {
+      instance = new CommandMetrics();
+      try {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(instance,
+                new ObjectName(NAME));
+      } catch (JMException e) {
+        // the measurements can still be seen through the stats command.
+      }
+    }
+    return instance;
+  }
+
+  @Override
+  public synchronized void executed(String name, long nanos, long allocated, long pixels,
+                                    CodecUsage codecs) {
+    Entry entry = this.entries.computeIfAbsent(name, k -> new Entry());
+    entry.count++;
+    entry.nanos += nanos;
+    entry.maxNanos = Math.max(entry.maxNanos, nanos);
+    entry.histogram[bucket(nanos)]++;
+    entry.pixels += pixels;
+    entry.decodeNanos += codecs.getDecodeNanos();
+    entry.bytesRead += codecs.getBytesRead();
+    entry.encodeNanos += codecs.getEncodeNanos();
+    entry.bytesWritten += codecs.getBytesWritten();
+    if (allocated > 0) {
+      entry.allocated += allocated;
+    }
+  }
+
+  @Override
+  public synchronized void written(String name, long nanos, long bytes) {
+    Entry entry = this.entries.computeIfAbsent(name, k -> new Entry());
+    entry.writes++;
+    entry.writeNanos += nanos;
+    entry.bytesWritten += bytes;
+  }
+
+  @Override
+  public synchronized Map<String, CommandStats> getCommands() {
+    Map<String, CommandStats> commands = new TreeMap<>();
+    for (Map.Entry<String, Entry> entry : this.entries.entrySet()) {
+      Entry value = entry.getValue();
+      commands.put(entry.getKey(), new CommandStats(value.count, value.nanos / 1e6,
+              value.maxNanos / 1e6, value.histogram, value.pixels, value.decodeNanos / 1e6,
+              value.bytesRead, value.encodeNanos / 1e6, value.writes, value.writeNanos / 1e6,
+              value.bytesWritten, value.allocated));
+    }
+    return commands;
+  }
+
+  @Override
+  public synchronized long getCommandCount() {
+    long count = 0;
+    for (Entry entry : this.entries.values()) {
+      count += entry.count;
+    }
+    return count;
+  }
+
+  @Override
+  public synchronized void reset() {
+    this.entries.clear();
+  }
+
+  /**
+   * Describes the measurements as a table, with a line for every command.
+   *
+   * @return the measurements of every command.
+   */
+  @Override
+  public String toString() {
+    StringBuilder text = new StringBuilder(String.format("%-22s %7s %10s %8s %8s %9s %9s %9s "
+                    + "%9s %9s %9s %9s %10s\n", "command", "count", "total ms", "p50 ms",
+            "p95 ms", "max ms", "MP", "decode ms", "MB read", "encode ms", "MB wrote", "write ms",
+            "MB alloc"));
+    for (Map.Entry<String, CommandStats> entry : getCommands().entrySet()) {
+      CommandStats stats = entry.getValue();
+      text.append(String.format("%-22s %7d %10.1f %8s %8s %9.1f %9.2f %9.1f %9.2f %9.1f "
+                      + "%9.2f %9.1f %10.1f\n", entry.getKey(), stats.getCount(),
+              stats.getTotalMillis(), format(stats.percentile(50)), format(stats.percentile(95)),
+              stats.getMaxMillis(), stats.getPixels() / 1e6, stats.getDecodeMillis(),
+              stats.getBytesRead() / 1e6, stats.getEncodeMillis(), stats.getBytesWritten() / 1e6,
+              stats.getWriteMillis(), stats.getAllocatedBytes() / 1e6));
+    }
+    return text.toString();
+  }
+
+  private String format(double millis) {
+    return millis == Math.rint(millis) ? String.valueOf((long) millis)
+            : String.format("%.1f", millis);
+  }
+
+  // bucket 0 holds times under a millisecond, bucket i times under 2^i milliseconds.
+  private int bucket(long nanos) {
+    long millis = nanos / 1_000_000;
+    int bucket = millis == 0 ? 0 : 64 - Long.numberOfLeadingZeros(millis);
+    return Math.min(bucket, BUCKETS - 1);
+  }
+
+  /**
+   * The measurements of one command while they are being taken.
+   */
+  private static class Entry {
+    private long count;
+    private long nanos;
+    private long maxNanos;
+    private final long[] histogram = new long[BUCKETS];
+    private long pixels;
+    private long decodeNanos;
+    private long bytesRead;
+    private long encodeNanos;
+    private long allocated;
+    private long writes;
+    private long writeNanos;
+    private long bytesWritten;
+  }
+}
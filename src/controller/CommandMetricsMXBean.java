@@ -0,0 +1,29 @@
+package controller;
+
+import java.util.Map;
+
+/**
+ * Represents the measurements of the commands executed by the program, as they are published
+ * over JMX under the name "imageprocessing:type=CommandMetrics".
+ */
+public interface CommandMetricsMXBean {
+
+  /**
+   * Gets the measurements of every command that has been executed, by the name of the command.
+   *
+   * @return the measurements of the commands.
+   */
+  Map<String, CommandStats> getCommands();
+
+  /**
+   * Gets the number of commands that have been executed.
+   *
+   * @return the number of commands.
+   */
+  long getCommandCount();
+
+  /**
+   * Forgets every measurement made so far.
+   */
+  void reset();
+}
@@ -0,0 +1,197 @@
+package controller;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The measurements of one command, at the time they were taken. The time of every execution is
+ * counted in a histogram: bucket 0 counts the executions that took less than a millisecond, bucket
+ * i those that took from 2^(i-1) up to 2^i milliseconds, and the last bucket every execution that
+ * took longer.
+ */
+public class CommandStats {
+  private final long count;
+  private final double totalMillis;
+  private final double maxMillis;
+  private final long[] histogram;
+  private final long pixels;
+  private final double decodeMillis;
+  private final long bytesRead;
+  private final double encodeMillis;
+  private final long writes;
+  private final double writeMillis;
+  private final long bytesWritten;
+  private final long allocatedBytes;
+
+  /**
+   * Constructor for the measurements of a command.
+   *
+   * @param count          the number of times the command was executed.
+   * @param totalMillis    the total time of the executions, in milliseconds.
+   * @param maxMillis      the time of the longest execution, in milliseconds.
+   * @param histogram      the number of executions in every bucket of time.
+   * @param pixels         the number of pixels processed.
+   * @param decodeMillis   the total time of decoding files, in milliseconds.
+   * @param bytesRead      the number of bytes of the files read.
+   * @param encodeMillis   the total time of encoding files while executing, in milliseconds.
+   * @param writes         the number of images written in the background.
+   * @param writeMillis    the total time of encoding and writing them, in milliseconds.
+   * @param bytesWritten   the number of bytes written.
+   * @param allocatedBytes the number of bytes allocated by the executions.
+   */
+  @ConstructorProperties({"count", "totalMillis", "maxMillis", "histogram", "pixels",
+      "decodeMillis", "bytesRead", "encodeMillis", "writes", "writeMillis", "bytesWritten",
+      "allocatedBytes"})
+  public CommandStats(long count, double totalMillis, double maxMillis, long[] histogram,
+                      long pixels, double decodeMillis, long bytesRead, double encodeMillis,
+                      long writes, double writeMillis, long bytesWritten, long allocatedBytes) {
+    this.count = count;
+    this.totalMillis = totalMillis;
+    this.maxMillis = maxMillis;
+    this.histogram = histogram.clone();
+    this.pixels = pixels;
+    this.decodeMillis = decodeMillis;
+    this.bytesRead = bytesRead;
+    this.encodeMillis = encodeMillis;
+    this.writes = writes;
+    this.writeMillis = writeMillis;
+    this.bytesWritten = bytesWritten;
+    this.allocatedBytes = allocatedBytes;
+  }
+
+  /**
+   * Gets the number of times the command was executed.
+   *
+   * @return the number of executions.
+   */
+  public long getCount() {
+    return this.count;
+  }
+
+  /**
+   * Gets the total time of the executions.
+   *
+   * @return the total time in milliseconds.
+   */
+  public double getTotalMillis() {
+    return this.totalMillis;
+  }
+
+  /**
+   * Gets the mean time of an execution.
+   *
+   * @return the mean time in milliseconds.
+   */
+  public double getMeanMillis() {
+    return this.count == 0 ? 0 : this.totalMillis / this.count;
+  }
+
+  /**
+   * Gets the time of the longest execution.
+   *
+   * @return the longest time in milliseconds.
+   */
+  public double getMaxMillis() {
+    return this.maxMillis;
+  }
+
+  /**
+   * Gets the number of executions in every bucket of time.
+   *
+   * @return the histogram of the times.
+   */
+  public long[] getHistogram() {
+    return this.histogram.clone();
+  }
+
+  /**
+   * Gets the number of pixels of the images the command stored or read.
+   *
+   * @return the number of pixels processed.
+   */
+  public long getPixels() {
+    return this.pixels;
+  }
+
+  /**
+   * Gets the total time the command spent decoding files, which is part of its total time.
+   *
+   * @return the time in milliseconds.
+   */
+  public double getDecodeMillis() {
+    return this.decodeMillis;
+  }
+
+  /**
+   * Gets the number of bytes of the files the command read.
+   *
+   * @return the number of bytes read.
+   */
+  public long getBytesRead() {
+    return this.bytesRead;
+  }
+
+  /**
+   * Gets the total time the command spent encoding files while it was executed, which is part
+   * of its total time. Encoding in the background is part of the write time instead.
+   *
+   * @return the time in milliseconds.
+   */
+  public double getEncodeMillis() {
+    return this.encodeMillis;
+  }
+
+  /**
+   * Gets the number of images the command wrote in the background.
+   *
+   * @return the number of images written.
+   */
+  public long getWrites() {
+    return this.writes;
+  }
+
+  /**
+   * Gets the total time of encoding and writing images in the background.
+   *
+   * @return the time in milliseconds.
+   */
+  public double getWriteMillis() {
+    return this.writeMillis;
+  }
+
+  /**
+   * Gets the number of bytes of the files the command wrote, while executing or in the
+   * background.
+   *
+   * @return the number of bytes written.
+   */
+  public long getBytesWritten() {
+    return this.bytesWritten;
+  }
+
+  /**
+   * Gets the number of bytes the threads executing the command allocated.
+   *
+   * @return the number of bytes allocated.
+   */
+  public long getAllocatedBytes() {
+    return this.allocatedBytes;
+  }
+
+  /**
+   * Estimates a percentile of the time of an execution from the histogram.
+   *
+   * @param percent the percentile, between 0 and 100.
+   * @return the upper bound of the bucket holding the percentile, in milliseconds.
+   */
+  public double percentile(double percent) {
+    long rank = (long) Math.ceil(percent / 100 * this.count);
+    long seen = 0;
+    for (int i = 0; i < this.histogram.length - 1; i++) {
+      seen += this.histogram[i];
+      if (seen >= rank) {
+        return Math.min(1L << i, this.maxMillis);
+      }
+    }
+    return this.maxMillis;
+  }
+}
@@ -0,0 +1,355 @@
+package controller;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import model.Image;
+
+/**
+ * Represents the undo and redo history of the image edited in the graphical interface. Every
+ * state of the image is kept as the image itself, which costs only the pixels the edit changed
+ * as images share their pixels with the images they were copied from, along with the edit that
+ * led to it and a small preview to show straight away. When the history takes up more than its
+ * budget, the images of the oldest states are dropped, except for a checkpoint every few states,
+ * and a state whose image was dropped is rebuilt by replaying its edits from the checkpoint
+ * before it (or, for an edit that undoes itself such as a flip, by applying it again to the
+ * state after it). If that is not enough, the oldest states are forgotten.
+ */
+public class EditHistory {
+  // the reference to a pixel in an array, which is all an edit that only moves pixels adds.
+  private static final long BYTES_PER_MOVED_PIXEL = 4;
+
+  private final long budget;
+  private final int checkpointEvery;
+  private final List<State> states;
+  private int current;
+  private long bytes;
+
+  /**
+   * Constructor for an empty history.
+   *
+   * @param budget          the number of bytes the images of the history may take up.
+   * @param checkpointEvery the number of states between two checkpoints.
+   */
+  public EditHistory(long budget, int checkpointEvery) {
+    if (budget <= 0 || checkpointEvery <= 0) {
+      throw new IllegalArgumentException("The budget and checkpoints must be positive.");
+    }
+    this.budget = budget;
+    this.checkpointEvery = checkpointEvery;
+    this.states = new ArrayList<>();
+  }
+
+  /**
+   * Forgets the history and starts a new one from the given image, such as a file just opened.
+   *
+   * @param image   the image.
+   * @param preview a small version of the image, or null.
+   */
+  public void reset(Image image, BufferedImage preview) {
+    if (image == null) {
+      throw new IllegalArgumentException("Fields cannot be null.");
+    }
+    this.states.clear();
+    this.bytes = 0;
+    State state = new State(null, null, false, image, preview);
+    state.checkpoint = true;
+    keep(state, image, false);
+    add(state);
+    this.current = 0;
+    collapse();
+  }
+
+  /**
+   * Records an edit of the current state, forgetting the states that could be redone.
+   *
+   * @param name        the name of the edit.
+   * @param edit        the edit, which can be applied again to rebuild the state.
+   * @param selfInverse true if applying the edit twice gives back the image, as for flips.
+   * @param image       the edited image.
+   * @param preview     a small version of the edited image, or null.
+   */
+  public void record(String name, Consumer<Image> edit, boolean selfInverse, Image image,
+                     BufferedImage preview) {
+    if (name == null || edit == null || image == null) {
+      throw new IllegalArgumentException("Fields cannot be null.");
+    }
+    if (this.states.isEmpty()) {
+      throw new IllegalStateException("The history has not been started.");
+    }
+    while (this.states.size() > this.current + 1) {
+      remove(this.states.size() - 1);
+    }
+
+    State state = new State(name, edit, selfInverse, image, preview);
+    int lastCheckpoint = this.current;
+    while (!this.states.get(lastCheckpoint).checkpoint) {
+      lastCheckpoint--;
+    }
+    state.checkpoint = this.current + 1 - lastCheckpoint >= this.checkpointEvery;
+    keep(state, image, selfInverse);
+    add(state);
+    this.current++;
+    collapse();
+  }
+
+  /**
+   * Tells whether there is an edit to undo.
+   *
+   * @return true if the current state is not the oldest one.
+   */
+  public boolean canUndo() {
+    return this.current > 0;
+  }
+
+  /**
+   * Tells whether there is an edit to redo.
+   *
+   * @return true if the current state is not the newest one.
+   */
+  public boolean canRedo() {
+    return this.current < this.states.size() - 1;
+  }
+
+  /**
+   * Gets the name of the edit that leads to the given state.
+   *
+   * @param index the position of the state.
+   * @return the name of the edit.
+   */
+  public String nameOf(int index) {
+    return this.states.get(index).name;
+  }
+
+  /**
+   * Gets the position of the current state.
+   *
+   * @return the position of the current state.
+   */
+  public int getCurrent() {
+    return this.current;
+  }
+
+  /**
+   * Gets the preview of the given state.
+   *
+   * @param index the position of the state.
+   * @return the small version of its image, or null if it has none.
+   */
+  public BufferedImage previewOf(int index) {
+    return this.states.get(index).preview;
+  }
+
+  /**
+   * Gets the width of the image of the given state.
+   *
+   * @param index the position of the state.
+   * @return the width of its image.
+   */
+  public int widthOf(int index) {
+    return this.states.get(index).width;
+  }
+
+  /**
+   * Gets the height of the image of the given state.
+   *
+   * @param index the position of the state.
+   * @return the height of its image.
+   */
+  public int heightOf(int index) {
+    return this.states.get(index).height;
+  }
+
+  /**
+   * Tells how to rebuild the image of the given state: an image to start from, which must be
+   * copied before it is changed, and the edits to apply to it in order. For a state whose image
+   * was kept there is nothing to apply.
+   *
+   * @param index the position of the state.
+   * @return the image to start from, and the edits to apply.
+   */
+  public Rebuild rebuild(int index) {
+    State state = this.states.get(index);
+    if (state.image != null) {
+      return new Rebuild(state.image, new ArrayList<>());
+    }
+    if (index + 1 < this.states.size()) {
+      State next = this.states.get(index + 1);
+      if (next.selfInverse && next.image != null) {
+        List<Consumer<Image>> edits = new ArrayList<>();
+        edits.add(next.edit);
+        return new Rebuild(next.image, edits);
+      }
+    }
+    int start = index;
+    while (this.states.get(start).image == null) {
+      start--;
+    }
+    List<Consumer<Image>> edits = new ArrayList<>();
+    for (int i = start + 1; i <= index; i++) {
+      edits.add(this.states.get(i).edit);
+    }
+    return new Rebuild(this.states.get(start).image, edits);
+  }
+
+  /**
+   * Makes the given state the current one, once its image has been rebuilt.
+   *
+   * @param index the position of the state.
+   * @param image the image of the state.
+   */
+  public void moveTo(int index, Image image) {
+    if (index < 0 || index >= this.states.size() || image == null) {
+      throw new IllegalArgumentException("There is no such state.");
+    }
+    State state = this.states.get(index);
+    if (state.image == null) {
+      keep(state, image, false);
+    }
+    this.current = index;
+    collapse();
+  }
+
+  /**
+   * Gets the number of bytes the images of the history take up.
+   *
+   * @return the number of bytes.
+   */
+  public long getBytes() {
+    return this.bytes;
+  }
+
+  /**
+   * Describes the history.
+   *
+   * @return the number of states, how many of them have their image kept, and their size.
+   */
+  @Override
+  public String toString() {
+    int kept = 0;
+    for (State state : this.states) {
+      if (state.image != null) {
+        kept++;
+      }
+    }
+    return "History: " + this.states.size() + " states, " + kept + " kept, " + this.bytes
+            + " of " + this.budget + " bytes";
+  }
+
+  private void add(State state) {
+    this.states.add(state);
+    this.bytes += previewBytes(state);
+  }
+
+  private void remove(int index) {
+    State state = this.states.remove(index);
+    forget(state);
+    this.bytes -= previewBytes(state);
+  }
+
+  private long previewBytes(State state) {
+    return state.preview == null ? 0
+            : (long) state.preview.getWidth() * state.preview.getHeight() * 4;
+  }
+
+  // keeps the image of a state, which shares the pixels of the state before it if it only moved
+  // them.
+  private void keep(State state, Image image, boolean moved) {
+    state.image = image;
+    state.bytes = image.estimateBytes();
+    if (moved) {
+      state.bytes = Math.min(state.bytes,
+              (long) image.getWidth() * image.getHeight() * BYTES_PER_MOVED_PIXEL);
+    }
+    this.bytes += state.bytes;
+  }
+
+  private void forget(State state) {
+    state.image = null;
+    this.bytes -= state.bytes;
+    state.bytes = 0;
+  }
+
+  // drops the images of the oldest states that are not checkpoints, then the oldest states, until
+  // the history fits in its budget. The current state always keeps its image.
+  private void collapse() {
+    for (int i = 0; i < this.states.size() && this.bytes > this.budget; i++) {
+      State state = this.states.get(i);
+      if (i != this.current && !state.checkpoint && state.image != null) {
+        forget(state);
+      }
+    }
+    while (this.bytes > this.budget) {
+      int next = 1;
+      while (next < this.states.size() && !this.states.get(next).checkpoint) {
+        next++;
+      }
+      if (next >= this.current + 1 || next >= this.states.size()) {
+        // the oldest states left are needed to rebuild the current one.
+        return;
+      }
+      for (int i = 0; i < next; i++) {
+        remove(0);
+      }
+      this.current -= next;
+    }
+  }
+
+  /**
+   * A state of the image.
+   */
+  private static class State {
+    private final String name;
+    private final Consumer<Image> edit;
+    private final boolean selfInverse;
+    private final BufferedImage preview;
+    private final int width;
+    private final int height;
+    private boolean checkpoint;
+    private Image image;
+    private long bytes;
+
+    private State(String name, Consumer<Image> edit, boolean selfInverse, Image image,
+                  BufferedImage preview) {
+      this.name = name;
+      this.edit = edit;
+      this.selfInverse = selfInverse;
+      this.width = image.getWidth();
+      this.height = image.getHeight();
+      this.preview = preview;
+    }
+  }
+
+  /**
+   * How to rebuild the image of a state.
+   */
+  public static class Rebuild {
+    private final Image start;
+    private final List<Consumer<Image>> edits;
+
+    private Rebuild(Image start, List<Consumer<Image>> edits) {
+      this.start = start;
+      this.edits = edits;
+    }
+
+    /**
+     * Gets the image to start from, which must be copied before it is changed.
+     *
+     * @return the image to start from.
+     */
+    public Image getStart() {
+      return this.start;
+    }
+
+    /**
+     * Gets the edits to apply to the image, in order.
+     *
+     * @return the edits to apply.
+     */
+    public List<Consumer<Image>> getEdits() {
+      return new ArrayList<>(this.edits);
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package controller;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Scanner;
+
+import commands.Command;
+import model.Image;
+import view.ImageView;
+
+/**
+ * Represents the explain command, which reads a script file and renders the plan the controller
+ * would execute for it, without executing anything.
+ */
+public class Explain implements Command {
+  private final ScriptParser parser;
+  private final ScriptPlanner planner;
+
+  /**
+   * Constructor for the explain command.
+   *
+   * @param parser  the parser used to read the script.
+   * @param planner the planner used to optimize the script.
+   */
+  public Explain(ScriptParser parser, ScriptPlanner planner) {
+    if (parser == null || planner == null) {
+      throw new IllegalArgumentException("Fields cannot be null.");
+    }
+    this.parser = parser;
+    this.planner = planner;
+  }
+
+  /**
+   * Renders the optimized plan of the script whose path is the next input.
+   *
+   * @param sc     the scanner of the current controller.
+   * @param view   the current view of the image.
+   * @param images the hashmap of images currently stored.
+   * @throws IOException if the plan cannot be rendered.
+   */
+  @Override
+  public void execute(Scanner sc, ImageView view, HashMap<String, Image> images)
+          throws IOException {
+    if (!sc.hasNext()) {
+      view.renderMessage("Please enter the data correctly");
+      return;
+    }
+    String path = sc.next();
+    try (FileReader script = new FileReader(path)) {
+      view.renderMessage(this.planner.explain(this.parser.parse(script)));
+    } catch (IOException e) {
+      view.renderMessage("The script " + path + " could not be read.\n");
+    }
+  }
+}
@@ -1,18 +1,26 @@
 package controller;
 
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 import javax.swing.JComboBox;
+import javax.swing.SwingWorker;
 
+import model.CodecRegistry;
 import model.Image;
+import model.ImageCodec;
 import model.ImageOther;
-import model.ImagePPM;
-import model.ImageReader;
-import model.ImageReaderGen;
-import model.ImageWriter;
-import model.ImageWriterGen;
+import model.Pixel;
+import model.Progress;
 import view.Gui;
 import view.Histogram;
 import view.IGuiController;
@@ -22,9 +30,20 @@ import view.IGuiController;
  * current image based on the inputs given from the user.
  */
 public class GuiController implements ActionListener, IGuiController {
+  // the passes after those of a transformation: the conversions of the image and of its proxy.
+  private static final int PASSES = 2;
+
   private Image model;
   private Gui view;
   private BufferedImage image;
+  private Transformation running;
+  private Transformation pending;
+  // the current image scaled down to the screen, made when it is first previewed.
+  private Image proxy;
+  // the histogram of the current image being computed, cancelled if the image changes first.
+  private Progress histogram;
+  private final EditHistory history = new EditHistory(Long.getLong("historySize",
+          Runtime.getRuntime().maxMemory() / 4), Integer.getInteger("historyCheckpoints", 8));
 
   /**
    * the default constructor for the controller for the graphical user interface. Sets the model.
@@ -41,102 +60,288 @@ public class GuiController implements ActionListener, IGuiController {
   }
 
   /**
-   * performs the various transformations on the current image based on the user's chosen.
-   * transformations from the dropdown. Made public for testing purposes.
+   * applies one of the various transformations to the current image based on the user's chosen.
+   * transformations from the dropdown. The transformation is applied to a copy of the image on a
+   * background thread, with a progress bar, and the copy replaces the current image once it is
+   * done, so the window keeps responding and a cancelled transformation leaves the image as it
+   * was. A transformation chosen while another is applied waits for it, replacing any other
+   * transformation that was waiting. Made public for testing purposes.
    *
    * @param transformation the transformation chosen by the user.
    */
   public void chooseTransformation(String transformation) {
+    Consumer<Image> operation = null;
+    int[] size = null;
     if (transformation.equals("Vertical flip")) {
-      this.model.verticalFlip();
-      this.view.displayHistogram(new Histogram(this.model));
-      this.image = this.model.createImage();
-      this.view.displayBufferedImage(this.image);
+      operation = Image::verticalFlip;
     } else if (transformation.equals("Horizontal flip")) {
-      this.model.horizontalFlip();
-      this.view.displayHistogram(new Histogram(this.model));
-      this.image = this.model.createImage();
-      this.view.displayBufferedImage(this.image);
+      operation = Image::horizontalFlip;
+    } else if (transformation.equals("Rotate right")) {
+      operation = image -> image.rotate(90);
+    } else if (transformation.equals("Rotate left")) {
+      operation = image -> image.rotate(-90);
     } else if (transformation.equals("Brighten")) {
       boolean brightnessValid = false;
       while (!brightnessValid) {
         try {
-          this.model.changeBrightness(Integer.parseInt(this.view.brightenImageDialog()));
-          this.view.displayHistogram(new Histogram(this.model));
-          this.image = this.model.createImage();
-          this.view.displayBufferedImage(this.image);
+          int brightness = Integer.parseInt(this.view.brightenImageDialog());
+          operation = image -> image.changeBrightness(brightness);
           brightnessValid = true;
         } catch (Exception e) {
           this.view.displayErrorMessage(e.getMessage());
         }
       }
     } else if (transformation.equals("Grayscale value")) {
-      this.model.visualiseImageValue();
-      this.view.displayHistogram(new Histogram(this.model));
-      this.image = this.model.createImage();
-      this.view.displayBufferedImage(this.image);
+      operation = Image::visualiseImageValue;
     } else if (transformation.equals("Grayscale red")) {
-      this.model.createGrayScaleRed();
-      this.view.displayHistogram(new Histogram(this.model));
-      this.image = this.model.createImage();
-      this.view.displayBufferedImage(this.image);
+      operation = Image::createGrayScaleRed;
     } else if (transformation.equals("Grayscale green")) {
-      this.model.createGrayScaleGreen();
-      this.view.displayHistogram(new Histogram(this.model));
-      this.image = this.model.createImage();
-      this.view.displayBufferedImage(this.image);
+      operation = Image::createGrayScaleGreen;
     } else if (transformation.equals("Grayscale blue")) {
-      this.model.createGrayScaleBlue();
-      this.view.displayHistogram(new Histogram(this.model));
-      this.image = this.model.createImage();
-      this.view.displayBufferedImage(this.image);
+      operation = Image::createGrayScaleBlue;
     } else if (transformation.equals("Intensity")) {
-      this.model.visualiseImageIntensity();
-      this.view.displayHistogram(new Histogram(this.model));
-      this.image = this.model.createImage();
-      this.view.displayBufferedImage(this.image);
+      operation = Image::visualiseImageIntensity;
     } else if (transformation.equals("Luma")) {
-      this.model.visualiseImageLuma();
-      this.view.displayHistogram(new Histogram(this.model));
-      this.image = this.model.createImage();
-      this.view.displayBufferedImage(this.image);
+      operation = Image::visualiseImageLuma;
     } else if (transformation.equals("Sepia")) {
-      this.model.createSepia();
-      this.view.displayHistogram(new Histogram(this.model));
-      this.image = this.model.createImage();
-      this.view.displayBufferedImage(this.image);
+      operation = Image::createSepia;
     } else if (transformation.equals("Grayscale")) {
-      this.model.createGrayScale();
-      this.view.displayHistogram(new Histogram(this.model));
-      this.image = this.model.createImage();
-      this.view.displayBufferedImage(this.image);
+      operation = Image::createGrayScale;
     } else if (transformation.equals("Blur")) {
-      this.model.blurImage();
-      this.view.displayHistogram(new Histogram(this.model));
-      this.image = this.model.createImage();
-      this.view.displayBufferedImage(this.image);
+      operation = Image::blurImage;
     } else if (transformation.equals("Sharpen")) {
-      this.model.sharpenImage();
-      this.view.displayHistogram(new Histogram(this.model));
-      this.image = this.model.createImage();
-      this.view.displayBufferedImage(this.image);
+      operation = Image::sharpenImage;
     } else if (transformation.equals("Down size")) {
       boolean widthValid = false;
       while (!widthValid) {
         try {
-          this.model.downSize(Integer.parseInt(this.view.downSizeDialogWidth()),
-                  Integer.parseInt(this.view.downSizeDialogHeight()));
-          this.view.displayHistogram(new Histogram(this.model));
-          this.image = this.model.createImage();
-          this.view.displayBufferedImage(this.image);
+          int width = Integer.parseInt(this.view.downSizeDialogWidth());
+          int height = Integer.parseInt(this.view.downSizeDialogHeight());
+          operation = image -> image.downSize(width, height);
+          size = new int[] {width + 1, height + 1};
           widthValid = true;
         } catch (Exception e) {
           this.view.displayErrorMessage(e.getMessage());
         }
       }
     }
+
+    if (operation == null) {
+      return;
+    }
+    Transformation next = new Transformation(transformation, operation, 1);
+    next.selfInverse = transformation.endsWith("flip");
+    preview(next, size);
+    if (this.running == null) {
+      apply(next);
+    } else {
+      // only the latest transformation waits, so choosing quickly does not pile up work.
+      this.pending = next;
+    }
+  }
+
+  // shows the transformation straight away, applied to a screen-sized proxy of the image it will
+  // be applied to, until the full image is transformed. Down sizing is previewed by showing the
+  // proxy at the new size.
+  private void preview(Transformation transformation, int[] size) {
+    Image base;
+    int width;
+    int height;
+    if (this.running == null) {
+      if (this.proxy == null) {
+        this.proxy = proxyOf(this.image);
+      }
+      base = this.proxy;
+      width = this.model.getWidth();
+      height = this.model.getHeight();
+    } else {
+      base = this.running.proxy;
+      width = this.running.width;
+      height = this.running.height;
+    }
+
+    Image proxy = base.createCopy();
+    if (size == null) {
+      transformation.operation.accept(proxy);
+      if (proxy.getWidth() != base.getWidth() || proxy.getHeight() != base.getHeight()) {
+        // turned a quarter, and so is the image.
+        int turned = width;
+        width = height;
+        height = turned;
+      }
+    } else {
+      width = size[0];
+      height = size[1];
+    }
+    transformation.proxy = proxy;
+    transformation.width = width;
+    transformation.height = height;
+    transformation.preview = proxy.createImage();
+    this.view.displayPreview(transformation.preview, width, height);
   }
 
+  // a copy of the image scaled down to fit on the screen, or the image itself if it fits.
+  private static Image proxyOf(BufferedImage image) {
+    Dimension screen = GraphicsEnvironment.isHeadless() ? new Dimension(1920, 1080)
+            : Toolkit.getDefaultToolkit().getScreenSize();
+    double scale = Math.min(1, Math.min((double) screen.width / image.getWidth(),
+            (double) screen.height / image.getHeight()));
+    int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+    int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+    BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = scaled.createGraphics();
+    g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+            RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+    g.drawImage(image, 0, 0, width, height, null);
+    g.dispose();
+
+    int[] rgb = scaled.getRGB(0, 0, width, height, null, 0, width);
+    Pixel[][] pixels = new Pixel[height][width];
+    for (int i = 0, pos = 0; i < height; i++) {
+      for (int j = 0; j < width; j++, pos++) {
+        pixels[i][j] = new Pixel((rgb[pos] >> 16) & 0xFF, (rgb[pos] >> 8) & 0xFF, rgb[pos] & 0xFF);
+      }
+    }
+    return new ImageOther(width, height, 255, pixels);
+  }
+
+  // starts applying a transformation to the current image.
+  private void apply(Transformation transformation) {
+    this.running = transformation;
+    if (transformation.source == null) {
+      transformation.source = this.model;
+    }
+    transformation.addPropertyChangeListener(e -> {
+      if (e.getPropertyName().equals("progress") && this.running == transformation) {
+        this.view.displayProgress((Integer) e.getNewValue());
+      }
+    });
+    this.view.showProgress(transformation.name);
+    this.view.displayPreview(transformation.preview, transformation.width,
+            transformation.height);
+    transformation.execute();
+  }
+
+  // stops the transformation being applied and forgets the one waiting, keeping the image.
+  private void cancelTransformations() {
+    this.pending = null;
+    if (this.running != null) {
+      this.running.progress.cancel();
+      this.running.cancel(false);
+      this.running = null;
+      this.view.displayBufferedImage(this.image);
+    }
+    this.view.hideProgress();
+  }
+
+  // runs on the event thread once a transformation is done, failed or was cancelled.
+  private void finish(Transformation transformation) {
+    if (this.running != transformation) {
+      // cancelled, or replaced by another image in the meantime.
+      return;
+    }
+    this.running = null;
+    try {
+      Edit edit = transformation.get();
+      this.model = edit.image;
+      this.proxy = edit.proxy;
+      if (transformation.state < 0) {
+        this.history.record(transformation.name, transformation.operation,
+                transformation.selfInverse, edit.image, edit.preview);
+      } else {
+        this.history.moveTo(transformation.state, edit.image);
+      }
+      this.view.displayHistory(this.history.canUndo(), this.history.canRedo());
+      this.image = edit.buffered;
+      this.view.displayBufferedImage(this.image);
+      showHistogram();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      this.view.displayBufferedImage(this.image);
+      this.view.displayErrorMessage(e.getCause().getMessage());
+      if (transformation.name.equals("Down size") && this.pending == null) {
+        // asked again, as the size given was not valid for the image.
+        this.view.hideProgress();
+        chooseTransformation(transformation.name);
+        return;
+      }
+    }
+
+    if (this.pending != null) {
+      Transformation next = this.pending;
+      this.pending = null;
+      apply(next);
+    } else {
+      this.view.hideProgress();
+    }
+  }
+
+  // computes the histogram of the current image in the background, so that it never delays
+  // showing the image, and shows it once done unless the image has changed in the meantime.
+  private void showHistogram() {
+    if (this.histogram != null) {
+      this.histogram.cancel();
+    }
+    Image image = this.model;
+    Progress progress = new Progress(1, null);
+    this.histogram = progress;
+    new SwingWorker<Histogram, Void>() {
+      @Override
+      protected Histogram doInBackground() {
+        Histogram[] histogram = new Histogram[1];
+        progress.follow(() -> histogram[0] = new Histogram(image));
+        return histogram[0];
+      }
+
+      @Override
+      protected void done() {
+        if (progress.isCancelled() || model != image) {
+          return;
+        }
+        try {
+          view.displayHistogram(get());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+          view.displayErrorMessage(e.getCause().getMessage());
+        }
+      }
+    }.execute();
+  }
+
+  // undoes the transformation being applied, or else the last one applied.
+  private void undo() {
+    if (this.running != null || this.pending != null) {
+      cancelTransformations();
+    } else if (this.history.canUndo()) {
+      restore(this.history.getCurrent() - 1);
+    }
+  }
+
+  private void redo() {
+    if (this.running == null && this.pending == null && this.history.canRedo()) {
+      restore(this.history.getCurrent() + 1);
+    }
+  }
+
+  // goes back or forward to a state of the history, showing its preview straight away and
+  // rebuilding it in the background if its image was not kept.
+  private void restore(int index) {
+    EditHistory.Rebuild rebuild = this.history.rebuild(index);
+    List<Consumer<Image>> edits = rebuild.getEdits();
+    Transformation restoring = new Transformation(index < this.history.getCurrent() ? "Undo"
+            : "Redo", image -> edits.forEach(edit -> edit.accept(image)),
+            Math.max(edits.size(), 1));
+    restoring.state = index;
+    restoring.source = rebuild.getStart();
+    restoring.preview = this.history.previewOf(index);
+    restoring.proxy = proxyOf(restoring.preview);
+    restoring.width = this.history.widthOf(index);
+    restoring.height = this.history.heightOf(index);
+    apply(restoring);
+  }
 
   /**
    * determines what is supposed to be happening based on the user's actions in the GUI.
@@ -147,36 +352,24 @@ public class GuiController implements ActionListener, IGuiController {
   public void actionPerformed(ActionEvent e) {
     switch (e.getActionCommand()) {
       case "Open file button": {
+        cancelTransformations();
         boolean correctFile = false;
         while (!correctFile) {
           try {
             this.view.initializeOpenFileButton();
-            String[] stringList = this.view.getImageName().split("/");
-            String[] stringList2 = stringList[stringList.length - 1].split("\\.");
-
-            if (stringList2[stringList2.length - 1].equals("ppm")) {
-              ImageReader reader = new ImageReaderGen();
-              reader.readPPM(this.view.getImageName());
-              this.model = new ImagePPM(reader);
-              this.model.loadImage();
-              this.image = this.model.createImage();
-              this.view.displayBufferedImage(this.image);
-            }
-            if (stringList2[stringList2.length - 1].equals("png")
-                    || stringList2[stringList2.length - 1].equals("bmp")
-                    || stringList2[stringList2.length - 1].equals("jpg")) {
-              ImageReader reader = new ImageReaderGen();
-              reader.readOther(this.view.getImageName());
-              this.model = new ImageOther(reader);
-              this.model.loadImage();
-              this.image = this.model.createImage();
-            }
+            this.model = CodecRegistry.getInstance().load(this.view.getImageName());
+            this.image = this.model.createImage();
+            this.view.displayBufferedImage(this.image);
             correctFile = true;
           } catch (Exception e2) {
             this.view.displayErrorMessage("Cannot open this file format! Please " +
-                    "open a file of type ppm, png, bmp or jpg.");
+                    "open a file of type " + CodecRegistry.getInstance().listExtensions() + ".");
           }
         }
+        this.proxy = proxyOf(this.image);
+        this.history.reset(this.model, this.proxy.createImage());
+        this.view.displayHistory(false, false);
+        showHistogram();
       }
       break;
 
@@ -187,36 +380,32 @@ public class GuiController implements ActionListener, IGuiController {
         }
         break;
 
+      case "Cancel transformation":
+        cancelTransformations();
+        break;
+
+      case "Undo":
+        undo();
+        break;
+
+      case "Redo":
+        redo();
+        break;
+
       case "Save file": {
         boolean correctExtension = false;
         this.view.saveFileButtonOnPress();
         while (!correctExtension) {
           try {
-            ImageWriter writer = new ImageWriterGen(this.model);
-            String extension = "";
-            String[] splitDirectory;
-            String[] splitDirectory2;
-            try {
-              splitDirectory = this.view.getImageName().split("/");
-              splitDirectory2 = splitDirectory[splitDirectory.length - 1].split("\\.");
-              extension = splitDirectory2[splitDirectory2.length - 1];
-            } catch (Exception e2) {
-              throw new IllegalArgumentException("Cannot save this file format! Please " +
-                      "save a file of type ppm, png, bmp or jpg.");
-            }
-            if (!(extension.equals("ppm") || extension.equals("png")
-                    || extension.equals("bmp") || extension.equals("jpg"))) {
+            ImageCodec codec = CodecRegistry.getInstance()
+                    .forExtension(CodecRegistry.extensionOf(this.view.getImageName()));
+            if (codec == null) {
               throw new IllegalArgumentException("Cannot save this file format! Please " +
-                      "save a file of type ppm, png, bmp or jpg.");
-            }
-
-            if (extension.equals("ppm")) {
-              writer.writeImagePPM(view.getSaveImageName());
-              correctExtension = true;
-            } else {
-              writer.writeImageOther(view.getSaveImageName(), extension);
-              correctExtension = true;
+                      "save a file of type " + CodecRegistry.getInstance().listExtensions()
+                      + ".");
             }
+            codec.encode(this.model, view.getSaveImageName());
+            correctExtension = true;
           } catch (Exception e2) {
             this.view.displayErrorMessage(e2.getMessage());
             this.view.saveFileButtonOnPress();
@@ -244,4 +433,64 @@ public class GuiController implements ActionListener, IGuiController {
   public void start() {
     this.view.display();
   }
+
+  /**
+   * A transformation applied to a copy of the current image on a background thread, along with
+   * the buffered image and the proxy of the result.
+   */
+  private class Transformation extends SwingWorker<Edit, Void> {
+    private final String name;
+    private final Consumer<Image> operation;
+    private final Progress progress;
+    private Image source;
+    // the state of the history the transformation goes back or forward to, or -1 for an edit.
+    private int state = -1;
+    private boolean selfInverse;
+    // the transformation applied to the proxy, and the size of the transformed image.
+    private Image proxy;
+    private BufferedImage preview;
+    private int width;
+    private int height;
+
+    private Transformation(String name, Consumer<Image> operation, int passes) {
+      this.name = name;
+      this.operation = operation;
+      this.progress = new Progress(passes + PASSES, this::setProgress);
+    }
+
+    @Override
+    protected Edit doInBackground() {
+      Image copy = this.source.createCopy();
+      Edit[] edit = new Edit[1];
+      this.progress.follow(() -> {
+        this.operation.accept(copy);
+        BufferedImage buffered = copy.createImage();
+        Image proxy = proxyOf(buffered);
+        edit[0] = new Edit(copy, buffered, proxy, proxy.createImage());
+      });
+      return edit[0];
+    }
+
+    @Override
+    protected void done() {
+      finish(this);
+    }
+  }
+
+  /**
+   * The result of a transformation.
+   */
+  private static class Edit {
+    private final Image image;
+    private final BufferedImage buffered;
+    private final Image proxy;
+    private final BufferedImage preview;
+
+    private Edit(Image image, BufferedImage buffered, Image proxy, BufferedImage preview) {
+      this.image = image;
+      this.buffered = buffered;
+      this.proxy = proxy;
+      this.preview = preview;
+    }
+  }
 }
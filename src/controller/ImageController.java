@@ -1,12 +1,19 @@
 package controller;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.function.Supplier;
 
 import commands.BlueComponent;
 import commands.Blur;
 import commands.Brighten;
 import commands.Command;
+import commands.Crop;
 import commands.GrayScale;
 import commands.GreenComponent;
 import commands.HorizontalFlip;
@@ -24,11 +31,14 @@ import commands.PartialSepia;
 import commands.PartialSharpen;
 import commands.PartialValue;
 import commands.RedComponent;
+import commands.Rotate;
 import commands.Save;
+import commands.Scale;
 import commands.Sepia;
 import commands.Sharpen;
 import commands.ValueComponent;
 import commands.VerticalFlip;
+import controller.ScriptCommand.Argument;
 import model.Image;
 import view.ImageView;
 
@@ -37,12 +47,20 @@ import view.ImageView;
  * commands.
  */
 public class ImageController implements ControllerInterface {
+  // the commands that only compose a transform onto the image they read.
+  private static final Set<String> COMPOSED = Set.of("vertical-flip", "horizontal-flip",
+          "rotate", "scale", "crop");
 
-  private HashMap<String, Image> images;
+  private NamedImages images;
   private ImageView view;
   private Readable input;
+  private boolean script;
 
-  private HashMap<String, Command> knownCommands;
+  private HashMap<String, Supplier<Command>> knownCommands;
+  private HashMap<String, Argument[]> signatures;
+  private ResultCache resultCache;
+  private final WriteBehind writeBehind = new WriteBehind();
+  private CommandListener listener = CommandMetrics.getInstance();
 
   /**
    * Constructor for the controller.
@@ -51,13 +69,41 @@ public class ImageController implements ControllerInterface {
    * @param input represents the input that will be used to decide which commands to execute.
    */
   public ImageController(ImageView view, Readable input) {
-    if (view == null || input == null) {
+    this(view, input, false);
+  }
+
+  /**
+   * Constructor for the controller that can read its input as a whole script. A script is read
+   * completely before anything is executed, so that commands which do not depend on each other
+   * can be executed at the same time.
+   *
+   * @param view   represents the view that will be used to render messages to the user.
+   * @param input  represents the input that will be used to decide which commands to execute.
+   * @param script true if the input is a script file, false if it is an interactive session.
+   */
+  public ImageController(ImageView view, Readable input, boolean script) {
+    this(new ImageStore(), view, input, script);
+  }
+
+  /**
+   * Constructor for the controller that keeps its images in the given store, such as an image
+   * store with a budget of its own.
+   *
+   * @param images the store of the images that the controller will execute operations on.
+   * @param view   represents the view that will be used to render messages to the user.
+   * @param input  represents the input that will be used to decide which commands to execute.
+   * @param script true if the input is a script file, false if it is an interactive session.
+   */
+  public ImageController(NamedImages images, ImageView view, Readable input, boolean script) {
+    if (images == null || view == null || input == null) {
       throw new IllegalArgumentException("Fields cannot be null.");
     }
     this.view = view;
-    this.images = new HashMap<>();
+    this.images = images;
     this.input = input;
-    this.knownCommands = new HashMap<String, Command>();
+    this.script = script;
+    this.knownCommands = new HashMap<String, Supplier<Command>>();
+    this.signatures = new HashMap<String, Argument[]>();
     addCommands();
   }
 
@@ -71,64 +117,152 @@ public class ImageController implements ControllerInterface {
    * @param input represents the input that will be used to decide which commands to execute.
    */
   public ImageController(HashMap<String, Image> map, ImageView view, Readable input) {
-    if (view == null || input == null) {
-      throw new IllegalArgumentException("Fields cannot be null.");
-    }
-    this.images = map;
-    this.view = view;
-    this.input = input;
-    this.knownCommands = new HashMap<String, Command>();
-    addCommands();
+    this(NamedImages.of(map), view, input, false);
   }
 
 
   private void addCommands() {
     // load and save
-    this.knownCommands.put("load", new Load());
-    this.knownCommands.put("save", new Save());
+    addCommand("load", Load::new, Argument.FileIn, Argument.Write);
+    addCommand("save", Save::new, Argument.FileOut, Argument.Read);
 
     // brighten
-    this.knownCommands.put("brighten", new Brighten());
+    addCommand("brighten", Brighten::new, Argument.Param, Argument.Read, Argument.Write);
 
     // components
 
     // brightness
-    this.knownCommands.put("intensity-component", new IntensityComponent());
-    this.knownCommands.put("luma-component", new LumaComponent());
-    this.knownCommands.put("value-component", new ValueComponent());
+    addSimpleCommand("intensity-component", IntensityComponent::new);
+    addSimpleCommand("luma-component", LumaComponent::new);
+    addSimpleCommand("value-component", ValueComponent::new);
 
     // channels
-    this.knownCommands.put("red-component", new RedComponent());
-    this.knownCommands.put("green-component", new GreenComponent());
-    this.knownCommands.put("blue-component", new BlueComponent());
+    addSimpleCommand("red-component", RedComponent::new);
+    addSimpleCommand("green-component", GreenComponent::new);
+    addSimpleCommand("blue-component", BlueComponent::new);
 
     // flips
-    this.knownCommands.put("vertical-flip", new VerticalFlip());
-    this.knownCommands.put("horizontal-flip", new HorizontalFlip());
+    addSimpleCommand("vertical-flip", VerticalFlip::new);
+    addSimpleCommand("horizontal-flip", HorizontalFlip::new);
+
+    // rotations and scaling, composed and resampled once
+    addCommand("rotate", Rotate::new, Argument.Param, Argument.Read, Argument.Write);
+    addCommand("scale", Scale::new, Argument.Param, Argument.Read, Argument.Write);
+
+    // regions, which share the pixels of the image they are cut from
+    addCommand("crop", Crop::new, Argument.Param, Argument.Param, Argument.Param,
+            Argument.Param, Argument.Read, Argument.Write);
 
     //sharpen and blur
-    this.knownCommands.put("sharpen", new Sharpen());
-    this.knownCommands.put("blur", new Blur());
+    addSimpleCommand("sharpen", Sharpen::new);
+    addSimpleCommand("blur", Blur::new);
 
     // sepia and grayscale
-    this.knownCommands.put("sepia", new Sepia());
-    this.knownCommands.put("grayscale", new GrayScale());
+    addSimpleCommand("sepia", Sepia::new);
+    addSimpleCommand("grayscale", GrayScale::new);
 
 
     // partial commands
-    this.knownCommands.put("partialSepia", new PartialSepia());
-    this.knownCommands.put("partialGrayscale", new PartialGrayScale());
-    this.knownCommands.put("partialBlur", new PartialBlur());
-    this.knownCommands.put("partialSharpen", new PartialSharpen());
+    addPartialCommand("partialSepia", PartialSepia::new);
+    addPartialCommand("partialGrayscale", PartialGrayScale::new);
+    addPartialCommand("partialBlur", PartialBlur::new);
+    addPartialCommand("partialSharpen", PartialSharpen::new);
+
+    addPartialCommand("partialRedComponent", PartialRedComponent::new);
+    addPartialCommand("partialGreenComponent", PartialGreenComponent::new);
+    addPartialCommand("partialBlueComponent", PartialBlueComponent::new);
 
-    this.knownCommands.put("partialRedComponent", new PartialRedComponent());
-    this.knownCommands.put("partialGreenComponent", new PartialGreenComponent());
-    this.knownCommands.put("partialBlueComponent", new PartialBlueComponent());
+    addPartialCommand("partialIntensity", PartialIntensity::new);
+    addPartialCommand("partialValue", PartialValue::new);
+    addPartialCommand("partialLuma", PartialLuma::new);
 
-    this.knownCommands.put("partialIntensity", new PartialIntensity());
-    this.knownCommands.put("partialValue", new PartialValue());
-    this.knownCommands.put("partialLuma", new PartialLuma());
+    // describing the plan of a script
+    addCommand("explain", () -> new Explain(new ScriptParser(this.signatures),
+            new ScriptPlanner()), Argument.FileIn);
 
+    // showing how the time of the program was spent
+    addCommand("stats", () -> new Stats(CommandMetrics.getInstance(), this.resultCache,
+            this.images));
+  }
+
+  // a command that reads one image and stores the result under a new name.
+  private void addSimpleCommand(String name, Supplier<Command> command) {
+    addCommand(name, command, Argument.Read, Argument.Write);
+  }
+
+  // a command that reads an image and a clipping mask and stores the result under a new name.
+  private void addPartialCommand(String name, Supplier<Command> command) {
+    addCommand(name, command, Argument.Read, Argument.Read, Argument.Write);
+  }
+
+  private void addCommand(String name, Supplier<Command> command, Argument... signature) {
+    this.knownCommands.put(name, () -> timed(name, writtenBehind(name,
+            cached(name, command.get(), signature), signature), signature));
+    this.signatures.put(name, signature);
+  }
+
+  // commands that store a single image look their result up in the result cache, if there is one.
+  // Flips, rotations, scaling and crops only compose a transform that a later command resamples
+  // once, and a cached result would be resampled already, so they are left out.
+  private Command cached(String name, Command command, Argument[] signature) {
+    int outputs = 0;
+    for (Argument argument : signature) {
+      if (argument == Argument.Write) {
+        outputs++;
+      }
+    }
+    if (this.resultCache == null || outputs != 1 || COMPOSED.contains(name)) {
+      return command;
+    }
+    return new CachedCommand(name, signature, command, this.resultCache);
+  }
+
+  // every command is measured if there is a listener.
+  private Command timed(String name, Command command, Argument[] signature) {
+    if (this.listener == null) {
+      return command;
+    }
+    return new TimedCommand(name, signature, command, this.listener);
+  }
+
+  // commands that read or write files wait for, or leave their writes to, the write-behind queue.
+  private Command writtenBehind(String name, Command command, Argument[] signature) {
+    for (Argument argument : signature) {
+      if (argument == Argument.FileIn || argument == Argument.FileOut) {
+        return new WriteBehindCommand(name, signature, command, this.writeBehind,
+                this.listener);
+      }
+    }
+    return command;
+  }
+
+  /**
+   * Makes the controller report every command it executes to the given listener, with the time
+   * it took and the bytes it allocated, instead of to the measurements shown by the stats command.
+   *
+   * @param listener the listener to be told about every command, or null to stop measuring.
+   */
+  public void useCommandListener(CommandListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Gets the role of each argument of every command the controller knows.
+   *
+   * @return the signatures of the commands, by name.
+   */
+  Map<String, Argument[]> getSignatures() {
+    return Collections.unmodifiableMap(this.signatures);
+  }
+
+  /**
+   * Makes the controller look up the results of its commands in the given cache before
+   * computing them, and store the results it computes into it.
+   *
+   * @param cache the cache to be used, or null to stop using a cache.
+   */
+  public void useResultCache(ResultCache cache) {
+    this.resultCache = cache;
   }
 
 
@@ -136,6 +270,11 @@ public class ImageController implements ControllerInterface {
    * Runs the controller. The controller will now execute commands based on inputs when running.
    */
   public void runProgram() {
+    if (this.script) {
+      runScript();
+      return;
+    }
+
     Scanner sc = new Scanner(this.input);
 
     while (sc.hasNext()) {
@@ -153,16 +292,47 @@ public class ImageController implements ControllerInterface {
         break;
       }
 
-      Command command = knownCommands.getOrDefault(userInput, null);
+      Supplier<Command> command = knownCommands.getOrDefault(userInput, null);
       if (command == null) {
         this.sendMessage("Invalid command, please enter again: ");
       } else {
-        executeCommand(command, sc);
+        executeCommand(userInput, command.get(), sc);
       }
     }
+    finishWrites();
+    closeStore();
+    reportResultCache();
     sendMessage("Program has been quit.");
   }
 
+  private void runScript() {
+    List<ScriptCommand> commands = new ScriptParser(this.signatures).parse(this.input);
+    List<ScriptCommand> plan = new ScriptPlanner().plan(commands);
+    new ScriptScheduler(this.knownCommands, this.view, this.images).run(plan);
+    finishWrites();
+    closeStore();
+    reportResultCache();
+    sendMessage("Program has been quit.");
+  }
+
+  // waits for the images still being saved, and reports the ones that could not be.
+  private void finishWrites() {
+    for (String error : this.writeBehind.awaitAll()) {
+      sendMessage(error + "\n");
+    }
+  }
+
+  // deletes the spill file of the image store, as no image is read once the program has quit.
+  private void closeStore() {
+    this.images.close();
+  }
+
+  private void reportResultCache() {
+    if (this.resultCache != null) {
+      sendMessage(this.resultCache + "\n");
+    }
+  }
+
   /**
    * Sends a message to view. If the message was unable to be sent relays this information
    * to the user.
@@ -177,11 +347,30 @@ public class ImageController implements ControllerInterface {
     }
   }
 
-  private void executeCommand(Command command, Scanner sc) {
+  // the command is given a hashmap of its own with the images it reads, and the images it stores
+  // in it are put back, as in a script.
+  private void executeCommand(String name, Command command, Scanner sc) {
+    Argument[] signature = this.signatures.get(name);
+    List<String> arguments = new ArrayList<>();
+    for (int i = 0; i < signature.length && sc.hasNext(); i++) {
+      arguments.add(sc.next());
+    }
+    ScriptCommand parsed = new ScriptCommand(0, name, signature, arguments);
+    HashMap<String, Image> local = new HashMap<>();
+    for (String read : parsed.reads()) {
+      if (this.images.contains(read)) {
+        local.put(read, this.images.get(read));
+      }
+    }
     try {
-      command.execute(sc, this.view, this.images);
+      command.execute(parsed.scanner(), this.view, local);
     } catch (Exception e) {
       System.out.println(e.getMessage());
     }
+    for (String written : parsed.writes()) {
+      if (local.containsKey(written)) {
+        this.images.put(written, local.get(written));
+      }
+    }
   }
 }
\ No newline at end of file
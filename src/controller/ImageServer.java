@@ -0,0 +1,275 @@
+package controller;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.imageio.ImageIO;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import model.CodecEvent;
+import model.CodecRegistry;
+import model.Image;
+import model.ImageCodec;
+import view.ImageView;
+
+/**
+ * Runs the program as a local HTTP service, so that many images can be processed by one running
+ * program instead of starting the program once for every image. An image is processed by posting
+ * it to /process, with the commands to apply to it in the commands parameter of the address:
+ *
+ * <pre>
+ * curl --data-binary @photo.png \
+ *     "http://localhost:8080/process?commands=sepia%20image%20image&amp;format=png"
+ * </pre>
+ *
+ * <p>The posted image (ppm, pgm, pbm, png, jpg or bmp) is decoded by the codec that recognises
+ * its first bytes and stored under the name "image", the commands are executed one after the
+ * other exactly as in the console (separated by new lines or semicolons), and the image named by
+ * the result parameter ("image" by default) is sent back in the format named by the format
+ * parameter ("png" by default). Every request has its own images, and requests are handled at
+ * the same time on separate threads. Commands that read or write files are not allowed.
+ */
+public class ImageServer implements ControllerInterface {
+  private final int port;
+  private final ImageView view;
+  private ResultCache resultCache;
+  private HttpServer server;
+  private ExecutorService executor;
+
+  /**
+   * Constructor for the server.
+   *
+   * @param port the port on the local machine to listen on.
+   * @param view represents the view that will be used to render messages to the user.
+   */
+  public ImageServer(int port, ImageView view) {
+    if (view == null) {
+      throw new IllegalArgumentException("Fields cannot be null.");
+    }
+    if (port < 0 || port > 65535) {
+      throw new IllegalArgumentException("The port must be between 0 and 65535.");
+    }
+    this.port = port;
+    this.view = view;
+  }
+
+  /**
+   * Makes the server look up the results of its commands in the given cache before computing
+   * them, and store the results it computes into it. The cache is shared by all requests.
+   *
+   * @param cache the cache to be used, or null to stop using a cache.
+   */
+  public void useResultCache(ResultCache cache) {
+    this.resultCache = cache;
+  }
+
+  /**
+   * Starts the server. Requests are handled until the server is stopped.
+   */
+  @Override
+  public void runProgram() {
+    try {
+      this.server = HttpServer.create(
+              new InetSocketAddress(InetAddress.getLoopbackAddress(), this.port), 0);
+    } catch (IOException e) {
+      sendMessage("The server could not listen on port " + this.port + ": " + e.getMessage()
+              + "\n");
+      return;
+    }
+    // a thread for every request being handled.
+    this.executor = Executors.newCachedThreadPool();
+    this.server.setExecutor(this.executor);
+    this.server.createContext("/process", this::handle);
+    this.server.start();
+    sendMessage("Listening on http://localhost:" + getPort() + "/process\n");
+  }
+
+  /**
+   * Gets the port the server listens on.
+   *
+   * @return the port of the server.
+   */
+  public int getPort() {
+    return this.server == null ? this.port : this.server.getAddress().getPort();
+  }
+
+  /**
+   * Stops the server, waiting for at most the given number of seconds for the requests being
+   * handled to finish.
+   *
+   * @param delay the number of seconds to wait.
+   */
+  public void stop(int delay) {
+    if (this.server != null) {
+      this.server.stop(delay);
+      this.executor.shutdown();
+      this.server = null;
+    }
+  }
+
+  /**
+   * Sends a message to view. If the message was unable to be sent relays this information
+   * to the user.
+   *
+   * @param message the message to be sent.
+   */
+  @Override
+  public void sendMessage(String message) {
+    try {
+      this.view.renderMessage(message);
+    } catch (Exception e) {
+      System.out.println("A message was unable to be rendered");
+    }
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      if (!exchange.getRequestMethod().equalsIgnoreCase("POST")) {
+        respond(exchange, 405, "Images must be posted.\n");
+        return;
+      }
+
+      Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+      String commands = query.getOrDefault("commands", "").replace(';', '\n');
+      String result = query.getOrDefault("result", "image");
+      String format = query.getOrDefault("format", "png").toLowerCase();
+      if (CodecRegistry.getInstance().forExtension(format) == null
+              && !ImageIO.getImageWritersByFormatName(format).hasNext()) {
+        respond(exchange, 400, "Images cannot be written as " + format + ".\n");
+        return;
+      }
+
+      HashMap<String, Image> images = new HashMap<>();
+      StringBuilder messages = new StringBuilder();
+      ImageController controller = new ImageController(images, new ImageView(messages),
+              new StringReader(commands));
+      controller.useResultCache(this.resultCache);
+      String error = check(new ScriptParser(controller.getSignatures())
+              .parse(new StringReader(commands)));
+      if (error != null) {
+        respond(exchange, 400, error);
+        return;
+      }
+
+      CodecEvent decoding = CodecEvent.start();
+      BufferedInputStream body = new BufferedInputStream(exchange.getRequestBody(), 1 << 16);
+      ImageCodec decoder = codecOf(body);
+      Image image;
+      try {
+        // decoded while it is received, without holding the whole request in memory.
+        image = decoder.decode(body);
+      } catch (RuntimeException e) {
+        respond(exchange, 400, "The posted image could not be read.\n");
+        return;
+      }
+      decoding.finish("decode", "request", decoder.getFormat(), image.getWidth(),
+              image.getHeight(), -1);
+      images.put("image", image);
+      controller.runProgram();
+
+      Image output = images.get(result);
+      if (output == null) {
+        respond(exchange, 422, messages.toString());
+        return;
+      }
+      exchange.getResponseHeaders().set("Content-Type", contentType(format));
+      // the length is not known, so the image is sent in chunks as it is encoded.
+      exchange.sendResponseHeaders(200, 0);
+      CodecEvent encoding = CodecEvent.start();
+      try (OutputStream out = exchange.getResponseBody()) {
+        write(output, format, out);
+      }
+      encoding.finish("encode", "response", format, output.getWidth(), output.getHeight(), -1);
+    } catch (Exception e) {
+      // once the image has started to be sent, the request can only be cut short.
+      if (exchange.getResponseCode() == -1) {
+        respond(exchange, 500, "The request failed: " + e.getMessage() + "\n");
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  // an error message if a command is not known or uses files, or null if all can be executed.
+  private String check(List<ScriptCommand> commands) {
+    for (ScriptCommand command : commands) {
+      if (!command.isKnown()) {
+        return "Unknown command " + command.getName() + ".\n";
+      }
+      if (!command.filesRead().isEmpty() || !command.filesWritten().isEmpty()) {
+        return "The command " + command.getName() + " uses files, which is not allowed.\n";
+      }
+    }
+    return null;
+  }
+
+  private Map<String, String> parseQuery(String query) {
+    Map<String, String> parameters = new HashMap<>();
+    if (query == null) {
+      return parameters;
+    }
+    for (String pair : query.split("&")) {
+      int equals = pair.indexOf('=');
+      if (equals > 0) {
+        parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+      }
+    }
+    return parameters;
+  }
+
+  // the codec of the posted image, which recognises its first bytes. They are read again when
+  // the image is decoded.
+  private ImageCodec codecOf(BufferedInputStream in) throws IOException {
+    in.mark(CodecRegistry.HEADER_BYTES);
+    byte[] header = in.readNBytes(CodecRegistry.HEADER_BYTES);
+    in.reset();
+    return CodecRegistry.getInstance().forHeader(header);
+  }
+
+  // encodes the image straight into the response, through the codec of the format if there is
+  // one and through ImageIO otherwise.
+  private void write(Image image, String format, OutputStream out) throws IOException {
+    ImageCodec codec = CodecRegistry.getInstance().forExtension(format);
+    if (codec != null) {
+      codec.encode(image, out);
+      return;
+    }
+    ImageIO.write(image.createImage(), format, out);
+  }
+
+  private String contentType(String format) {
+    switch (format) {
+      case "ppm":
+        return "image/x-portable-pixmap";
+      case "pgm":
+        return "image/x-portable-graymap";
+      case "pbm":
+        return "image/x-portable-bitmap";
+      default:
+        return "image/" + format;
+    }
+  }
+
+  private void respond(HttpExchange exchange, int status, String message) throws IOException {
+    byte[] body = message.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+    exchange.sendResponseHeaders(status, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+}
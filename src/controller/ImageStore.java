@@ -0,0 +1,395 @@
+package controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import model.CacheEvent;
+import model.Image;
+import model.ImageOther;
+import model.ImagePPM;
+import model.Pixel;
+
+/**
+ * Stores the images of the controller by name, within a memory budget. The size of every image
+ * is tracked, and when the images held in memory exceed the budget the least recently used ones
+ * are written to a spill file on disk as raw rgb values, or a byte per pixel for gray images. A
+ * spilled image is read back as soon as it is asked for again, so the images are used alike
+ * wherever they are. The store is not safe for use by several threads at once.
+ */
+public class ImageStore implements NamedImages {
+  private static final String NAME = "image store";
+  private static final int PPM = 0;
+  private static final int OTHER = 1;
+  // added to the kind of a gray image, which is spilled with a single byte per pixel.
+  private static final int GRAY = 2;
+
+  private final long budget;
+  private final HashMap<String, Image> held;
+  // the size of every image held in memory, from the least to the most recently used.
+  private final LinkedHashMap<String, Long> resident;
+  private final HashMap<String, SpillRecord> spilled;
+  private RandomAccessFile spill;
+  private File spillFile;
+  private long spillEnd;
+  private long garbage;
+
+  private long residentBytes;
+  private long hits;
+  private long misses;
+  private long evictions;
+  private long spilledBytes;
+
+  /**
+   * Constructor for an image store whose budget is the imageStoreSize system property in bytes, or
+   * half of the memory available to the program if it is not set.
+   */
+  public ImageStore() {
+    this(Long.getLong("imageStoreSize", Runtime.getRuntime().maxMemory() / 2));
+  }
+
+  /**
+   * Constructor for an image store with the given budget.
+   *
+   * @param budget the number of bytes the images held in memory may take up.
+   */
+  public ImageStore(long budget) {
+    if (budget <= 0) {
+      throw new IllegalArgumentException("The budget must be positive.");
+    }
+    this.budget = budget;
+    this.held = new HashMap<>();
+    this.resident = new LinkedHashMap<>(16, 0.75f, true);
+    this.spilled = new HashMap<>();
+  }
+
+  /**
+   * Gets the image stored under the given name, reading it back from disk if it was spilled.
+   *
+   * @param name the name of the image.
+   * @return the image, or null if there is no image with this name.
+   */
+  @Override
+  public Image get(String name) {
+    if (this.held.containsKey(name)) {
+      this.hits++;
+      CacheEvent.record(NAME, "hit", name, this.resident.get(name));
+      return this.held.get(name);
+    }
+
+    SpillRecord record = this.spilled.get(name);
+    if (record == null) {
+      return null;
+    }
+    this.misses++;
+    CacheEvent event = CacheEvent.start();
+    Image image = reload(record);
+    event.finish(NAME, "reload", name, record.length);
+    this.spilled.remove(name);
+    this.garbage += record.length;
+    release();
+    keep(name, image);
+    return image;
+  }
+
+  @Override
+  public boolean contains(String name) {
+    return this.held.containsKey(name) || this.spilled.containsKey(name);
+  }
+
+  /**
+   * Stores an image under the given name, replacing any image stored under it, and spills the
+   * least recently used images if the budget is exceeded.
+   *
+   * @param name  the name of the image.
+   * @param image the image to be stored.
+   */
+  @Override
+  public void put(String name, Image image) {
+    if (name == null || image == null) {
+      throw new IllegalArgumentException("Fields cannot be null.");
+    }
+    discard(name);
+    keep(name, image);
+  }
+
+  /**
+   * Removes the image stored under the given name, without reading it back if it was spilled.
+   *
+   * @param name the name of the image.
+   */
+  @Override
+  public void remove(String name) {
+    discard(name);
+    release();
+  }
+
+  /**
+   * Gets the number of times an image was found in memory.
+   *
+   * @return the number of hits.
+   */
+  public long getHits() {
+    return this.hits;
+  }
+
+  /**
+   * Gets the number of times an image had to be read back from the spill file.
+   *
+   * @return the number of misses.
+   */
+  public long getMisses() {
+    return this.misses;
+  }
+
+  /**
+   * Gets the number of times an image was spilled to disk.
+   *
+   * @return the number of evictions.
+   */
+  public long getEvictions() {
+    return this.evictions;
+  }
+
+  /**
+   * Gets the total number of bytes written to the spill file.
+   *
+   * @return the number of bytes spilled.
+   */
+  public long getSpilledBytes() {
+    return this.spilledBytes;
+  }
+
+  /**
+   * Gets the number of bytes of the spill file: those of the images spilled, and of the images
+   * read back or removed since the file was last compacted.
+   *
+   * @return the length of the spill file, or 0 if there is none.
+   */
+  public long getSpillFileBytes() {
+    return this.spillEnd;
+  }
+
+  /**
+   * Gets the estimated number of bytes taken up by the images held in memory.
+   *
+   * @return the number of bytes held in memory.
+   */
+  public long getResidentBytes() {
+    return this.residentBytes;
+  }
+
+  /**
+   * Gets the number of bytes the images held in memory may take up.
+   *
+   * @return the budget of this store.
+   */
+  public long getBudget() {
+    return this.budget;
+  }
+
+  /**
+   * Describes the use of this store.
+   *
+   * @return the hits, misses, evictions and bytes of this store.
+   */
+  @Override
+  public String toString() {
+    return "Image store: " + this.hits + " hits, " + this.misses + " misses, "
+            + this.evictions + " evictions, " + this.spilledBytes + " bytes spilled, "
+            + this.residentBytes + " of " + this.budget + " bytes in memory";
+  }
+
+  @Override
+  public String describe() {
+    return toString();
+  }
+
+  /**
+   * Forgets the images spilled to disk and deletes the spill file of this store. The images held
+   * in memory are kept.
+   */
+  @Override
+  public void close() {
+    this.spilled.clear();
+    release();
+  }
+
+  private void keep(String name, Image image) {
+    this.held.put(name, image);
+    long bytes = image.estimateBytes();
+    this.resident.put(name, bytes);
+    this.residentBytes += bytes;
+
+    if (this.residentBytes > this.budget) {
+      List<String> eldest = new ArrayList<>(this.resident.keySet());
+      for (int i = 0; i < eldest.size() && this.residentBytes > this.budget; i++) {
+        if (!eldest.get(i).equals(name)) {
+          spill(eldest.get(i));
+        }
+      }
+    }
+  }
+
+  private void discard(String name) {
+    if (this.held.remove(name) != null) {
+      this.residentBytes -= this.resident.remove(name);
+    }
+    SpillRecord record = this.spilled.remove(name);
+    if (record != null) {
+      this.garbage += record.length;
+    }
+  }
+
+  private void spill(String name) {
+    CacheEvent event = CacheEvent.start();
+    Image image = this.held.remove(name);
+    this.residentBytes -= this.resident.remove(name);
+
+    int width = image.getWidth();
+    int height = image.getHeight();
+    byte[] gray = image.returnGray();
+    byte[] raw = gray;
+    if (gray == null) {
+      Pixel[][] pixels = image.returnPixels();
+      raw = new byte[width * height * 3];
+      for (int i = 0, pos = 0; i < height; i++) {
+        for (int j = 0; j < width; j++) {
+          raw[pos++] = (byte) pixels[i][j].getRed();
+          raw[pos++] = (byte) pixels[i][j].getGreen();
+          raw[pos++] = (byte) pixels[i][j].getBlue();
+        }
+      }
+    }
+
+    try {
+      if (this.spill == null) {
+        this.spillFile = File.createTempFile("images", ".spill");
+        this.spillFile.deleteOnExit();
+        this.spill = new RandomAccessFile(this.spillFile, "rw");
+      }
+      this.spill.seek(this.spillEnd);
+      this.spill.write(raw);
+    } catch (IOException e) {
+      // keep the image in memory rather than lose it.
+      this.held.put(name, image);
+      long bytes = image.estimateBytes();
+      this.resident.put(name, bytes);
+      this.residentBytes += bytes;
+      return;
+    }
+
+    int kind = image instanceof ImagePPM ? PPM : OTHER;
+    this.spilled.put(name, new SpillRecord(this.spillEnd, raw.length, width, height,
+            image.getMaxValue(), gray != null ? kind | GRAY : kind));
+    this.spillEnd += raw.length;
+    this.spilledBytes += raw.length;
+    this.evictions++;
+    event.finish(NAME, "spill", name, raw.length);
+  }
+
+  private Image reload(SpillRecord record) {
+    byte[] raw = new byte[record.length];
+    try {
+      this.spill.seek(record.offset);
+      this.spill.readFully(raw);
+    } catch (IOException e) {
+      throw new IllegalStateException("A spilled image could not be read back: "
+              + e.getMessage());
+    }
+
+    if ((record.kind & GRAY) != 0) {
+      if ((record.kind & ~GRAY) == PPM) {
+        return new ImagePPM(record.width, record.height, record.maxValue, raw);
+      }
+      return new ImageOther(record.width, record.height, record.maxValue, raw);
+    }
+    Pixel[][] pixels = new Pixel[record.height][record.width];
+    for (int i = 0, pos = 0; i < record.height; i++) {
+      for (int j = 0; j < record.width; j++, pos += 3) {
+        pixels[i][j] = new Pixel(raw[pos] & 0xFF, raw[pos + 1] & 0xFF, raw[pos + 2] & 0xFF);
+      }
+    }
+    if (record.kind == PPM) {
+      return new ImagePPM(record.width, record.height, record.maxValue, pixels);
+    }
+    return new ImageOther(record.width, record.height, record.maxValue, pixels);
+  }
+
+  // gives back the space of images that are no longer spilled, deleting the spill file when
+  // nothing is spilled any more.
+  private void release() {
+    if (this.spill == null) {
+      return;
+    }
+    if (this.spilled.isEmpty()) {
+      try {
+        this.spill.close();
+      } catch (IOException e) {
+        // nothing useful can be done, the file is deleted below either way.
+      }
+      this.spillFile.delete();
+      this.spill = null;
+      this.spillEnd = 0;
+      this.garbage = 0;
+    } else if (this.garbage > this.spillEnd / 2) {
+      compact();
+    }
+  }
+
+  // moves every record down over the space of released ones, in the order they are stored so
+  // that no record is overwritten before it has been moved.
+  private void compact() {
+    List<Map.Entry<String, SpillRecord>> records = new ArrayList<>(this.spilled.entrySet());
+    records.sort(Comparator.comparingLong(entry -> entry.getValue().offset));
+    long end = 0;
+    try {
+      for (Map.Entry<String, SpillRecord> entry : records) {
+        SpillRecord record = entry.getValue();
+        if (record.offset != end) {
+          byte[] raw = new byte[record.length];
+          this.spill.seek(record.offset);
+          this.spill.readFully(raw);
+          this.spill.seek(end);
+          this.spill.write(raw);
+          entry.setValue(new SpillRecord(end, record.length, record.width, record.height,
+                  record.maxValue, record.kind));
+        }
+        end += record.length;
+      }
+      this.spill.setLength(end);
+    } catch (IOException e) {
+      return;
+    }
+    this.spillEnd = end;
+    this.garbage = 0;
+  }
+
+  /**
+   * Where and how a spilled image is stored in the spill file.
+   */
+  private static class SpillRecord {
+    private final long offset;
+    private final int length;
+    private final int width;
+    private final int height;
+    private final int maxValue;
+    private final int kind;
+
+    private SpillRecord(long offset, int length, int width, int height, int maxValue,
+                        int kind) {
+      this.offset = offset;
+      this.length = length;
+      this.width = width;
+      this.height = height;
+      this.maxValue = maxValue;
+      this.kind = kind;
+    }
+  }
+}
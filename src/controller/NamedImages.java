@@ -0,0 +1,96 @@
+package controller;
+
+import java.io.Closeable;
+import java.util.Map;
+
+import model.Image;
+
+/**
+ * The images a controller keeps by name. Commands are never given these images themselves: each
+ * command is given a hashmap of its own holding the images it reads, and the images it stores in
+ * that hashmap are put back here once it has finished.
+ */
+public interface NamedImages extends Closeable {
+
+  /**
+   * Gets the image stored under the given name.
+   *
+   * @param name the name of the image.
+   * @return the image, or null if there is no image with this name.
+   */
+  Image get(String name);
+
+  /**
+   * Tells whether an image is stored under the given name.
+   *
+   * @param name the name of the image.
+   * @return true if there is an image with this name.
+   */
+  boolean contains(String name);
+
+  /**
+   * Stores an image under the given name, replacing any image stored under it.
+   *
+   * @param name  the name of the image.
+   * @param image the image to be stored.
+   */
+  void put(String name, Image image);
+
+  /**
+   * Removes the image stored under the given name, if there is one.
+   *
+   * @param name the name of the image.
+   */
+  void remove(String name);
+
+  /**
+   * Describes how the images are kept, such as how many bytes of them are in memory, for the
+   * stats command.
+   *
+   * @return the description, or an empty string if there is nothing to tell.
+   */
+  default String describe() {
+    return "";
+  }
+
+  /**
+   * Releases whatever the images are kept in besides memory, once no image is read any more. The
+   * images held in memory are kept.
+   */
+  @Override
+  default void close() {
+  }
+
+  /**
+   * Gives the images of a map by name, read and stored straight through to the map.
+   *
+   * @param map the map of images.
+   * @return the images of the map.
+   */
+  static NamedImages of(Map<String, Image> map) {
+    if (map == null) {
+      throw new IllegalArgumentException("Fields cannot be null.");
+    }
+    return new NamedImages() {
+      @Override
+      public Image get(String name) {
+        return map.get(name);
+      }
+
+      @Override
+      public boolean contains(String name) {
+        return map.containsKey(name);
+      }
+
+      @Override
+      public void put(String name, Image image) {
+        map.put(name, image);
+      }
+
+      @Override
+      public void remove(String name) {
+        map.remove(name);
+      }
+    };
+  }
+}
@@ -0,0 +1,124 @@
+package controller;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import model.DecodeCache;
+
+/**
+ * Decodes the files a script loads ahead of time, while earlier commands are still being
+ * executed, so that a load finds its file decoded in the decode cache when its turn comes. At
+ * most a fixed number of files are decoded ahead of the loads that have started. Files that the
+ * script writes before loading them are not decoded ahead, as they would be decoded before they
+ * are written.
+ *
+ * <p>The scheduler tells the prefetcher about every command it starts. A file whose load starts
+ * before it has been decoded ahead is no longer decoded ahead (if it is being decoded, the load
+ * waits for it), and closing the prefetcher drops every file not decoded yet.
+ */
+public class Prefetcher implements Closeable {
+  private final DecodeCache cache;
+  private final int ahead;
+  private final List<ScriptCommand> loads;
+  private final Map<Integer, Future<?>> fetching;
+  private final Set<Integer> started;
+  private ExecutorService executor;
+  private int next;
+
+  /**
+   * Constructor for a prefetcher of the given script.
+   *
+   * @param script the commands of the script, in the order they were planned.
+   * @param ahead  the number of files decoded ahead of the loads that have started.
+   * @param cache  the cache the files are decoded into.
+   */
+  public Prefetcher(List<ScriptCommand> script, int ahead, DecodeCache cache) {
+    if (script == null || cache == null) {
+      throw new IllegalArgumentException("Fields cannot be null.");
+    }
+    if (ahead < 1) {
+      throw new IllegalArgumentException("At least one file must be decoded ahead.");
+    }
+    this.cache = cache;
+    this.ahead = ahead;
+    this.loads = new ArrayList<>();
+    this.fetching = new HashMap<>();
+    this.started = new HashSet<>();
+
+    Set<String> written = new HashSet<>();
+    for (ScriptCommand command : script) {
+      if (!command.isReuse() && command.filesRead().size() == 1 && !command.writes().isEmpty()
+              && !written.contains(command.filesRead().get(0))) {
+        this.loads.add(command);
+      }
+      written.addAll(command.filesWritten());
+    }
+  }
+
+  /**
+   * Starts decoding the first files of the script.
+   */
+  public void start() {
+    if (this.loads.isEmpty()) {
+      return;
+    }
+    this.executor = Executors.newFixedThreadPool(Math.min(this.ahead, 2), runnable -> {
+      Thread thread = new Thread(runnable, "prefetch");
+      thread.setDaemon(true);
+      return thread;
+    });
+    fill();
+  }
+
+  /**
+   * Tells the prefetcher that a command has started, so that the file it loads is not decoded
+   * ahead any more and the next file can be.
+   *
+   * @param command the command that started.
+   */
+  public void started(ScriptCommand command) {
+    this.started.add(command.getIndex());
+    Future<?> future = this.fetching.remove(command.getIndex());
+    if (future != null) {
+      // a file that has not started decoding yet is decoded by the load itself.
+      future.cancel(false);
+    }
+    fill();
+  }
+
+  /**
+   * Stops decoding files ahead. Files that are being decoded are still stored in the cache.
+   */
+  @Override
+  public void close() {
+    for (Future<?> future : this.fetching.values()) {
+      future.cancel(false);
+    }
+    this.fetching.clear();
+    if (this.executor != null) {
+      this.executor.shutdown();
+      this.executor = null;
+    }
+  }
+
+  private void fill() {
+    while (this.executor != null && this.fetching.size() < this.ahead
+            && this.next < this.loads.size()) {
+      ScriptCommand load = this.loads.get(this.next++);
+      if (this.started.contains(load.getIndex())) {
+        // started before it was decoded ahead, so it no longer needs to be.
+        continue;
+      }
+      String file = load.filesRead().get(0);
+      this.fetching.put(load.getIndex(), this.executor.submit(() -> this.cache.prefetch(file)));
+    }
+  }
+}
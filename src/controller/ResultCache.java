@@ -0,0 +1,405 @@
+package controller;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import model.CacheEvent;
+import model.Image;
+import model.ImageOther;
+import model.ImagePPM;
+import model.Interpolation;
+import model.Pixel;
+
+/**
+ * A cache of command results on disk that survives between runs of the program. A result is
+ * identified by the content of the images (or files) the command read, the name of the command,
+ * its parameters, the interpolation images are resampled with and the version of the image
+ * operations, so a command run again on unchanged inputs reads its result instead of computing
+ * it. Images are read through copies, so that an image whose resampling is pending is not
+ * resampled by the cache before the commands that follow have composed their transforms.
+ * Results are stored as raw rgb values, or a byte per pixel for gray images, together with the
+ * messages the command rendered. The cache keeps within a size limit by deleting the least
+ * recently used results.
+ */
+public class ResultCache {
+  /**
+   * The version of the image operations. Must be changed whenever an operation changes its
+   * results, so that results computed by an older version are not used.
+   */
+  public static final String ENGINE_VERSION = "2";
+
+  private static final int MAGIC = 0x494D4331;
+  private static final String NAME = "result cache";
+  private static final int PPM = 0;
+  private static final int OTHER = 1;
+  // added to the kind of a gray image, which is stored with a single byte per pixel.
+  private static final int GRAY = 2;
+
+  private final File directory;
+  private final long maxBytes;
+  private final LinkedHashMap<String, Long> entries;
+  private final Map<Image, String> rasterHashes;
+  private long bytes;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /**
+   * Constructor for a result cache.
+   *
+   * @param directory the directory the results are stored in. It is created if needed, and the
+   *                  results already in it are used.
+   * @param maxBytes  the number of bytes the results may take up on disk.
+   * @throws IllegalArgumentException if the directory cannot be used.
+   */
+  public ResultCache(File directory, long maxBytes) {
+    if (directory == null) {
+      throw new IllegalArgumentException("Directory cannot be null.");
+    }
+    if (maxBytes <= 0) {
+      throw new IllegalArgumentException("The size limit must be positive.");
+    }
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IllegalArgumentException("The cache directory " + directory
+              + " cannot be created.");
+    }
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    this.rasterHashes = Collections.synchronizedMap(new WeakHashMap<>());
+
+    // the least recently used results come first.
+    File[] files = directory.listFiles((dir, name) -> name.endsWith(".raw"));
+    List<File> existing = new ArrayList<>();
+    if (files != null) {
+      Collections.addAll(existing, files);
+    }
+    existing.sort((a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+    for (File file : existing) {
+      this.entries.put(file.getName(), file.length());
+      this.bytes += file.length();
+    }
+    evict();
+  }
+
+  /**
+   * Builds the key of a result.
+   *
+   * @param command the name of the command.
+   * @param params  the parameters of the command.
+   * @param images  the images the command reads.
+   * @param files   the paths of the files the command reads.
+   * @return the key identifying the result, or null if a file could not be read.
+   */
+  public String key(String command, List<String> params, List<Image> images,
+                    List<String> files) {
+    StringBuilder text = new StringBuilder(ENGINE_VERSION).append('|').append(command);
+    text.append('|').append(Interpolation.getDefault());
+    text.append('|').append(String.join(" ", params));
+    for (Image image : images) {
+      text.append('|').append(hashOf(image));
+    }
+    for (String file : files) {
+      try {
+        text.append('|').append(hashOf(new File(file)));
+      } catch (IOException e) {
+        return null;
+      }
+    }
+    return hex(digest().digest(text.toString().getBytes(StandardCharsets.UTF_8)));
+  }
+
+  /**
+   * Gets a result from the cache.
+   *
+   * @param key the key of the result.
+   * @return the result, or null if the cache does not hold it.
+   */
+  public Result get(String key) {
+    CacheEvent event = CacheEvent.start();
+    String name = key + ".raw";
+    synchronized (this) {
+      if (!this.entries.containsKey(name)) {
+        this.misses++;
+        event.finish(NAME, "miss", key, 0);
+        return null;
+      }
+    }
+
+    File file = new File(this.directory, name);
+    try (RandomAccessFile in = new RandomAccessFile(file, "r");
+         FileChannel channel = in.getChannel()) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.getInt() != MAGIC) {
+        throw new IOException("Not a cached result.");
+      }
+      int kind = buffer.getInt();
+      int width = buffer.getInt();
+      int height = buffer.getInt();
+      byte[] message = new byte[buffer.getInt()];
+      buffer.get(message);
+
+      Image image;
+      if ((kind & GRAY) != 0) {
+        byte[] gray = new byte[width * height];
+        buffer.get(gray);
+        image = (kind & ~GRAY) == PPM ? new ImagePPM(width, height, 255, gray)
+                : new ImageOther(width, height, 255, gray);
+      } else {
+        Pixel[][] pixels = new Pixel[height][width];
+        for (int i = 0; i < height; i++) {
+          for (int j = 0; j < width; j++) {
+            pixels[i][j] = new Pixel(buffer.get() & 0xFF, buffer.get() & 0xFF,
+                    buffer.get() & 0xFF);
+          }
+        }
+        image = kind == PPM ? new ImagePPM(width, height, 255, pixels)
+                : new ImageOther(width, height, 255, pixels);
+      }
+      this.rasterHashes.put(image, key);
+      file.setLastModified(System.currentTimeMillis());
+      synchronized (this) {
+        this.entries.get(name);
+        this.hits++;
+      }
+      event.finish(NAME, "hit", key, buffer.capacity());
+      return new Result(image, new String(message, StandardCharsets.UTF_8));
+    } catch (IOException | RuntimeException e) {
+      // a damaged or concurrently deleted result is treated as missing.
+      synchronized (this) {
+        Long size = this.entries.remove(name);
+        if (size != null) {
+          this.bytes -= size;
+        }
+        this.misses++;
+      }
+      file.delete();
+      event.finish(NAME, "miss", key, 0);
+      return null;
+    }
+  }
+
+  /**
+   * Stores a result in the cache, deleting the least recently used results if the size limit
+   * is exceeded.
+   *
+   * @param key      the key of the result.
+   * @param image    the image the command computed.
+   * @param messages the messages the command rendered.
+   */
+  public void put(String key, Image image, String messages) {
+    Image resolved = image.createCopy();
+    int width = resolved.getWidth();
+    int height = resolved.getHeight();
+    byte[] gray = resolved.returnGray();
+    byte[] message = messages.getBytes(StandardCharsets.UTF_8);
+    ByteBuffer buffer = ByteBuffer.allocate(20 + message.length
+            + width * height * (gray != null ? 1 : 3));
+    int kind = image instanceof ImagePPM ? PPM : OTHER;
+    buffer.putInt(MAGIC).putInt(gray != null ? kind | GRAY : kind);
+    buffer.putInt(width).putInt(height).putInt(message.length).put(message);
+    if (gray != null) {
+      buffer.put(gray);
+    } else {
+      Pixel[][] pixels = resolved.returnPixels();
+      for (int i = 0; i < height; i++) {
+        for (int j = 0; j < width; j++) {
+          buffer.put((byte) pixels[i][j].getRed());
+          buffer.put((byte) pixels[i][j].getGreen());
+          buffer.put((byte) pixels[i][j].getBlue());
+        }
+      }
+    }
+
+    String name = key + ".raw";
+    File file = new File(this.directory, name);
+    try {
+      File temporary = File.createTempFile("result", ".tmp", this.directory);
+      Files.write(temporary.toPath(), buffer.array());
+      Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+              StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      // the result is only a cache, so failing to store it is not an error.
+      return;
+    }
+    this.rasterHashes.put(image, key);
+
+    synchronized (this) {
+      Long previous = this.entries.put(name, (long) buffer.capacity());
+      if (previous != null) {
+        this.bytes -= previous;
+      }
+      this.bytes += buffer.capacity();
+      evict();
+    }
+  }
+
+  /**
+   * Gets the number of results found in the cache.
+   *
+   * @return the number of hits.
+   */
+  public synchronized long getHits() {
+    return this.hits;
+  }
+
+  /**
+   * Gets the number of results that were not found in the cache.
+   *
+   * @return the number of misses.
+   */
+  public synchronized long getMisses() {
+    return this.misses;
+  }
+
+  /**
+   * Gets the number of results deleted to keep the cache within its size limit.
+   *
+   * @return the number of evictions.
+   */
+  public synchronized long getEvictions() {
+    return this.evictions;
+  }
+
+  /**
+   * Gets the number of bytes the results in the cache take up.
+   *
+   * @return the size of the cache in bytes.
+   */
+  public synchronized long getBytes() {
+    return this.bytes;
+  }
+
+  /**
+   * Describes the use of this cache.
+   *
+   * @return the hits, misses, evictions and size of this cache.
+   */
+  @Override
+  public synchronized String toString() {
+    return "Result cache: " + this.hits + " hits, " + this.misses + " misses, "
+            + this.evictions + " evictions, " + this.bytes + " of " + this.maxBytes + " bytes";
+  }
+
+  private synchronized void evict() {
+    List<String> eldest = new ArrayList<>(this.entries.keySet());
+    for (int i = 0; i < eldest.size() && this.bytes > this.maxBytes; i++) {
+      long evicted = this.entries.remove(eldest.get(i));
+      this.bytes -= evicted;
+      new File(this.directory, eldest.get(i)).delete();
+      this.evictions++;
+      CacheEvent.record(NAME, "eviction", eldest.get(i), evicted);
+    }
+  }
+
+  // images are not changed once they are stored, so the hash of each one is only computed once.
+  // A gray image is hashed as the rgb values of its pixels, so that it has the same hash as the
+  // same pixels kept in color.
+  private String hashOf(Image image) {
+    String hash = this.rasterHashes.get(image);
+    if (hash != null) {
+      return hash;
+    }
+    MessageDigest digest = digest();
+    Image resolved = image.createCopy();
+    int width = resolved.getWidth();
+    int height = resolved.getHeight();
+    byte[] gray = resolved.returnGray();
+    Pixel[][] pixels = gray == null ? resolved.returnPixels() : null;
+    digest.update(ByteBuffer.allocate(8).putInt(width).putInt(height).array());
+    byte[] row = new byte[width * 3];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0, pos = 0; j < width; j++) {
+        if (gray != null) {
+          byte value = gray[i * width + j];
+          row[pos++] = value;
+          row[pos++] = value;
+          row[pos++] = value;
+        } else {
+          row[pos++] = (byte) pixels[i][j].getRed();
+          row[pos++] = (byte) pixels[i][j].getGreen();
+          row[pos++] = (byte) pixels[i][j].getBlue();
+        }
+      }
+      digest.update(row);
+    }
+    hash = hex(digest.digest());
+    this.rasterHashes.put(image, hash);
+    return hash;
+  }
+
+  private String hashOf(File file) throws IOException {
+    MessageDigest digest = digest();
+    byte[] buffer = new byte[1 << 16];
+    try (InputStream in = new FileInputStream(file)) {
+      for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+        digest.update(buffer, 0, read);
+      }
+    }
+    return hex(digest.digest());
+  }
+
+  private MessageDigest digest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available.", e);
+    }
+  }
+
+  private String hex(byte[] bytes) {
+    StringBuilder text = new StringBuilder();
+    for (byte b : bytes) {
+      text.append(String.format("%02x", b));
+    }
+    return text.toString();
+  }
+
+  /**
+   * A result read from the cache: the image the command computed and the messages it rendered.
+   */
+  public static class Result {
+    private final Image image;
+    private final String messages;
+
+    private Result(Image image, String messages) {
+      this.image = image;
+      this.messages = messages;
+    }
+
+    /**
+     * Gets the image the command computed.
+     *
+     * @return the cached image.
+     */
+    public Image getImage() {
+      return this.image;
+    }
+
+    /**
+     * Gets the messages the command rendered.
+     *
+     * @return the cached messages.
+     */
+    public String getMessages() {
+      return this.messages;
+    }
+  }
+}
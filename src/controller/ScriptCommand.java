@@ -0,0 +1,221 @@
+package controller;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Scanner;
+
+/**
+ * Represents a single command read from a script, together with the role of each of its
+ * arguments. Knowing which image names a command reads and writes lets the controller work out
+ * which commands depend on each other and which can be executed at the same time.
+ */
+public class ScriptCommand {
+
+  /**
+   * The role of a single argument of a command.
+   */
+  public enum Argument { Param, Read, Write, FileIn, FileOut }
+
+  private final int index;
+  private final String name;
+  private final Argument[] signature;
+  private final List<String> arguments;
+  private final int source;
+
+  /**
+   * Constructor for a script command.
+   *
+   * @param index     the position of this command in the script, starting at 0.
+   * @param name      the name of the command, as typed in the script.
+   * @param signature the role of each argument, or null if the command is not known.
+   * @param arguments the arguments of the command in the order they appear in the script.
+   */
+  public ScriptCommand(int index, String name, Argument[] signature, List<String> arguments) {
+    this(index, name, signature, arguments, -1);
+  }
+
+  private ScriptCommand(int index, String name, Argument[] signature, List<String> arguments,
+                        int source) {
+    if (name == null || arguments == null) {
+      throw new IllegalArgumentException("Fields cannot be null.");
+    }
+    this.index = index;
+    this.name = name;
+    this.signature = signature;
+    this.arguments = Collections.unmodifiableList(new ArrayList<>(arguments));
+    this.source = source;
+  }
+
+  /**
+   * Creates a command that, instead of computing its result again, stores the image that an
+   * identical earlier command already computed under this command's output name.
+   *
+   * @param command the command whose result is already available.
+   * @param from    the name of an image that currently holds the earlier result.
+   * @param source  the index of the earlier command that computed the result.
+   * @return a command that reads the earlier result and writes it to the output of the command.
+   */
+  public static ScriptCommand reuse(ScriptCommand command, String from, int source) {
+    if (command.writes().size() != 1) {
+      throw new IllegalArgumentException("Only commands with a single output can be reused.");
+    }
+    List<String> arguments = new ArrayList<>();
+    arguments.add(from);
+    arguments.add(command.writes().get(0));
+    return new ScriptCommand(command.index, command.name,
+            new Argument[]{Argument.Read, Argument.Write}, arguments, source);
+  }
+
+  /**
+   * Gets the position of this command in the script.
+   *
+   * @return the index of this command, starting at 0.
+   */
+  public int getIndex() {
+    return this.index;
+  }
+
+  /**
+   * Gets the name of this command.
+   *
+   * @return the name of the command as typed in the script.
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * Checks if this command is one that the controller knows how to execute.
+   *
+   * @return true if the command is known, false otherwise.
+   */
+  public boolean isKnown() {
+    return this.signature != null;
+  }
+
+  /**
+   * Checks if this command reuses the result of an earlier identical command.
+   *
+   * @return true if this command only copies an earlier result, false otherwise.
+   */
+  public boolean isReuse() {
+    return this.source >= 0;
+  }
+
+  /**
+   * Gets the index of the earlier command whose result this command reuses.
+   *
+   * @return the index of the earlier command, or -1 if this command is not a reuse.
+   */
+  public int getSource() {
+    return this.source;
+  }
+
+  /**
+   * Gets the arguments of this command.
+   *
+   * @return the arguments in the order they appear in the script.
+   */
+  public List<String> getArguments() {
+    return this.arguments;
+  }
+
+  /**
+   * Gets the names of the images that this command reads.
+   *
+   * @return the image names read by this command.
+   */
+  public List<String> reads() {
+    return argumentsOfType(Argument.Read);
+  }
+
+  /**
+   * Gets the names of the images that this command writes.
+   *
+   * @return the image names written by this command.
+   */
+  public List<String> writes() {
+    return argumentsOfType(Argument.Write);
+  }
+
+  /**
+   * Gets the parameters of this command that are neither images nor files, such as the
+   * brightness value of a brighten command.
+   *
+   * @return the plain parameters of this command.
+   */
+  public List<String> params() {
+    return argumentsOfType(Argument.Param);
+  }
+
+  /**
+   * Gets the normalized paths of the files that this command reads from disk.
+   *
+   * @return the files read by this command.
+   */
+  public List<String> filesRead() {
+    return normalize(argumentsOfType(Argument.FileIn));
+  }
+
+  /**
+   * Gets the normalized paths of the files that this command writes to disk.
+   *
+   * @return the files written by this command.
+   */
+  public List<String> filesWritten() {
+    return normalize(argumentsOfType(Argument.FileOut));
+  }
+
+  /**
+   * Provides the arguments of this command as a scanner, in the same form a command would
+   * receive them when reading directly from the user.
+   *
+   * @return a scanner over the arguments of this command.
+   */
+  public Scanner scanner() {
+    return new Scanner(String.join(" ", this.arguments));
+  }
+
+  /**
+   * The command as it would be typed in a script.
+   *
+   * @return the name of the command followed by its arguments.
+   */
+  @Override
+  public String toString() {
+    if (this.isReuse()) {
+      return this.name + " (reuses #" + this.source + ") " + String.join(" ", this.arguments);
+    }
+    if (this.arguments.isEmpty()) {
+      return this.name;
+    }
+    return this.name + " " + String.join(" ", this.arguments);
+  }
+
+  private List<String> argumentsOfType(Argument type) {
+    List<String> result = new ArrayList<>();
+    if (this.signature == null) {
+      return result;
+    }
+    for (int i = 0; i < this.signature.length && i < this.arguments.size(); i++) {
+      if (this.signature[i] == type) {
+        result.add(this.arguments.get(i));
+      }
+    }
+    return result;
+  }
+
+  private List<String> normalize(List<String> paths) {
+    List<String> result = new ArrayList<>();
+    for (String path : paths) {
+      try {
+        result.add(Paths.get(path).toAbsolutePath().normalize().toString());
+      } catch (Exception e) {
+        result.add(path);
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,54 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+/**
+ * Reads a whole script up front and splits it into commands, using the known signature of every
+ * command to decide how many arguments belong to it. Reading stops at the first quit command.
+ */
+public class ScriptParser {
+  private final Map<String, ScriptCommand.Argument[]> signatures;
+
+  /**
+   * Constructor for a script parser.
+   *
+   * @param signatures the role of each argument of every known command, keyed by command name.
+   */
+  public ScriptParser(Map<String, ScriptCommand.Argument[]> signatures) {
+    if (signatures == null) {
+      throw new IllegalArgumentException("Signatures cannot be null.");
+    }
+    this.signatures = signatures;
+  }
+
+  /**
+   * Reads every command in the given input.
+   *
+   * @param input the script to be read.
+   * @return the commands of the script in the order they appear.
+   */
+  public List<ScriptCommand> parse(Readable input) {
+    Scanner sc = new Scanner(input);
+    List<ScriptCommand> script = new ArrayList<>();
+
+    while (sc.hasNext()) {
+      String name = sc.next();
+      if (name.equalsIgnoreCase("q") || name.equalsIgnoreCase("quit")) {
+        break;
+      }
+
+      ScriptCommand.Argument[] signature = this.signatures.get(name);
+      List<String> arguments = new ArrayList<>();
+      if (signature != null) {
+        for (int i = 0; i < signature.length && sc.hasNext(); i++) {
+          arguments.add(sc.next());
+        }
+      }
+      script.add(new ScriptCommand(script.size(), name, signature, arguments));
+    }
+    return script;
+  }
+}
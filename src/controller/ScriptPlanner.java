@@ -0,0 +1,326 @@
+package controller;
+
+import java.awt.Dimension;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import model.AbstractImage;
+import model.CodecRegistry;
+
+/**
+ * Optimizes a parsed script before it is executed. Commands that compute exactly the same thing
+ * as an earlier command (the same operation with the same parameters on the same images, or a
+ * repeated load of a file that has not been saved to since) reuse the earlier result instead of
+ * computing it again, and commands whose result is never saved or used by a later command are
+ * removed. The plan can also be described, with an estimate of the work and memory it needs.
+ */
+public class ScriptPlanner {
+  // the commands that make an image gray, and those that keep a gray image gray.
+  private static final Set<String> GRAY_RESULTS = Set.of("red-component", "green-component",
+          "blue-component", "value-component", "intensity-component", "luma-component",
+          "grayscale");
+  private static final Set<String> GRAY_KEPT = Set.of("brighten", "blur", "sharpen",
+          "vertical-flip", "horizontal-flip", "rotate", "scale", "crop");
+
+  /**
+   * Optimizes the given script.
+   *
+   * @param script the commands of a script, in script order.
+   * @return the commands that need to be executed, in script order.
+   */
+  public List<ScriptCommand> plan(List<ScriptCommand> script) {
+    return eliminateUnused(reuseResults(script));
+  }
+
+  /**
+   * Describes the optimized plan of the given script: every command that will be executed with
+   * the size of the image it works on and the number of passes it makes over the pixels, the
+   * commands that were removed, and the total work and peak memory the plan is estimated to
+   * need. Images are counted in the peak until the last command that uses them, after which the
+   * scheduler releases them.
+   *
+   * @param script the commands of a script, in script order.
+   * @return a description of the optimized plan.
+   */
+  public String explain(List<ScriptCommand> script) {
+    List<ScriptCommand> plan = plan(script);
+    StringBuilder text = new StringBuilder();
+    Set<Integer> kept = new HashSet<>();
+    int reused = 0;
+    for (ScriptCommand command : plan) {
+      kept.add(command.getIndex());
+      if (command.isReuse()) {
+        reused++;
+      }
+    }
+
+    text.append("Plan: " + script.size() + " commands, " + (plan.size() - reused)
+            + " computed, " + reused + " reused, " + (script.size() - plan.size())
+            + " removed as unused\n");
+
+    // the position in the plan of the last command that reads or writes each name, after which
+    // the scheduler removes the image from the store.
+    Map<String, Integer> lastUse = new HashMap<>();
+    for (int position = 0; position < plan.size(); position++) {
+      for (String name : plan.get(position).reads()) {
+        lastUse.put(name, position);
+      }
+      for (String name : plan.get(position).writes()) {
+        lastUse.put(name, position);
+      }
+    }
+
+    Map<String, int[]> sizes = new HashMap<>();
+    Map<String, int[]> savedSizes = new HashMap<>();
+    Map<String, Boolean> gray = new HashMap<>();
+    Map<String, Boolean> savedGray = new HashMap<>();
+    // the array of pixels every held name is read from, as the estimated number of bytes in an
+    // array of one, so that names that share an array count it once.
+    Map<String, long[]> held = new HashMap<>();
+    long pixelPasses = 0;
+    long peakBytes = 0;
+
+    for (int position = 0; position < plan.size(); position++) {
+      ScriptCommand command = plan.get(position);
+      int[] size = null;
+      int passes;
+      if (command.isReuse()) {
+        size = sizes.get(command.reads().get(0));
+        passes = 0;
+      } else if (!command.filesRead().isEmpty() && !command.writes().isEmpty()) {
+        String file = command.filesRead().get(0);
+        size = savedSizes.containsKey(file) ? savedSizes.get(file) : probe(file);
+        // decoding the file and building the pixels.
+        passes = 2;
+      } else if (!command.reads().isEmpty()) {
+        size = sizes.get(command.reads().get(0));
+        // copying the image and applying the operation, or converting and encoding it.
+        passes = 2;
+      } else {
+        passes = 0;
+      }
+
+      int[] output = command.isReuse() ? size : outputSize(command, size);
+      boolean outputGray = isGray(command, gray, savedGray);
+      for (String file : command.filesWritten()) {
+        savedSizes.put(file, output);
+        savedGray.put(file, outputGray);
+      }
+      long[] array = sharesArray(command) ? held.get(command.reads().get(0)) : null;
+      if (array == null) {
+        array = new long[]{output == null ? 0
+                : AbstractImage.estimateBytes((long) output[0] * output[1], outputGray)};
+      }
+      for (String name : command.writes()) {
+        sizes.put(name, output);
+        gray.put(name, outputGray);
+        held.put(name, array);
+      }
+
+      long pixels = size == null ? 0 : (long) size[0] * size[1];
+      pixelPasses += pixels * passes;
+      peakBytes = Math.max(peakBytes, heldBytes(held));
+      for (String name : command.reads()) {
+        if (lastUse.get(name) == position) {
+          held.remove(name);
+        }
+      }
+      for (String name : command.writes()) {
+        if (lastUse.get(name) == position) {
+          held.remove(name);
+        }
+      }
+
+      text.append(String.format("#%-4d %-50s %11s %d passes\n", command.getIndex(),
+              command.toString(), size == null ? "?" : size[0] + "x" + size[1], passes));
+    }
+
+    for (ScriptCommand command : script) {
+      if (!kept.contains(command.getIndex())) {
+        text.append(String.format("#%-4d %-50s removed as unused\n", command.getIndex(),
+                command.toString()));
+      }
+    }
+
+    text.append(String.format("Estimated work: %.2f megapixel-passes, peak memory %.2f MB\n",
+            pixelPasses / 1e6, peakBytes / (1024.0 * 1024.0)));
+    return text.toString();
+  }
+
+  // gives every computed image a number, so that two commands that apply the same operation to
+  // the same numbers compute the same image.
+  private List<ScriptCommand> reuseResults(List<ScriptCommand> script) {
+    Map<String, Integer> valueOf = new HashMap<>();
+    Map<String, Integer> valueIds = new HashMap<>();
+    Map<Integer, Integer> producer = new HashMap<>();
+    Map<String, Integer> fileVersions = new HashMap<>();
+    List<ScriptCommand> result = new ArrayList<>();
+
+    for (ScriptCommand command : script) {
+      if (!command.isKnown() || command.writes().size() != 1) {
+        for (String file : command.filesWritten()) {
+          fileVersions.merge(file, 1, Integer::sum);
+        }
+        result.add(command);
+        continue;
+      }
+
+      StringBuilder key = new StringBuilder(command.getName());
+      key.append("|").append(String.join(",", command.params())).append("|");
+      for (String name : command.reads()) {
+        key.append(valueOf.computeIfAbsent(name, k -> valueIds.computeIfAbsent("input:" + k,
+                v -> valueIds.size()))).append(",");
+      }
+      for (String file : command.filesRead()) {
+        key.append("|").append(file).append("@").append(fileVersions.getOrDefault(file, 0));
+      }
+      Integer value = valueIds.computeIfAbsent(key.toString(), k -> valueIds.size());
+
+      String output = command.writes().get(0);
+      String holder = producer.containsKey(value) ? holderOf(value, valueOf, output) : null;
+      if (holder != null) {
+        result.add(ScriptCommand.reuse(command, holder, producer.get(value)));
+      } else {
+        result.add(command);
+        producer.put(value, command.getIndex());
+      }
+      valueOf.put(output, value);
+    }
+    return result;
+  }
+
+  private String holderOf(int value, Map<String, Integer> valueOf, String preferred) {
+    if (valueOf.containsKey(preferred) && valueOf.get(preferred) == value) {
+      return preferred;
+    }
+    for (Map.Entry<String, Integer> entry : valueOf.entrySet()) {
+      if (entry.getValue() == value) {
+        return entry.getKey();
+      }
+    }
+    return null;
+  }
+
+  // walks the script backwards, keeping only the commands that save, render something or store
+  // an image that a kept command reads before it is replaced.
+  private List<ScriptCommand> eliminateUnused(List<ScriptCommand> script) {
+    Set<String> needed = new HashSet<>();
+    LinkedList<ScriptCommand> result = new LinkedList<>();
+
+    for (int i = script.size() - 1; i >= 0; i--) {
+      ScriptCommand command = script.get(i);
+      boolean used = command.writes().isEmpty();
+      for (String name : command.writes()) {
+        used = used || needed.contains(name);
+      }
+      if (used) {
+        needed.removeAll(command.writes());
+        needed.addAll(command.reads());
+        result.addFirst(command);
+      }
+    }
+    return new ArrayList<>(result);
+  }
+
+  // the size of the image a command writes, from the size of the image it reads. Scaling,
+  // rotating and cropping change it; the other operations keep it.
+  private int[] outputSize(ScriptCommand command, int[] size) {
+    if (size == null) {
+      return null;
+    }
+    List<String> params = command.params();
+    try {
+      switch (command.getName()) {
+        case "scale": {
+          int percent = Integer.parseInt(params.get(0));
+          return new int[]{Math.max(1, (int) Math.round(size[0] * percent / 100.0)),
+              Math.max(1, (int) Math.round(size[1] * percent / 100.0))};
+        }
+        case "rotate": {
+          int degrees = Integer.parseInt(params.get(0));
+          if (degrees % 90 == 0) {
+            return degrees % 180 == 0 ? size : new int[]{size[1], size[0]};
+          }
+          double angle = Math.toRadians(degrees);
+          double cos = Math.abs(Math.cos(angle));
+          double sin = Math.abs(Math.sin(angle));
+          return new int[]{(int) Math.ceil(size[0] * cos + size[1] * sin - 1e-9),
+              (int) Math.ceil(size[0] * sin + size[1] * cos - 1e-9)};
+        }
+        case "crop":
+          return new int[]{Integer.parseInt(params.get(2)), Integer.parseInt(params.get(3))};
+        default:
+          return size;
+      }
+    } catch (NumberFormatException | IndexOutOfBoundsException e) {
+      // the command fails when it is executed, so its result has no size.
+      return null;
+    }
+  }
+
+  // whether the image a command writes is gray, from how it was loaded or what made it.
+  private boolean isGray(ScriptCommand command, Map<String, Boolean> gray,
+                         Map<String, Boolean> savedGray) {
+    if (!command.reads().isEmpty()
+            && (command.isReuse() || GRAY_KEPT.contains(command.getName()))) {
+      return gray.getOrDefault(command.reads().get(0), false);
+    }
+    if (!command.filesRead().isEmpty()) {
+      String file = command.filesRead().get(0);
+      String extension = CodecRegistry.extensionOf(file);
+      return savedGray.getOrDefault(file, extension.equals("pgm") || extension.equals("pbm"));
+    }
+    return GRAY_RESULTS.contains(command.getName());
+  }
+
+  // true if the image a command writes is read from the array of the image it reads, as a reused
+  // result, a flip, a turn by a multiple of 90 degrees or a region is until it is changed.
+  private boolean sharesArray(ScriptCommand command) {
+    if (command.reads().isEmpty()) {
+      return false;
+    }
+    switch (command.getName()) {
+      case "vertical-flip":
+      case "horizontal-flip":
+      case "crop":
+        return true;
+      case "rotate":
+        try {
+          return Integer.parseInt(command.params().get(0)) % 90 == 0;
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+          return false;
+        }
+      default:
+        return command.isReuse();
+    }
+  }
+
+  private long heldBytes(Map<String, long[]> held) {
+    Map<long[], Boolean> distinct = new IdentityHashMap<>();
+    long bytes = 0;
+    for (long[] array : held.values()) {
+      if (distinct.put(array, true) == null) {
+        bytes += array[0];
+      }
+    }
+    return bytes;
+  }
+
+  // reads only as much of the file as is needed to know the width and height of the image,
+  // through the codec that loads it.
+  private int[] probe(String path) {
+    try {
+      Dimension size = CodecRegistry.getInstance().probe(path);
+      return new int[]{size.width, size.height};
+    } catch (IOException | RuntimeException e) {
+      return null;
+    }
+  }
+}
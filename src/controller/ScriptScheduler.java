@@ -0,0 +1,409 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import commands.Command;
+import model.DecodeCache;
+import model.Image;
+import view.ImageView;
+
+/**
+ * Executes a parsed script by building a dependency graph between its commands and running every
+ * command whose inputs are ready on a pool of threads. A command depends on an earlier command
+ * if it reads an image (or file) the earlier one writes, or writes an image (or file) the earlier
+ * one reads or writes. A command that reads and writes nothing, such as stats, waits for every
+ * earlier command, and every later command waits for it, so that it sees what the script has
+ * done so far and runs while no other command does. Messages are still rendered in script order.
+ *
+ * <p>An image that the script computes is removed from the images as soon as every command that
+ * reads it has finished, so the memory a script needs is that of the images still to be used
+ * rather than that of every image it ever computed. Images that were stored before the script
+ * started are kept.
+ *
+ * <p>While the script runs, the next few files it loads are decoded ahead on a background
+ * thread, so that loads waiting for earlier commands find their files decoded.
+ */
+public class ScriptScheduler {
+  private static final String INVALID = "Invalid command, please enter again: ";
+  private static final int PREFETCH = 4;
+
+  private final Map<String, Supplier<Command>> commands;
+  private final ImageView view;
+  private final NamedImages images;
+  private final int parallelism;
+  private final boolean release;
+  private final int prefetch;
+  private Prefetcher prefetcher;
+
+  /**
+   * Constructor for a script scheduler that uses one thread per available processor.
+   *
+   * @param commands the known commands, keyed by name. A new command is created for every
+   *                 execution so that commands running at the same time do not share state.
+   * @param view     the view that all messages are rendered to, in script order.
+   * @param images   the images that the script reads from and stores into.
+   */
+  public ScriptScheduler(Map<String, Supplier<Command>> commands, ImageView view,
+                         NamedImages images) {
+    this(commands, view, images, Runtime.getRuntime().availableProcessors(), true);
+  }
+
+  /**
+   * Constructor for a script scheduler with a given number of threads.
+   *
+   * @param commands    the known commands, keyed by name.
+   * @param view        the view that all messages are rendered to, in script order.
+   * @param images      the images that the script reads from and stores into.
+   * @param parallelism the maximum number of commands executed at the same time.
+   * @param release     true if images computed by the script are removed once they are no
+   *                    longer used, false if every image is kept until the end.
+   */
+  public ScriptScheduler(Map<String, Supplier<Command>> commands, ImageView view,
+                         NamedImages images, int parallelism, boolean release) {
+    this(commands, view, images, parallelism, release, PREFETCH);
+  }
+
+  /**
+   * Constructor for a script scheduler with a given number of threads and of files decoded
+   * ahead of the loads of the script.
+   *
+   * @param commands    the known commands, keyed by name.
+   * @param view        the view that all messages are rendered to, in script order.
+   * @param images      the images that the script reads from and stores into.
+   * @param parallelism the maximum number of commands executed at the same time.
+   * @param release     true if images computed by the script are removed once they are no
+   *                    longer used, false if every image is kept until the end.
+   * @param prefetch    the number of files decoded ahead of the loads that have started, or 0
+   *                    to decode every file when it is loaded.
+   */
+  public ScriptScheduler(Map<String, Supplier<Command>> commands, ImageView view,
+                         NamedImages images, int parallelism, boolean release,
+                         int prefetch) {
+    if (commands == null || view == null || images == null) {
+      throw new IllegalArgumentException("Fields cannot be null.");
+    }
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be at least 1.");
+    }
+    if (prefetch < 0) {
+      throw new IllegalArgumentException("The number of files decoded ahead cannot be negative.");
+    }
+    this.commands = commands;
+    this.view = view;
+    this.images = images;
+    this.parallelism = parallelism;
+    this.release = release;
+    this.prefetch = prefetch;
+  }
+
+  /**
+   * Executes every command of the given script.
+   *
+   * @param script the commands to be executed, in script order. Commands that reuse the result
+   *               of an earlier command render the messages of that command.
+   */
+  public void run(List<ScriptCommand> script) {
+    int size = script.size();
+    List<Set<Integer>> dependents = buildGraph(script);
+    int[] pending = new int[size];
+    for (Set<Integer> edges : dependents) {
+      for (int dependent : edges) {
+        pending[dependent]++;
+      }
+    }
+
+    List<List<Version>> versionsRead = new ArrayList<>();
+    List<List<Version>> versionsWritten = new ArrayList<>();
+    findVersions(script, versionsRead, versionsWritten);
+
+    // commands that reuse an earlier result render what the earlier command rendered.
+    Map<Integer, Outcome> reusable = new HashMap<>();
+    Set<Integer> sources = new HashSet<>();
+    for (ScriptCommand command : script) {
+      if (command.isReuse()) {
+        sources.add(command.getSource());
+      }
+    }
+
+    ExecutorService pool = Executors.newFixedThreadPool(Math.min(this.parallelism,
+            Math.max(size, 1)));
+    CompletionService<Outcome> completed = new ExecutorCompletionService<>(pool);
+    Outcome[] outcomes = new Outcome[size];
+    int rendered = 0;
+
+    if (this.prefetch > 0) {
+      this.prefetcher = new Prefetcher(script, this.prefetch, DecodeCache.getInstance());
+      this.prefetcher.start();
+    }
+
+    try {
+      for (int i = 0; i < size; i++) {
+        if (pending[i] == 0) {
+          submit(completed, script, i, reusable);
+        }
+      }
+
+      while (rendered < size) {
+        Outcome outcome = completed.take().get();
+        // an image read and written by the same command is released before it is replaced.
+        for (Version version : versionsRead.get(outcome.position)) {
+          version.readers--;
+          release(version);
+        }
+        for (Map.Entry<String, Image> written : outcome.written.entrySet()) {
+          this.images.put(written.getKey(), written.getValue());
+        }
+        outcome.written.clear();
+        for (Version version : versionsWritten.get(outcome.position)) {
+          release(version);
+        }
+        if (sources.contains(script.get(outcome.position).getIndex())) {
+          reusable.put(script.get(outcome.position).getIndex(), new Outcome(outcome.position,
+                  outcome.messages, outcome.error, new HashMap<>()));
+        }
+        for (int dependent : dependents.get(outcome.position)) {
+          pending[dependent]--;
+          if (pending[dependent] == 0) {
+            submit(completed, script, dependent, reusable);
+          }
+        }
+
+        outcomes[outcome.position] = outcome;
+        while (rendered < size && outcomes[rendered] != null) {
+          render(outcomes[rendered]);
+          outcomes[rendered] = null;
+          rendered++;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("The script could not be executed: "
+              + e.getCause().getMessage(), e.getCause());
+    } finally {
+      pool.shutdownNow();
+      if (this.prefetcher != null) {
+        this.prefetcher.close();
+        this.prefetcher = null;
+      }
+    }
+  }
+
+  // every image computed by the script is a version of a name; counts how many commands read
+  // each version, so it can be released once they have all finished.
+  private void findVersions(List<ScriptCommand> script, List<List<Version>> versionsRead,
+                            List<List<Version>> versionsWritten) {
+    Map<String, Version> current = new HashMap<>();
+    for (ScriptCommand command : script) {
+      List<Version> read = new ArrayList<>();
+      for (String name : command.reads()) {
+        Version version = current.get(name);
+        if (version != null && !read.contains(version)) {
+          version.readers++;
+          read.add(version);
+        }
+      }
+
+      List<Version> written = new ArrayList<>();
+      for (String name : command.writes()) {
+        Version version = new Version(name);
+        current.put(name, version);
+        written.add(version);
+      }
+      versionsRead.add(read);
+      versionsWritten.add(written);
+    }
+  }
+
+  // runs on the scheduling thread. A command that writes a name waits for every reader of the
+  // previous version, so the version released here is always the one stored.
+  private void release(Version version) {
+    if (version.readers == 0 && this.release) {
+      this.images.remove(version.name);
+    }
+  }
+
+  // every command gets an edge from the last command that wrote something it reads or writes,
+  // and from every command that read something it writes since that thing was last written. A
+  // known command that reads and writes nothing is a barrier: it gets an edge from every command
+  // since the last barrier, and every command after it gets an edge from it.
+  private List<Set<Integer>> buildGraph(List<ScriptCommand> script) {
+    List<Set<Integer>> dependents = new ArrayList<>();
+    Map<String, Integer> lastWriter = new HashMap<>();
+    Map<String, List<Integer>> readers = new HashMap<>();
+    Integer barrier = null;
+    List<Integer> sinceBarrier = new ArrayList<>();
+
+    for (ScriptCommand command : script) {
+      dependents.add(new LinkedHashSet<>());
+    }
+
+    for (int index = 0; index < script.size(); index++) {
+      ScriptCommand command = script.get(index);
+      if (barrier != null) {
+        dependents.get(barrier).add(index);
+      }
+      if (command.isKnown() && resourcesRead(command).isEmpty()
+              && resourcesWritten(command).isEmpty()) {
+        for (int earlier : sinceBarrier) {
+          dependents.get(earlier).add(index);
+        }
+        barrier = index;
+        sinceBarrier.clear();
+        continue;
+      }
+      sinceBarrier.add(index);
+
+      for (String resource : resourcesRead(command)) {
+        Integer writer = lastWriter.get(resource);
+        if (writer != null) {
+          dependents.get(writer).add(index);
+        }
+        readers.computeIfAbsent(resource, k -> new ArrayList<>()).add(index);
+      }
+
+      for (String resource : resourcesWritten(command)) {
+        Integer writer = lastWriter.get(resource);
+        if (writer != null && writer != index) {
+          dependents.get(writer).add(index);
+        }
+        for (int reader : readers.getOrDefault(resource, new ArrayList<>())) {
+          if (reader != index) {
+            dependents.get(reader).add(index);
+          }
+        }
+        lastWriter.put(resource, index);
+        readers.remove(resource);
+      }
+    }
+    return dependents;
+  }
+
+  private List<String> resourcesRead(ScriptCommand command) {
+    List<String> resources = new ArrayList<>();
+    for (String name : command.reads()) {
+      resources.add("image:" + name);
+    }
+    for (String file : command.filesRead()) {
+      resources.add("file:" + file);
+    }
+    return resources;
+  }
+
+  private List<String> resourcesWritten(ScriptCommand command) {
+    List<String> resources = new ArrayList<>();
+    for (String name : command.writes()) {
+      resources.add("image:" + name);
+    }
+    for (String file : command.filesWritten()) {
+      resources.add("file:" + file);
+    }
+    return resources;
+  }
+
+  // runs on the scheduling thread, so the shared images are only ever touched by one thread.
+  private void submit(CompletionService<Outcome> completed, List<ScriptCommand> script,
+                      int position, Map<Integer, Outcome> reusable) {
+    ScriptCommand command = script.get(position);
+    HashMap<String, Image> local = new HashMap<>();
+    for (String name : command.reads()) {
+      if (this.images.contains(name)) {
+        local.put(name, this.images.get(name));
+      }
+    }
+    Outcome source = command.isReuse() ? reusable.get(command.getSource()) : null;
+    if (this.prefetcher != null) {
+      this.prefetcher.started(command);
+    }
+    completed.submit(() -> execute(command, position, local, source));
+  }
+
+  private Outcome execute(ScriptCommand command, int position, HashMap<String, Image> local,
+                          Outcome source) {
+    StringBuilder messages = new StringBuilder();
+    String error = null;
+
+    if (!command.isKnown()) {
+      messages.append(INVALID);
+    } else if (command.isReuse()) {
+      String from = command.reads().get(0);
+      if (local.containsKey(from)) {
+        local.put(command.writes().get(0), local.get(from));
+      }
+      if (source != null) {
+        messages.append(source.messages);
+        error = source.error;
+      }
+    } else {
+      try {
+        this.commands.get(command.getName()).get()
+                .execute(command.scanner(), new ImageView(messages), local);
+      } catch (Exception e) {
+        error = e.getMessage();
+      }
+    }
+
+    HashMap<String, Image> written = new HashMap<>();
+    for (String name : command.writes()) {
+      if (local.containsKey(name)) {
+        written.put(name, local.get(name));
+      }
+    }
+    return new Outcome(position, messages.toString(), error, written);
+  }
+
+  private void render(Outcome outcome) {
+    if (outcome.messages.length() > 0) {
+      try {
+        this.view.renderMessage(outcome.messages);
+      } catch (Exception e) {
+        System.out.println("A message was unable to be rendered");
+      }
+    }
+    if (outcome.error != null) {
+      System.out.println(outcome.error);
+    }
+  }
+
+  /**
+   * An image computed by the script, and the number of commands still to read it.
+   */
+  private static class Version {
+    private final String name;
+    private int readers;
+
+    private Version(String name) {
+      this.name = name;
+    }
+  }
+
+  /**
+   * The result of executing a single command: what it would have rendered and the images it
+   * stored.
+   */
+  private static class Outcome {
+    private final int position;
+    private final String messages;
+    private final String error;
+    private final Map<String, Image> written;
+
+    private Outcome(int position, String messages, String error, Map<String, Image> written) {
+      this.position = position;
+      this.messages = messages;
+      this.error = error;
+      this.written = written;
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package controller;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Scanner;
+
+import commands.Command;
+import model.DecodeCache;
+import model.Image;
+import view.ImageView;
+
+/**
+ * Represents the stats command, which shows how the time of the program was spent: the
+ * measurements of every command executed so far, and the use of the image store, the decode cache
+ * and the result cache.
+ */
+public class Stats implements Command {
+  private final CommandMetrics metrics;
+  private final ResultCache resultCache;
+  private final NamedImages images;
+
+  /**
+   * Constructor for the stats command. The command is only ever given the images it reads, so
+   * the images of the controller are given here.
+   *
+   * @param metrics     the measurements of the commands.
+   * @param resultCache the result cache of the controller, or null if it has none.
+   * @param images      the images of the controller.
+   */
+  public Stats(CommandMetrics metrics, ResultCache resultCache, NamedImages images) {
+    if (metrics == null || images == null) {
+      throw new IllegalArgumentException("Fields cannot be null.");
+    }
+    this.metrics = metrics;
+    this.resultCache = resultCache;
+    this.images = images;
+  }
+
+  /**
+   * Shows the measurements.
+   *
+   * @param sc     the scanner of the current controller.
+   * @param view   the current view of the image.
+   * @param images the hashmap of images currently stored.
+   * @throws IOException if the measurements cannot be rendered.
+   */
+  @Override
+  public void execute(Scanner sc, ImageView view, HashMap<String, Image> images)
+          throws IOException {
+    StringBuilder text = new StringBuilder(this.metrics.toString());
+    String kept = this.images.describe();
+    if (!kept.isEmpty()) {
+      text.append(kept).append("\n");
+    }
+    text.append(DecodeCache.getInstance()).append("\n");
+    if (this.resultCache != null) {
+      text.append(this.resultCache).append("\n");
+    }
+    view.renderMessage(text.toString());
+  }
+}
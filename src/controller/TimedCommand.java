@@ -0,0 +1,118 @@
+package controller;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Scanner;
+
+import commands.Command;
+import model.CodecUsage;
+import model.Image;
+import view.ImageView;
+
+/**
+ * Represents a command whose execution is measured and reported to a command listener: the time
+ * it took, the bytes the thread executing it allocated, the size of the image it stored (or, if
+ * it stores none, of the image it read) and the time and bytes of the files it decoded and
+ * encoded on that thread. The execution is also recorded as a flight recorder event.
+ */
+public class TimedCommand implements Command {
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+  private final String name;
+  private final ScriptCommand.Argument[] signature;
+  private final Command command;
+  private final CommandListener listener;
+
+  /**
+   * Constructor for a timed command.
+   *
+   * @param name      the name of the command.
+   * @param signature the role of each argument of the command.
+   * @param command   the command that is measured.
+   * @param listener  the listener the measurements are reported to.
+   */
+  public TimedCommand(String name, ScriptCommand.Argument[] signature, Command command,
+                      CommandListener listener) {
+    if (name == null || signature == null || command == null || listener == null) {
+      throw new IllegalArgumentException("Fields cannot be null.");
+    }
+    this.name = name;
+    this.signature = signature;
+    this.command = command;
+    this.listener = listener;
+  }
+
+  /**
+   * Executes the command and reports how long it took.
+   *
+   * @param sc     the scanner of the current controller.
+   * @param view   the current view of the image.
+   * @param images the hashmap of images currently stored.
+   * @throws IOException if a message cannot be rendered.
+   */
+  @Override
+  public void execute(Scanner sc, ImageView view, HashMap<String, Image> images)
+          throws IOException {
+    List<String> arguments = new ArrayList<>();
+    for (int i = 0; i < this.signature.length && sc.hasNext(); i++) {
+      arguments.add(sc.next());
+    }
+    ScriptCommand parsed = new ScriptCommand(0, this.name, this.signature, arguments);
+
+    CommandEvent event = new CommandEvent();
+    CodecUsage codecsBefore = CodecUsage.ofCurrentThread();
+    long allocatedBefore = allocated();
+    event.begin();
+    long start = System.nanoTime();
+    try {
+      this.command.execute(parsed.scanner(), view, images);
+    } finally {
+      long nanos = System.nanoTime() - start;
+      event.end();
+      long allocatedAfter = allocated();
+      long allocated = allocatedBefore < 0 || allocatedAfter < 0 ? -1
+              : allocatedAfter - allocatedBefore;
+      long pixels = pixels(parsed, images);
+      CodecUsage codecs = CodecUsage.ofCurrentThread().since(codecsBefore);
+      this.listener.executed(this.name, nanos, allocated, pixels, codecs);
+      if (event.shouldCommit()) {
+        event.command = this.name;
+        event.arguments = String.join(" ", arguments);
+        event.pixels = pixels;
+        event.decodeTime = codecs.getDecodeNanos();
+        event.bytesRead = codecs.getBytesRead();
+        event.encodeTime = codecs.getEncodeNanos();
+        event.bytesWritten = codecs.getBytesWritten();
+        event.allocated = allocated;
+        event.commit();
+      }
+    }
+  }
+
+  private long pixels(ScriptCommand parsed, HashMap<String, Image> images) {
+    List<String> names = new ArrayList<>(parsed.writes());
+    names.addAll(parsed.reads());
+    for (String name : names) {
+      Image image = images.get(name);
+      if (image != null) {
+        return (long) image.getWidth() * image.getHeight();
+      }
+    }
+    return 0;
+  }
+
+  // the bytes allocated by the current thread so far, or -1 if the JVM does not count them.
+  private static long allocated() {
+    if (THREADS instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+      if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,153 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Writes files in the background, so that the controller can go on with the next command while
+ * an image is encoded and written. At most a fixed number of writes wait at a time; submitting
+ * another one blocks until one has finished, which keeps the images waiting to be written from
+ * filling the memory. Writes to the same file happen in the order they were submitted, and
+ * reading a file can wait for the writes to it to finish.
+ */
+public class WriteBehind {
+  private final int threads;
+  private final Semaphore slots;
+  private final Map<String, Future<String>> pending;
+  private final List<Future<String>> submitted;
+  private ExecutorService executor;
+
+  /**
+   * Constructor for a write-behind queue with a thread for every two processors, and room for
+   * two writes waiting per thread.
+   */
+  public WriteBehind() {
+    this(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+  }
+
+  /**
+   * Constructor for a write-behind queue with the given number of threads, and room for two
+   * writes waiting per thread.
+   *
+   * @param threads the number of files written at the same time.
+   */
+  public WriteBehind(int threads) {
+    if (threads <= 0) {
+      throw new IllegalArgumentException("There must be at least one thread.");
+    }
+    this.threads = threads;
+    this.slots = new Semaphore(threads * 2);
+    this.pending = new HashMap<>();
+    this.submitted = new ArrayList<>();
+  }
+
+  /**
+   * Submits a write to the given file, waiting if too many writes are waiting already. The write
+   * returns an error message if it failed, or null if it succeeded.
+   *
+   * @param file  the normalized path of the file written.
+   * @param write writes the file.
+   * @throws InterruptedException if the thread is interrupted while waiting.
+   */
+  public void submit(String file, Callable<String> write) throws InterruptedException {
+    this.slots.acquire();
+    synchronized (this) {
+      if (this.executor == null) {
+        this.executor = Executors.newFixedThreadPool(this.threads, runnable -> {
+          Thread thread = new Thread(runnable, "write-behind");
+          thread.setDaemon(true);
+          return thread;
+        });
+      }
+      Future<String> previous = this.pending.get(file);
+      Future<String> future = this.executor.submit(() -> {
+        try {
+          if (previous != null) {
+            // a later write to the same file must not finish before an earlier one.
+            waitFor(previous);
+          }
+          return write.call();
+        } catch (Exception e) {
+          return "The file " + file + " could not be written: " + e.getMessage();
+        } finally {
+          this.slots.release();
+        }
+      });
+      this.pending.put(file, future);
+      this.submitted.add(future);
+    }
+  }
+
+  /**
+   * Waits for the writes to the given file to finish.
+   *
+   * @param file the normalized path of the file.
+   */
+  public void await(String file) {
+    Future<String> future;
+    synchronized (this) {
+      future = this.pending.get(file);
+    }
+    if (future != null) {
+      waitFor(future);
+    }
+  }
+
+  /**
+   * Waits for every write submitted so far to finish, and stops the threads until the next
+   * write is submitted.
+   *
+   * @return the error messages of the writes that failed, in the order they were submitted.
+   */
+  public List<String> awaitAll() {
+    List<Future<String>> writes;
+    synchronized (this) {
+      writes = new ArrayList<>(this.submitted);
+    }
+    List<String> errors = new ArrayList<>();
+    for (Future<String> write : writes) {
+      String error = waitFor(write);
+      if (error != null) {
+        errors.add(error);
+      }
+    }
+
+    synchronized (this) {
+      this.submitted.removeAll(writes);
+      this.pending.values().removeAll(writes);
+      if (this.submitted.isEmpty() && this.executor != null) {
+        this.executor.shutdown();
+        this.executor = null;
+      }
+    }
+    return errors;
+  }
+
+  private String waitFor(Future<String> write) {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          return write.get();
+        } catch (InterruptedException e) {
+          // the write has to finish either way, so waiting goes on.
+          interrupted = true;
+        } catch (ExecutionException e) {
+          return e.getCause().getMessage();
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package controller;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Scanner;
+
+import commands.Command;
+import model.CodecRegistry;
+import model.CodecUsage;
+import model.Image;
+import view.ImageView;
+
+/**
+ * Represents a command that reads or writes files, executed with a write-behind queue. A command
+ * that reads files (such as load) first waits for the writes to those files to finish. The save
+ * command checks that the image exists and that the extension is supported straight away, and
+ * then leaves encoding and writing the image to the queue, so the next command does not wait for
+ * it. The queue is given a copy of the image, which shares its pixels until either is changed, so
+ * what is written is the image as it was when it was saved. The save is reported as queued
+ * straight away, and a save that fails is reported when the controller waits for the queue.
+ */
+public class WriteBehindCommand implements Command {
+  private static final String SAVED = "The image has been successfully saved.\n";
+  private static final String QUEUED = "The image is being saved.\n";
+
+  private final String name;
+  private final ScriptCommand.Argument[] signature;
+  private final Command command;
+  private final WriteBehind writeBehind;
+  private final CommandListener listener;
+
+  /**
+   * Constructor for a write-behind command.
+   *
+   * @param name        the name of the command.
+   * @param signature   the role of each argument of the command.
+   * @param command     the command that reads or writes the files.
+   * @param writeBehind the queue that writes the files.
+   * @param listener    the listener told about every image written, or null.
+   */
+  public WriteBehindCommand(String name, ScriptCommand.Argument[] signature, Command command,
+                            WriteBehind writeBehind, CommandListener listener) {
+    if (name == null || signature == null || command == null || writeBehind == null) {
+      throw new IllegalArgumentException("Fields cannot be null.");
+    }
+    this.name = name;
+    this.signature = signature;
+    this.command = command;
+    this.writeBehind = writeBehind;
+    this.listener = listener;
+  }
+
+  /**
+   * Executes the command, waiting for the files it reads to be written and leaving the files it
+   * writes to the write-behind queue.
+   *
+   * @param sc     the scanner of the current controller.
+   * @param view   the current view of the image.
+   * @param images the hashmap of images currently stored.
+   * @throws IOException if a message cannot be rendered.
+   */
+  @Override
+  public void execute(Scanner sc, ImageView view, HashMap<String, Image> images)
+          throws IOException {
+    List<String> arguments = new ArrayList<>();
+    for (int i = 0; i < this.signature.length && sc.hasNext(); i++) {
+      arguments.add(sc.next());
+    }
+    ScriptCommand parsed = new ScriptCommand(0, this.name, this.signature, arguments);
+    for (String file : parsed.filesRead()) {
+      this.writeBehind.await(file);
+    }
+
+    if (parsed.filesWritten().size() != 1 || parsed.reads().size() != 1
+            || arguments.size() != this.signature.length) {
+      // only saving a single image is written behind.
+      for (String file : parsed.filesWritten()) {
+        this.writeBehind.await(file);
+      }
+      this.command.execute(parsed.scanner(), view, images);
+      return;
+    }
+
+    String path = arguments.get(0);
+    String imageName = parsed.reads().get(0);
+    // checked in the same order as the save command itself checks them.
+    if (!images.containsKey(imageName)) {
+      return;
+    }
+    if (CodecRegistry.getInstance().forExtension(CodecRegistry.extensionOf(path)) == null) {
+      view.renderMessage("Extension does not exist.");
+      return;
+    }
+
+    HashMap<String, Image> snapshot = new HashMap<>();
+    snapshot.put(imageName, images.get(imageName).createCopy());
+    try {
+      this.writeBehind.submit(parsed.filesWritten().get(0), () -> {
+        StringBuilder messages = new StringBuilder();
+        long start = System.nanoTime();
+        CodecUsage before = CodecUsage.ofCurrentThread();
+        this.command.execute(parsed.scanner(), new ImageView(messages), snapshot);
+        boolean saved = messages.toString().equals(SAVED);
+        if (this.listener != null) {
+          this.listener.written(this.name, System.nanoTime() - start,
+                  saved ? CodecUsage.ofCurrentThread().since(before).getBytesWritten() : 0);
+        }
+        return saved ? null : "The image " + imageName + " could not be saved to " + path + ": "
+                + messages.toString().trim();
+      });
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting to save " + path + ".");
+    }
+    view.renderMessage(QUEUED);
+  }
+}
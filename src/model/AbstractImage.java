@@ -1,14 +1,23 @@
 package model;
 
 import java.awt.Color;
+import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.text.DecimalFormat;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.ToIntFunction;
 
 /**
  * An abstract class representing an image of any type. All images represent pixels in the same
- * manner, and the operations remain the same across all types of images.
+ * manner, and the operations remain the same across all types of images. Reading an image may
+ * turn, sample or copy its pixels, so every method that reads or changes them holds the lock of
+ * the image, and an image can be read by several threads at once.
  */
 public abstract class AbstractImage implements Image {
   protected int width;
@@ -16,7 +25,51 @@ public abstract class AbstractImage implements Image {
   protected Pixel[][] pixels;
   protected int maxValue;
   protected ImageReader imageReader;
-  protected StringBuilder imageText;
+  // true while the array of pixels may also be used by other images, the decode cache or the
+  // readers it was given out to.
+  private boolean shared;
+  // how the array of pixels is turned to give this image: the pixel at a row and column of the
+  // image is found by flipping the row and the column as set, then swapping them if the array is
+  // transposed. Flips and rotations only change it, and the array is only reordered by the
+  // operations that change it row by row or give it out.
+  private int orientation;
+
+  // a Pixel object (header and three ints) and the reference to it in the array of pixels.
+  private static final long BYTES_PER_PIXEL = 28;
+  // a gray image keeps a single byte per pixel.
+  private static final long BYTES_PER_GRAY_PIXEL = 1;
+
+  private static final int FLIP_X = 1;
+  private static final int FLIP_Y = 2;
+  private static final int TRANSPOSE = 4;
+  // the side of the square blocks an array is transposed in, so that both fit in the cache.
+  private static final int BLOCK = 64;
+  // the transforms applied to this image since its pixels were last sampled, composed into one
+  // that maps the array of pixels to the image, or null if there are none. The pixels are only
+  // sampled once, when the image is next read or changed otherwise.
+  private AffineTransform transform;
+  private Interpolation interpolation;
+  // where this image starts in its array of pixels, which is larger than the image when it is a
+  // region cut from another one. The image is read from the rows of the array from rowOffset and
+  // the columns of those rows from colOffset, before it is turned, and a region keeps sharing the
+  // array of the image it was cut from until it is changed, when only the region is copied.
+  private int rowOffset;
+  private int colOffset;
+  // the pixels of a gray image, one byte each, or null if the image is in color and its pixels
+  // are in the array of pixels. The bytes stand for an array of rows of grayStride bytes, read
+  // through the orientation and offsets as the array of pixels is, and are never changed in place,
+  // so they are shared by copies for as long as they live.
+  private byte[] gray;
+  private int grayStride;
+
+  // the pixel of every gray value, which gray images give out instead of pixels of their own.
+  private static final Pixel[] GRAYS = new Pixel[256];
+
+  static {
+    for (int i = 0; i < GRAYS.length; i++) {
+      GRAYS[i] = new Pixel(i);
+    }
+  }
 
   private enum Channel { Red, Green, Blue, Intensity }
 
@@ -37,9 +90,7 @@ public abstract class AbstractImage implements Image {
     this.imageReader = reader;
     width = reader.getImageWidth();
     height = reader.getImageHeight();
-    pixels = new Pixel[height][width];
     maxValue = reader.getMaxValue();
-    this.imageText = new StringBuilder();
   }
 
   /**
@@ -57,12 +108,27 @@ public abstract class AbstractImage implements Image {
     this.pixels = pixels;
   }
 
+  /**
+   * Secondary Image constructor for a gray image.
+   *
+   * @param width    the width of an image.
+   * @param height   the height of an image.
+   * @param maxValue the maximum value a pixel can have in an image.
+   * @param gray     the gray value of every pixel of the image, one byte each, row by row.
+   */
+  public AbstractImage(int width, int height, int maxValue, byte[] gray) {
+    this.width = width;
+    this.height = height;
+    this.maxValue = maxValue;
+    loadGray(gray);
+  }
+
   /**
    * Gets the width.
    *
    * @return the width of this image as an integer.
    */
-  public int getWidth() {
+  public synchronized int getWidth() {
     return this.width;
   }
 
@@ -71,105 +137,409 @@ public abstract class AbstractImage implements Image {
    *
    * @return the height of this image as an integer.
    */
-  public int getHeight() {
+  public synchronized int getHeight() {
     return this.height;
   }
 
+  /**
+   * Gets the maximum value a channel of a pixel of this image can have.
+   *
+   * @return the maximum value, such as 255.
+   */
+  public synchronized int getMaxValue() {
+    return this.maxValue;
+  }
+
   /**
    * Create a gray scale image, which is based off the red component in the rgb value of every
    * pixel in this image.
    */
-  public void createGrayScaleRed() {
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        pixels[i][j] = pixels[i][j].convertGrayScaleRed();
-      }
-    }
+  public synchronized void createGrayScaleRed() {
+    toGray("createGrayScaleRed", Pixel::getRed);
   }
 
   /**
    * Create a gray scale image, which is based off the green component in the rgb value of every
    * pixel in this image.
    */
-  public void createGrayScaleGreen() {
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        pixels[i][j] = pixels[i][j].convertGrayScaleGreen();
-      }
-    }
+  public synchronized void createGrayScaleGreen() {
+    toGray("createGrayScaleGreen", Pixel::getGreen);
   }
 
   /**
    * Create a gray scale image, which is based off the blue component in the rgb value of every
    * pixel in this image.
    */
-  public void createGrayScaleBlue() {
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        pixels[i][j] = pixels[i][j].convertGrayScaleBlue();
-      }
-    }
+  public synchronized void createGrayScaleBlue() {
+    toGray("createGrayScaleBlue", Pixel::getBlue);
   }
 
   /**
    * Create a gray scale image, which is based off the value of every pixel in this image.
    */
-  public void visualiseImageValue() {
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        pixels[i][j] = new Pixel(pixels[i][j].calculateValue());
-      }
-    }
+  public synchronized void visualiseImageValue() {
+    toGray("visualiseImageValue", Pixel::calculateValue);
   }
 
   /**
    * Create a gray scale image, which is based off the intensity of every pixel in this image.
    */
-  public void visualiseImageIntensity() {
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        pixels[i][j] = new Pixel(pixels[i][j].calculateIntensity());
-      }
-    }
+  public synchronized void visualiseImageIntensity() {
+    toGray("visualiseImageIntensity", Pixel::calculateIntensity);
   }
 
   /**
    * Create a gray scale image, which is based off the luma of every pixel in this image.
    */
-  public void visualiseImageLuma() {
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        pixels[i][j] = new Pixel(pixels[i][j].calculateLuma());
+  public synchronized void visualiseImageLuma() {
+    toGray("visualiseImageLuma", Pixel::calculateLuma);
+  }
+
+  /**
+   * Create a vertically flipped image of this image. No pixel is moved: the image is only marked
+   * as flipped.
+   */
+  public synchronized void verticalFlip() {
+    if (this.transform != null) {
+      this.transform.preConcatenate(new AffineTransform(1, 0, 0, -1, 0, height));
+    } else {
+      this.orientation ^= FLIP_Y;
+    }
+  }
+
+  /**
+   * Create a horizontally flipped image of this image. No pixel is moved: the image is only marked
+   * as flipped.
+   */
+  public synchronized void horizontalFlip() {
+    if (this.transform != null) {
+      this.transform.preConcatenate(new AffineTransform(-1, 0, 0, 1, width, 0));
+    } else {
+      this.orientation ^= FLIP_X;
+    }
+  }
+
+  /**
+   * Rotates this image clockwise. No pixel is moved: the image is only marked as turned.
+   *
+   * @param degrees the angle to rotate by, a multiple of 90 degrees (negative to rotate
+   *                counterclockwise).
+   */
+  public synchronized void rotate(int degrees) {
+    if (degrees % 90 != 0) {
+      throw new IllegalArgumentException("Images can only be rotated by a multiple of 90 "
+              + "degrees.");
+    }
+    for (int turns = Math.floorMod(degrees / 90, 4); turns > 0; turns--) {
+      // the row of the turned image is the column of the image, and its column the row of the
+      // image counted from the bottom.
+      if (this.transform != null) {
+        this.transform.preConcatenate(new AffineTransform(0, 1, -1, 0, height, 0));
+        int oldWidth = this.width;
+        this.width = this.height;
+        this.height = oldWidth;
+        continue;
       }
+      boolean flipX = (this.orientation & FLIP_X) != 0;
+      boolean flipY = (this.orientation & FLIP_Y) != 0;
+      this.orientation = (flipY ? 0 : FLIP_X) | (flipX ? FLIP_Y : 0)
+              | (~this.orientation & TRANSPOSE);
+      int oldWidth = this.width;
+      this.width = this.height;
+      this.height = oldWidth;
     }
   }
 
+
   /**
-   * Create a vertically flipped image of this image.
+   * Transforms this image by an affine transform, such as a rotation, a scaling, a shear or a
+   * translation. The transform is only composed with those applied before it, and the pixels are
+   * sampled once for all of them when the image is next read or changed otherwise.
+   *
+   * @param transform     maps coordinates of this image, the pixel at a row and column covering
+   *                      the square from (column, row) to (column + 1, row + 1), to the result.
+   * @param width         the width of the result.
+   * @param height        the height of the result.
+   * @param interpolation how pixels are sampled between the pixels of this image.
+   * @throws IllegalArgumentException if the transform cannot be inverted or the size is not
+   *                                  positive.
    */
-  public void verticalFlip() {
-    Pixel[][] pixelArray = new Pixel[height][width];
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        pixelArray[i][j] = pixels[height - i - 1][j];
+  public synchronized void transform(AffineTransform transform, int width, int height,
+                        Interpolation interpolation) {
+    if (transform == null || interpolation == null) {
+      throw new IllegalArgumentException("Fields cannot be null.");
+    }
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("The size of the result must be positive.");
+    }
+    if (transform.getDeterminant() == 0 || Double.isNaN(transform.getDeterminant())) {
+      throw new IllegalArgumentException("The transform cannot be inverted.");
+    }
+    if (this.transform == null) {
+      // the orientation is folded into the transform, which then maps the array itself, so a
+      // region is given an array of its own first.
+      if (isRegion()) {
+        compact();
       }
+      this.transform = orientation();
+      this.orientation = 0;
+      this.interpolation = interpolation;
+    } else if (interpolation == Interpolation.BICUBIC) {
+      this.interpolation = interpolation;
     }
-    this.pixels = pixelArray;
+    this.transform.preConcatenate(transform);
+    this.width = width;
+    this.height = height;
   }
 
   /**
-   * Create a horizontally flipped image of this image.
+   * Crops this image to a rectangular region of it. No pixel is copied: the region keeps reading
+   * the array of pixels of the image, and only the pixels of the region are read, changed or
+   * copied from then on.
+   *
+   * @param x      the column of the left edge of the region.
+   * @param y      the row of the top edge of the region.
+   * @param width  the width of the region.
+   * @param height the height of the region.
+   * @throws IllegalArgumentException if the region does not lie within this image.
    */
-  public void horizontalFlip() {
-    Pixel[][] pixelArray = new Pixel[height][width];
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        pixelArray[i][j] = pixels[i][width - j - 1];
+  public synchronized void crop(int x, int y, int width, int height) {
+    if (x < 0 || y < 0 || width <= 0 || height <= 0 || width > this.width - x
+            || height > this.height - y) {
+      throw new IllegalArgumentException("The region must lie within the image.");
+    }
+    if (this.transform != null) {
+      this.transform.preConcatenate(AffineTransform.getTranslateInstance(-x, -y));
+    } else {
+      // the region of the array the region of the image is read from, before it is turned.
+      int top = (this.orientation & FLIP_Y) != 0 ? this.height - y - height : y;
+      int left = (this.orientation & FLIP_X) != 0 ? this.width - x - width : x;
+      if ((this.orientation & TRANSPOSE) != 0) {
+        this.rowOffset += left;
+        this.colOffset += top;
+      } else {
+        this.rowOffset += top;
+        this.colOffset += left;
+      }
+    }
+    this.width = width;
+    this.height = height;
+  }
+
+  // the transform from the array of pixels to this image that the orientation stands for.
+  private AffineTransform orientation() {
+    double scaleX = (this.orientation & FLIP_X) != 0 ? -1 : 1;
+    double scaleY = (this.orientation & FLIP_Y) != 0 ? -1 : 1;
+    double moveX = (this.orientation & FLIP_X) != 0 ? width : 0;
+    double moveY = (this.orientation & FLIP_Y) != 0 ? height : 0;
+    if ((this.orientation & TRANSPOSE) != 0) {
+      return new AffineTransform(0, scaleY, scaleX, 0, moveX, moveY);
+    }
+    return new AffineTransform(scaleX, 0, 0, scaleY, moveX, moveY);
+  }
+
+  // samples the pixels of this image through the transforms applied to it since they last were.
+  private void resolve() {
+    if (this.transform == null) {
+      return;
+    }
+    Pixel[][] source = this.pixels;
+    if (this.gray != null) {
+      // the size of the image is already that of the result, so the bytes give their own.
+      source = new Pixel[this.gray.length / this.grayStride][this.grayStride];
+      for (int i = 0; i < source.length; i++) {
+        for (int j = 0; j < this.grayStride; j++) {
+          source[i][j] = GRAYS[this.gray[i * this.grayStride + j] & 0xFF];
+        }
+      }
+    }
+    Pixel[][] resampled = new Resampler(source, this.interpolation)
+            .resample(this.transform, width, height);
+    this.transform = null;
+    this.interpolation = null;
+    if (this.gray != null) {
+      // sampling between gray pixels gives gray pixels.
+      byte[] plane = new byte[width * height];
+      for (int i = 0; i < height; i++) {
+        for (int j = 0; j < width; j++) {
+          plane[i * width + j] = (byte) resampled[i][j].getRed();
+        }
+      }
+      replaceGray(plane, width, 0);
+    } else {
+      replacePixels(resampled, 0);
+    }
+  }
+
+  // the number of rows and columns of the array of pixels this image is read from.
+  private int arrayRows() {
+    return (this.orientation & TRANSPOSE) != 0 ? this.width : this.height;
+  }
+
+  private int arrayColumns() {
+    return (this.orientation & TRANSPOSE) != 0 ? this.height : this.width;
+  }
+
+  // true if this image is read from part of its array of pixels. Only meaningful while no
+  // transform is pending, as the size of the image is then that of the result.
+  private boolean isRegion() {
+    if (this.rowOffset != 0 || this.colOffset != 0) {
+      return true;
+    }
+    if (this.gray != null) {
+      return this.grayStride != arrayColumns()
+              || this.gray.length != arrayRows() * this.grayStride;
+    }
+    return this.pixels.length != arrayRows() || this.pixels[0].length != arrayColumns();
+  }
+
+  // gives this image an array of pixels of its own, laid out as the given orientation says.
+  private void replacePixels(Pixel[][] pixels, int orientation) {
+    this.pixels = pixels;
+    this.gray = null;
+    this.orientation = orientation;
+    this.rowOffset = 0;
+    this.colOffset = 0;
+    this.shared = false;
+  }
+
+  // makes this image gray, with the given bytes laid out as the given orientation says.
+  private void replaceGray(byte[] gray, int stride, int orientation) {
+    this.pixels = null;
+    this.gray = gray;
+    this.grayStride = stride;
+    this.orientation = orientation;
+    this.rowOffset = 0;
+    this.colOffset = 0;
+    this.shared = false;
+  }
+
+  // copies the region of the array of pixels or gray bytes this image is read from, laid out as
+  // it is, so that the image no longer shares it.
+  private void compact() {
+    if (this.gray == null) {
+      replacePixels(copyPixels(), this.orientation);
+      return;
+    }
+    int rows = arrayRows();
+    int columns = arrayColumns();
+    byte[] plane = new byte[rows * columns];
+    for (int i = 0; i < rows; i++) {
+      System.arraycopy(this.gray, (this.rowOffset + i) * this.grayStride + this.colOffset, plane,
+              i * columns, columns);
+    }
+    replaceGray(plane, columns, this.orientation);
+  }
+
+  // the pixel at the given row and column of the array of pixels or gray bytes, offsets included.
+  private Pixel arrayPixel(int row, int col) {
+    return this.gray != null ? GRAYS[this.gray[row * this.grayStride + col] & 0xFF]
+            : this.pixels[row][col];
+  }
+
+  // replaces every pixel of this image by the gray value the given function computes from it, so
+  // that the image keeps a single byte per pixel. The array is read as it is laid out, and the
+  // function is only applied to the 256 values of an image that is gray already.
+  private void toGray(String operation, ToIntFunction<Pixel> value) {
+    resolve();
+    PixelPassEvent pass = PixelPassEvent.start();
+    int rows = arrayRows();
+    int columns = arrayColumns();
+    Progress progress = Progress.begin(rows);
+    byte[] plane = new byte[rows * columns];
+    if (this.gray != null) {
+      byte[] table = new byte[GRAYS.length];
+      for (int i = 0; i < table.length; i++) {
+        table[i] = (byte) value.applyAsInt(GRAYS[i]);
       }
+      for (int i = 0; i < rows; i++) {
+        progress.row();
+        int start = (this.rowOffset + i) * this.grayStride + this.colOffset;
+        for (int j = 0; j < columns; j++) {
+          plane[i * columns + j] = table[this.gray[start + j] & 0xFF];
+        }
+      }
+    } else {
+      for (int i = 0; i < rows; i++) {
+        progress.row();
+        Pixel[] row = this.pixels[this.rowOffset + i];
+        for (int j = 0; j < columns; j++) {
+          plane[i * columns + j] = (byte) value.applyAsInt(row[this.colOffset + j]);
+        }
+      }
+    }
+    replaceGray(plane, columns, this.orientation);
+    pass.finish(operation, height, width, 1);
+  }
+
+  /**
+   * Tells whether this image is gray, so that it keeps a single byte per pixel instead of an
+   * array of pixels. The operations that only give gray pixels make an image gray, and those that
+   * may give it colors turn it back to an array of pixels first.
+   *
+   * @return true if this image is gray.
+   */
+  public synchronized boolean isGray() {
+    return this.gray != null;
+  }
+
+  /**
+   * Estimates the number of bytes the pixels of this image take up in memory. A region cut from a
+   * larger image, or an image whose resampling is still pending, counts the whole array of pixels
+   * it is read from, as it keeps that array alive.
+   *
+   * @return the estimated number of bytes.
+   */
+  public synchronized long estimateBytes() {
+    if (this.gray != null) {
+      return this.gray.length * BYTES_PER_GRAY_PIXEL;
     }
-    this.pixels = pixelArray;
+    if (this.pixels == null || this.pixels.length == 0) {
+      return 0;
+    }
+    return estimateBytes((long) this.pixels.length * this.pixels[0].length, false);
   }
 
+  /**
+   * Estimates the number of bytes an image of the given number of pixels takes up in memory, for
+   * when only the size of the image is known.
+   *
+   * @param pixels the number of pixels.
+   * @param gray   true if the image is gray.
+   * @return the estimated number of bytes.
+   */
+  public static long estimateBytes(long pixels, boolean gray) {
+    return pixels * (gray ? BYTES_PER_GRAY_PIXEL : BYTES_PER_PIXEL);
+  }
+
+  /**
+   * Makes this image gray, with the given gray values of its pixels row by row, which the image
+   * keeps instead of an array of pixels.
+   *
+   * @param gray the gray value of every pixel of this image, one byte each, row by row.
+   */
+  protected synchronized void loadGray(byte[] gray) {
+    if (gray == null || gray.length != this.width * this.height) {
+      throw new IllegalArgumentException("There must be a gray value for every pixel.");
+    }
+    replaceGray(gray, this.width, 0);
+    this.transform = null;
+    this.interpolation = null;
+  }
+
+  /**
+   * Gives the gray values of the pixels of this image row by row, or null if it is in color. The
+   * values must not be changed, as they may be shared with other images.
+   *
+   * @return the gray value of every pixel, one byte each, or null.
+   */
+  public synchronized byte[] returnGray() {
+    if (this.gray == null) {
+      return null;
+    }
+    orient();
+    return this.gray;
+  }
 
   /**
    * changes the brightness of the image by the specified brightness value.
@@ -177,24 +547,39 @@ public abstract class AbstractImage implements Image {
    * @param brightnessValue the value to change the brightness of the image by (can be negative to.
    *                        darken or positive to brighten).
    */
-  public void changeBrightness(int brightnessValue) {
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
+  public synchronized void changeBrightness(int brightnessValue) {
+    if (this.gray != null) {
+      // brightening a gray pixel gives a gray pixel.
+      toGray("changeBrightness", pixel -> pixel.changeBrightness(brightnessValue).getRed());
+      return;
+    }
+    ownPixels();
+    PixelPassEvent pass = PixelPassEvent.start();
+    Progress progress = Progress.begin(pixels.length);
+    for (int i = 0; i < pixels.length; i++) {
+      progress.row();
+      for (int j = 0; j < pixels[i].length; j++) {
         pixels[i][j] = pixels[i][j].changeBrightness(brightnessValue);
       }
     }
+    pass.finish("changeBrightness", height, width, 1);
   }
 
   /**
    * Create a sepia image, which is based off the value of all the channels in the rgb
    * value of every pixel in this image.
    */
-  public void createSepia() {
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
+  public synchronized void createSepia() {
+    ownPixels();
+    PixelPassEvent pass = PixelPassEvent.start();
+    Progress progress = Progress.begin(pixels.length);
+    for (int i = 0; i < pixels.length; i++) {
+      progress.row();
+      for (int j = 0; j < pixels[i].length; j++) {
         pixels[i][j] = pixels[i][j].convertSepia();
       }
     }
+    pass.finish("createSepia", height, width, 1);
   }
 
 
@@ -202,31 +587,26 @@ public abstract class AbstractImage implements Image {
    * Create a gray scale image, which is based off the value of all the channels in the
    * rgb value of every pixel in this image.
    */
-  public void createGrayScale() {
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        pixels[i][j] = pixels[i][j].convertGrayScale();
-      }
-    }
+  public synchronized void createGrayScale() {
+    toGray("createGrayScale", pixel -> pixel.convertGrayScale().getRed());
   }
 
 
   /**
    * creates a string builder in the ppm file format containing all the original image's pixels.
-   * and data.
+   * and data. The text is written by the codec that saves ppm files, so it is the text of a saved
+   * file.
    *
    * @return the string builder containing the ppm file data.
    */
-  public StringBuilder formatTextPPM() {
-    this.imageText.append("P3\n" + "# Created by GIMP version 2.10.20 PNM plug-in\n"
-            + width + " " + height + "\n255\n");
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        String[] rgb = pixels[i][j].toString().split("\n");
-        imageText.append(rgb[0] + "\n" + rgb[1] + "\n" + rgb[2] + "\n");
-      }
+  public synchronized StringBuilder formatTextPPM() {
+    ByteArrayOutputStream text = new ByteArrayOutputStream();
+    try {
+      CodecRegistry.getInstance().forExtension("ppm").encode(this, text);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
     }
-    return imageText;
+    return new StringBuilder(new String(text.toByteArray(), StandardCharsets.US_ASCII));
   }
 
   /**
@@ -235,18 +615,41 @@ public abstract class AbstractImage implements Image {
    *
    * @return the given image as a buffered image.
    */
-  public BufferedImage createImage() {
+  public synchronized BufferedImage createImage() {
+    if (this.gray != null) {
+      // a gray image gives an 8 bit gray image, which is written as such.
+      orient();
+      PixelPassEvent pass = PixelPassEvent.start();
+      BufferedImage output = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+      byte[] data = ((DataBufferByte) output.getRaster().getDataBuffer()).getData();
+      System.arraycopy(this.gray, 0, data, 0, width * height);
+      pass.finish("createImage", height, width, 1);
+      return output;
+    }
+    resolve();
+    PixelPassEvent pass = PixelPassEvent.start();
+    Progress progress = Progress.begin(height);
     BufferedImage output = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
 
-    // changed width and height here !!!
-    for (int i = 0, pos = 0; i < this.height; i++) {
-      for (int j = 0; j < this.width; j++, pos++) {
-        Pixel currentPixel = this.pixels[i][j];
-        Color c = currentPixel.convertToColor();
-        // changed j i order
-        output.setRGB(j, i, c.getRGB());
+    // a transposed array is read in blocks, so that the rows of it being read stay cached.
+    int blockWidth = (this.orientation & TRANSPOSE) != 0 ? BLOCK : this.width;
+    for (int blockRow = 0; blockRow < this.height; blockRow += BLOCK) {
+      int rowEnd = Math.min(blockRow + BLOCK, this.height);
+      for (int blockCol = 0; blockCol < this.width; blockCol += blockWidth) {
+        int colEnd = Math.min(blockCol + blockWidth, this.width);
+        for (int i = blockRow; i < rowEnd; i++) {
+          if (blockCol == 0) {
+            progress.row();
+          }
+          for (int j = blockCol; j < colEnd; j++) {
+            Pixel currentPixel = pixelAt(i, j);
+            Color c = currentPixel.convertToColor();
+            output.setRGB(j, i, c.getRGB());
+          }
+        }
       }
     }
+    pass.finish("createImage", height, width, 1);
     return output;
   }
 
@@ -257,52 +660,223 @@ public abstract class AbstractImage implements Image {
       return 0;
     }
 
+    Pixel pixel = pixelAt(row, col);
     if (channel.equals(Channel.Red)) {
-      x = this.pixels[row][col].getRed();
+      x = pixel.getRed();
     } else if (channel.equals(Channel.Blue)) {
-      x = this.pixels[row][col].getBlue();
+      x = pixel.getBlue();
     } else if (channel.equals(Channel.Intensity)) {
-      x = this.pixels[row][col].calculateIntensity();
+      x = pixel.calculateIntensity();
     } else {
-      x = this.pixels[row][col].getGreen();
+      x = pixel.getGreen();
     }
     return x;
   }
 
+  // the pixel at the given row and column of this image, wherever the array of pixels holds it.
+  private Pixel pixelAt(int row, int col) {
+    if (this.gray != null) {
+      return GRAYS[this.gray[grayIndex(row, col)] & 0xFF];
+    }
+    if (this.orientation == 0) {
+      return this.pixels[this.rowOffset + row][this.colOffset + col];
+    }
+    if ((this.orientation & FLIP_Y) != 0) {
+      row = this.height - 1 - row;
+    }
+    if ((this.orientation & FLIP_X) != 0) {
+      col = this.width - 1 - col;
+    }
+    return (this.orientation & TRANSPOSE) != 0
+            ? this.pixels[this.rowOffset + col][this.colOffset + row]
+            : this.pixels[this.rowOffset + row][this.colOffset + col];
+  }
+
+  // the position in the gray bytes of the pixel at the given row and column of this image.
+  private int grayIndex(int row, int col) {
+    if ((this.orientation & FLIP_Y) != 0) {
+      row = this.height - 1 - row;
+    }
+    if ((this.orientation & FLIP_X) != 0) {
+      col = this.width - 1 - col;
+    }
+    return (this.orientation & TRANSPOSE) != 0
+            ? (this.rowOffset + col) * this.grayStride + this.colOffset + row
+            : (this.rowOffset + row) * this.grayStride + this.colOffset + col;
+  }
+
+  // reorders the array of pixels as this image is turned, for the operations that go through it
+  // row by row, copying only the region of it this image is read from. Transposing is done in
+  // blocks, so that the rows read and written stay cached.
+  private void orient() {
+    resolve();
+    if (this.orientation == 0 && !isRegion()) {
+      return;
+    }
+    PixelPassEvent pass = PixelPassEvent.start();
+    if (this.gray != null) {
+      byte[] oriented = new byte[width * height];
+      for (int blockRow = 0; blockRow < height; blockRow += BLOCK) {
+        for (int blockCol = 0; blockCol < width; blockCol += BLOCK) {
+          for (int i = blockRow; i < Math.min(blockRow + BLOCK, height); i++) {
+            for (int j = blockCol; j < Math.min(blockCol + BLOCK, width); j++) {
+              oriented[i * width + j] = this.gray[grayIndex(i, j)];
+            }
+          }
+        }
+      }
+      replaceGray(oriented, width, 0);
+      pass.finish("orient", height, width, 1);
+      return;
+    }
+    boolean flipX = (this.orientation & FLIP_X) != 0;
+    boolean flipY = (this.orientation & FLIP_Y) != 0;
+    Pixel[][] oriented = new Pixel[height][width];
+    if ((this.orientation & TRANSPOSE) == 0) {
+      for (int i = 0; i < height; i++) {
+        Pixel[] row = this.pixels[this.rowOffset + (flipY ? height - 1 - i : i)];
+        if (flipX) {
+          for (int j = 0; j < width; j++) {
+            oriented[i][j] = row[this.colOffset + width - 1 - j];
+          }
+        } else {
+          System.arraycopy(row, this.colOffset, oriented[i], 0, width);
+        }
+      }
+    } else {
+      for (int blockRow = 0; blockRow < height; blockRow += BLOCK) {
+        for (int blockCol = 0; blockCol < width; blockCol += BLOCK) {
+          for (int i = blockRow; i < Math.min(blockRow + BLOCK, height); i++) {
+            int col = this.colOffset + (flipY ? height - 1 - i : i);
+            for (int j = blockCol; j < Math.min(blockCol + BLOCK, width); j++) {
+              oriented[i][j] = this.pixels[this.rowOffset + (flipX ? width - 1 - j : j)][col];
+            }
+          }
+        }
+      }
+    }
+    replacePixels(oriented, 0);
+    pass.finish("orient", height, width, 1);
+  }
+
   /**
    * Blurs an image.
    */
-  public void blurImage() {
+  public synchronized void blurImage() {
     model.Kernel k = new model.Kernel();
     k.setKernelBlur();
-    applyKernel(k);
+    applyKernel(k, "blurImage");
   }
 
   /**
    * Sharpens an image.
    */
-  public void sharpenImage() {
+  public synchronized void sharpenImage() {
     model.Kernel k = new model.Kernel();
     k.setKernelSharpen();
-    applyKernel(k);
+    applyKernel(k, "sharpenImage");
   }
 
-  private void applyKernel(Kernel k) {
+  private void applyKernel(Kernel k, String operation) {
+    resolve();
+    PixelPassEvent pass = PixelPassEvent.start();
+    Progress progress = Progress.begin(height);
+    if (this.gray != null) {
+      // filtering gray pixels gives gray pixels.
+      byte[] plane = new byte[width * height];
+      for (int row = 0; row < height; row++) {
+        progress.row();
+        for (int col = 0; col < width; col++) {
+          plane[row * width + col] = (byte) applyKernelToOnePixel(row, col, k).getRed();
+        }
+      }
+      replaceGray(plane, width, 0);
+      pass.finish(operation, height, width, 1);
+      return;
+    }
     Pixel[][] newPixels = new Pixel[height][width];
     for (int row = 0; row < height; row++) {
+      progress.row();
       for (int col = 0; col < width; col++) {
         newPixels[row][col] = applyKernelToOnePixel(row, col, k);
       }
     }
-    this.pixels = newPixels;
+    replacePixels(newPixels, 0);
+    pass.finish(operation, height, width, 1);
+  }
+
+  /**
+   * Copies the array of pixels of this image, or only the region of it this image is read from.
+   * Pixels cannot be changed, so the copy shares them with this image.
+   *
+   * @return a new array containing the pixels of this image, laid out as in its own array.
+   */
+  protected synchronized Pixel[][] copyPixels() {
+    int rows = arrayRows();
+    int columns = arrayColumns();
+    Pixel[][] copy = new Pixel[rows][];
+    for (int i = 0; i < rows; i++) {
+      if (this.gray != null) {
+        copy[i] = new Pixel[columns];
+        for (int j = 0; j < columns; j++) {
+          copy[i][j] = arrayPixel(this.rowOffset + i, this.colOffset + j);
+        }
+      } else {
+        copy[i] = Arrays.copyOfRange(this.pixels[this.rowOffset + i], this.colOffset,
+                this.colOffset + columns);
+      }
+    }
+    return copy;
+  }
+
+  /**
+   * Marks the array of pixels of this image as shared, so that it is copied before this image is
+   * first changed and the other users of the array keep seeing the original pixels.
+   */
+  synchronized void share() {
+    this.shared = true;
+  }
+
+  /**
+   * Lets a copy of this image share its array of pixels, turned the same way, until either image
+   * is first changed.
+   *
+   * @param copy the copy, made from the array of pixels of this image.
+   */
+  synchronized void shareWith(AbstractImage copy) {
+    copy.orientation = this.orientation;
+    copy.rowOffset = this.rowOffset;
+    copy.colOffset = this.colOffset;
+    copy.gray = this.gray;
+    copy.grayStride = this.grayStride;
+    copy.transform = this.transform == null ? null : new AffineTransform(this.transform);
+    copy.interpolation = this.interpolation;
+    copy.share();
+    share();
+  }
+
+  // copies the array of pixels if it is shared or this image is a region of it, before it is
+  // changed in place. A gray image is turned back to an array of pixels.
+  private void ownPixels() {
+    resolve();
+    if (this.shared || this.gray != null || isRegion()) {
+      replacePixels(copyPixels(), this.orientation);
+    }
   }
 
   /**
-   * A method that provides the array of pixels for testing purposes.
+   * A method that provides the array of pixels for testing purposes. The array must not be
+   * changed, as it may be shared with other images, and this image copies it before it is next
+   * changed, so that the array given out stays as it is.
    *
    * @return the array of pixels.
    */
-  public Pixel[][] returnPixels() {
+  public synchronized Pixel[][] returnPixels() {
+    orient();
+    if (this.gray != null) {
+      return copyPixels();
+    }
+    this.shared = true;
     return this.pixels;
   }
 
@@ -314,7 +888,7 @@ public abstract class AbstractImage implements Image {
    *
    * @return the product of the width and the height of the image.
    */
-  public int productWidthHeight() {
+  public synchronized int productWidthHeight() {
     return this.width * this.height;
   }
 
@@ -324,7 +898,7 @@ public abstract class AbstractImage implements Image {
    * @return A hashmap of type Integer,Integer containing all the values of the red component
    *         of every pixel and their frequency.
    */
-  public Map<Integer, Integer> getRedHistogram() {
+  public synchronized Map<Integer, Integer> getRedHistogram() {
     return getHistogramValueFrequency(Channel.Red);
   }
 
@@ -334,7 +908,7 @@ public abstract class AbstractImage implements Image {
    * @return A hashmap of type Integer,Integer containing all the values of the green component
    *         of every pixel and their frequency.
    */
-  public Map<Integer, Integer> getGreenHistogram() {
+  public synchronized Map<Integer, Integer> getGreenHistogram() {
     return getHistogramValueFrequency(Channel.Green);
   }
 
@@ -344,7 +918,7 @@ public abstract class AbstractImage implements Image {
    * @return A hashmap of type Integer,Integer containing all the values of the green component
    *         of every pixel and their frequency.
    */
-  public Map<Integer, Integer> getBlueHistogram() {
+  public synchronized Map<Integer, Integer> getBlueHistogram() {
     return getHistogramValueFrequency(Channel.Blue);
   }
 
@@ -354,21 +928,86 @@ public abstract class AbstractImage implements Image {
    * @return A hashmap of type Integer,Integer containing all the values of the intensity component
    *         of every pixel and their frequency.
    */
-  public Map<Integer, Integer> getIntensityHistogram() {
+  public synchronized Map<Integer, Integer> getIntensityHistogram() {
     return getHistogramValueFrequency(Channel.Intensity);
   }
 
+  /**
+   * Counts the red, green, blue and intensity values of every pixel in a single pass, as the
+   * four histograms above would.
+   *
+   * @return the counts of the red, green, blue and intensity values, in that order, each indexed
+   *         by the value from 0 to 255.
+   */
+  public synchronized int[][] getHistograms() {
+    resolve();
+    PixelPassEvent pass = PixelPassEvent.start();
+    int rows = arrayRows();
+    int columns = arrayColumns();
+    Progress progress = Progress.begin(rows);
+    int[][] histograms = new int[4][256];
+    int[] red = histograms[0];
+    int[] green = histograms[1];
+    int[] blue = histograms[2];
+    int[] intensity = histograms[3];
+
+    if (this.gray != null) {
+      // the gray values are counted, then every value counted as each of the four.
+      int[] values = new int[GRAYS.length];
+      for (int row = 0; row < rows; row++) {
+        progress.row();
+        int start = (this.rowOffset + row) * this.grayStride + this.colOffset;
+        for (int col = start; col < start + columns; col++) {
+          values[this.gray[col] & 0xFF]++;
+        }
+      }
+      for (int value = 0; value < values.length; value++) {
+        red[value] += values[value];
+        green[value] += values[value];
+        blue[value] += values[value];
+        intensity[GRAYS[value].calculateIntensity()] += values[value];
+      }
+      pass.finish("histograms", height, width, 1);
+      return histograms;
+    }
+    for (int row = 0; row < rows; row++) {
+      progress.row();
+      Pixel[] pixelRow = this.pixels[this.rowOffset + row];
+      for (int col = this.colOffset; col < this.colOffset + columns; col++) {
+        Pixel pixel = pixelRow[col];
+        count(red, pixel.getRed());
+        count(green, pixel.getGreen());
+        count(blue, pixel.getBlue());
+        count(intensity, pixel.calculateIntensity());
+      }
+    }
+    pass.finish("histograms", height, width, 1);
+    return histograms;
+  }
+
+  // values out of the range of the histogram are not counted, as in the maps.
+  private static void count(int[] histogram, int value) {
+    if (value >= 0 && value < histogram.length) {
+      histogram[value]++;
+    }
+  }
+
   private Map<Integer, Integer> getHistogramValueFrequency(Channel channel) {
+    resolve();
+    PixelPassEvent pass = PixelPassEvent.start();
+    Progress progress = Progress.begin(height);
     Map<Integer, Integer> histogram = new HashMap<Integer, Integer>();
     emptyHistogram(histogram);
 
     for (int row = 0; row < height; row++) {
+      progress.row();
       for (int col = 0; col < width; col++) {
         Integer alpha = getChannelAtPixel(row, col, channel);
         Integer oldValue = histogram.get(alpha);
         histogram.replace(alpha, oldValue + 1);
       }
     }
+    pass.finish("histogram" + channel, height, width, 1);
     return histogram;
   }
 
@@ -386,16 +1025,39 @@ public abstract class AbstractImage implements Image {
    * @param newWidth  The new width of the downSized image.
    * @param newHeight The new Height of the downSized image.
    */
-  public void downSize(int newWidth, int newHeight) {
+  public synchronized void downSize(int newWidth, int newHeight) {
     if (newWidth > this.width || newHeight > this.height) {
       throw new IllegalArgumentException("Please provide a smaller width and height " +
               "than the current" +
               "width and height");
     }
 
+    resolve();
+    PixelPassEvent pass = PixelPassEvent.start();
+    Progress progress = Progress.begin(newHeight + 1);
+    if (this.gray != null) {
+      // the three channels of a gray image are the same, so only one is computed, and checked
+      // as a pixel would be.
+      byte[] plane = new byte[(newHeight + 1) * (newWidth + 1)];
+      for (int row = 0; row < newHeight + 1; row++) {
+        progress.row();
+        for (int col = 0; col < newWidth + 1; col++) {
+          Double[] newCoordinates = newCoordinatesInLarger(row, col, newWidth, newHeight);
+          int newGray = computeNewPixel(newCoordinates[0], newCoordinates[1], Channel.Red);
+          plane[row * (newWidth + 1) + col] = (byte) new Pixel(newGray, newGray, newGray)
+                  .getRed();
+        }
+      }
+      replaceGray(plane, newWidth + 1, 0);
+      this.height = newHeight + 1;
+      this.width = newWidth + 1;
+      pass.finish("downSize", newHeight + 1, newWidth + 1, 1);
+      return;
+    }
     Pixel[][] newPixels = new Pixel[newHeight + 1][newWidth + 1];
 
     for (int row = 0; row < newHeight + 1; row++) {
+      progress.row();
       for (int col = 0; col < newWidth + 1; col++) {
 
         Double[] newCoordinates = newCoordinatesInLarger(row, col, newWidth, newHeight);
@@ -410,9 +1072,10 @@ public abstract class AbstractImage implements Image {
       }
     }
 
-    this.pixels = newPixels;
+    replacePixels(newPixels, 0);
     this.height = newHeight + 1;
     this.width = newWidth + 1;
+    pass.finish("downSize", newHeight + 1, newWidth + 1, 1);
   }
 
   private int computeNewPixel(double x, double y, Channel channel) {
@@ -578,29 +1241,49 @@ public abstract class AbstractImage implements Image {
 
   private void applyClipped(Image clippingMask, Operations operation) {
 
-    if (this.height != clippingMask.getHeight()) {
+    if (getHeight() != clippingMask.getHeight()) {
       throw new IllegalArgumentException("The clipping mask does not have the same dimensions" +
               "as this image");
     }
 
-    if (this.width != clippingMask.getWidth()) {
+    if (getWidth() != clippingMask.getWidth()) {
       throw new IllegalArgumentException("The clipping mask does not have the same dimensions" +
               "as this image");
     }
 
-    Pixel[][] clippingPixels = clippingMask.returnPixels();
+    // a gray mask, such as a pbm file, is read as it is kept. It is read before this image is
+    // locked, so that no thread holds the lock of one image while waiting for that of another.
+    byte[] clippingGray = clippingMask instanceof AbstractImage
+            ? ((AbstractImage) clippingMask).returnGray() : null;
+    Pixel[][] clippingPixels = clippingGray == null ? clippingMask.returnPixels() : null;
+    synchronized (this) {
+      applyClipped(clippingGray, clippingPixels, operation);
+    }
+  }
+
+  // applies the operation to the pixels of this image that are black in the gray values or the
+  // pixels of the mask.
+  private void applyClipped(byte[] clippingGray, Pixel[][] clippingPixels,
+                            Operations operation) {
+    orient();
+    PixelPassEvent pass = PixelPassEvent.start();
+    Progress progress = Progress.begin(height);
+    ownPixels();
     Pixel black = new Pixel(0);
 
     for (int row = 0; row < this.height; row++) {
+      progress.row();
       for (int col = 0; col < this.width; col++) {
 
-        if (clippingPixels[row][col].equals(black)) {
+        if (clippingGray != null ? clippingGray[row * this.width + col] == 0
+                : clippingPixels[row][col].equals(black)) {
           Pixel currentPixel = this.pixels[row][col];
 
           this.pixels[row][col] = apply(operation, currentPixel, row, col);
         }
       }
     }
+    pass.finish("clip" + operation, height, width, 1);
   }
 
   private Pixel apply(Operations operation, Pixel currentPixel, int row, int col) {
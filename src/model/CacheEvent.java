@@ -0,0 +1,81 @@
+package model;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A flight recorder event for something that happened in one of the caches of the program (the
+ * decode cache, the result cache or the image store): a hit, a miss, an eviction, or an image
+ * spilled to disk or read back from it. Spilling and reading back are timed; the rest are
+ * recorded as instants.
+ */
+@Name("imageprocessing.Cache")
+@Label("Cache Access")
+@Category({"Image Processing", "Caches"})
+@Description("A hit, miss, eviction or spill in a cache of images")
+@StackTrace(false)
+public class CacheEvent extends Event {
+  @Label("Cache")
+  String cache;
+
+  @Label("Action")
+  @Description("hit, miss, eviction, spill or reload")
+  String action;
+
+  @Label("Key")
+  String key;
+
+  @Label("Size")
+  @DataAmount
+  long bytes;
+
+  /**
+   * Records something that took no time, if a recording wants it.
+   *
+   * @param cache  the name of the cache.
+   * @param action what happened.
+   * @param key    the key of the entry it happened to.
+   * @param bytes  the size of the entry, or 0 if it is not known.
+   */
+  public static void record(String cache, String action, String key, long bytes) {
+    CacheEvent event = new CacheEvent();
+    if (event.isEnabled()) {
+      event.finish(cache, action, key, bytes);
+    }
+  }
+
+  /**
+   * Starts timing something that takes time, such as spilling an image.
+   *
+   * @return the event of the action.
+   */
+  public static CacheEvent start() {
+    CacheEvent event = new CacheEvent();
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Ends the action and records it, if a recording wants it.
+   *
+   * @param cache  the name of the cache.
+   * @param action what happened.
+   * @param key    the key of the entry it happened to.
+   * @param bytes  the size of the entry, or 0 if it is not known.
+   */
+  public void finish(String cache, String action, String key, long bytes) {
+    end();
+    if (shouldCommit()) {
+      this.cache = cache;
+      this.action = action;
+      this.key = key;
+      this.bytes = bytes;
+      commit();
+    }
+  }
+}
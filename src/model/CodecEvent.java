@@ -0,0 +1,104 @@
+package model;
+
+import java.io.File;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A flight recorder event for decoding an image from a file or encoding one into a file, with
+ * the format, the size of the image and the size of the file. Whether it is recorded or not, the
+ * time and the bytes are added to the codec usage of the thread.
+ */
+@Name("imageprocessing.Codec")
+@Label("Image Codec")
+@Category({"Image Processing", "Files"})
+@Description("Decoding or encoding an image file")
+public class CodecEvent extends Event {
+  @Label("Operation")
+  @Description("decode or encode")
+  String operation;
+
+  @Label("Path")
+  String path;
+
+  @Label("Format")
+  String format;
+
+  @Label("Width")
+  int width;
+
+  @Label("Height")
+  int height;
+
+  @Label("File Size")
+  @DataAmount
+  long bytes;
+
+  // when the decoding or encoding started, which is not recorded.
+  private transient long started;
+
+  /**
+   * Starts timing the decoding or encoding of an image.
+   *
+   * @return the event of the decoding or encoding.
+   */
+  public static CodecEvent start() {
+    CodecEvent event = new CodecEvent();
+    event.started = System.nanoTime();
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Ends the decoding or encoding of a file and records it, if a recording wants it. The format
+   * is only looked up if it is recorded.
+   *
+   * @param operation decode or encode.
+   * @param path      the path of the file.
+   * @param width     the width of the image.
+   * @param height    the height of the image.
+   */
+  public void finish(String operation, String path, int width, int height) {
+    end();
+    long length = new File(path).length();
+    CodecUsage.add(operation, System.nanoTime() - this.started, length);
+    if (shouldCommit()) {
+      record(operation, path, CodecRegistry.extensionOf(path), width, height, length);
+    }
+  }
+
+  /**
+   * Ends the decoding or encoding of a stream and records it, if a recording wants it.
+   *
+   * @param operation decode or encode.
+   * @param stream    a description of the stream.
+   * @param format    the format of the stream.
+   * @param width     the width of the image.
+   * @param height    the height of the image.
+   * @param bytes     the number of bytes of the stream, or -1 if it is not known.
+   */
+  public void finish(String operation, String stream, String format, int width, int height,
+                     long bytes) {
+    end();
+    CodecUsage.add(operation, System.nanoTime() - this.started, bytes);
+    if (shouldCommit()) {
+      record(operation, stream, format, width, height, bytes);
+    }
+  }
+
+  private void record(String operation, String path, String format, int width, int height,
+                      long bytes) {
+    this.operation = operation;
+    this.path = path;
+    this.format = format;
+    this.width = width;
+    this.height = height;
+    this.bytes = bytes;
+    commit();
+  }
+}
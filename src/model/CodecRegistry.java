@@ -0,0 +1,208 @@
+package model;
+
+import java.awt.Dimension;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+/**
+ * The codecs images are loaded and saved through. A file is loaded by the codec that recognises
+ * the first bytes of the file, read once for all codecs, or by the codec of its extension if none
+ * does, and saved by the codec of its extension. Files no codec recognises are read by ImageIO,
+ * as any file with an unknown extension always was.
+ */
+public class CodecRegistry {
+  /**
+   * The number of bytes at the start of a file that codecs recognise their files by.
+   */
+  public static final int HEADER_BYTES = 16;
+
+  private static CodecRegistry instance;
+
+  private final List<ImageCodec> codecs;
+  // reads the files that no codec recognises.
+  private final ImageCodec other = new ImageIOCodec("image", new byte[0]);
+
+  /**
+   * Constructor for a codec registry.
+   *
+   * @param codecs the codecs, the first of which is used when several of them match a file.
+   */
+  public CodecRegistry(List<ImageCodec> codecs) {
+    if (codecs == null) {
+      throw new IllegalArgumentException("Fields cannot be null.");
+    }
+    this.codecs = new ArrayList<>(codecs);
+  }
+
+  /**
+   * Gets the codec registry of the program: the codecs declared as services on the class path,
+   * followed by those of the program for ppm, pgm, pbm, png, bmp and jpg files.
+   *
+   * @return the codec registry shared by the whole program.
+   */
+  public static synchronized CodecRegistry getInstance() {
+    if (instance == null) {
+      List<ImageCodec> codecs = new ArrayList<>();
+      for (ImageCodec codec : ServiceLoader.load(ImageCodec.class)) {
+        codecs.add(codec);
+      }
+      codecs.add(new PpmCodec());
+      codecs.add(new NetpbmCodec("pgm", '2', '5'));
+      codecs.add(new NetpbmCodec("pbm", '1', '4'));
+      codecs.add(new ImageIOCodec("png", new byte[] {(byte) 0x89, 'P', 'N', 'G'}, "png"));
+      codecs.add(new ImageIOCodec("bmp", new byte[] {'B', 'M'}, "bmp"));
+      codecs.add(new ImageIOCodec("jpg", new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF},
+              "jpg"));
+      instance = new CodecRegistry(codecs);
+    }
+    return instance;
+  }
+
+  /**
+   * Gets the extension of a file, which is what follows the last dot of its name. The dots of
+   * the directories it is in are not part of it.
+   *
+   * @param path the path of the file.
+   * @return the extension in lower case, or an empty string if the name has no dot.
+   */
+  public static String extensionOf(String path) {
+    String name = new File(path).getName();
+    int dot = name.lastIndexOf('.');
+    return dot < 0 ? "" : name.substring(dot + 1).toLowerCase();
+  }
+
+  /**
+   * Finds the codec that saves files with the given extension.
+   *
+   * @param extension the extension, without the dot.
+   * @return the codec, or null if no codec saves such files.
+   */
+  public ImageCodec forExtension(String extension) {
+    for (ImageCodec codec : this.codecs) {
+      if (codec.getExtensions().contains(extension.toLowerCase())) {
+        return codec;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Finds the codec that loads a file, from the first bytes of the file, or from its extension if
+   * no codec recognises them or the file cannot be read.
+   *
+   * @param path the path of the file.
+   * @return the codec of the file.
+   */
+  public ImageCodec forFile(String path) {
+    byte[] header = readHeader(path);
+    ImageCodec codec = header == null ? this.other : forHeader(header);
+    if (codec == this.other) {
+      codec = forExtension(extensionOf(path));
+    }
+    return codec == null ? this.other : codec;
+  }
+
+  /**
+   * Finds the codec that loads an image from its first bytes, such as an image received in a
+   * stream, which has no extension to go by.
+   *
+   * @param header the first bytes of the image, as many as HEADER_BYTES, or fewer if the image is
+   *               shorter.
+   * @return the codec that recognises the bytes, or the codec that reads images through ImageIO if
+   *         none does.
+   */
+  public ImageCodec forHeader(byte[] header) {
+    if (header == null) {
+      throw new IllegalArgumentException("Fields cannot be null.");
+    }
+    for (ImageCodec codec : this.codecs) {
+      if (codec.matches(header)) {
+        return codec;
+      }
+    }
+    return this.other;
+  }
+
+  /**
+   * Loads the image in a file through the codec of the file.
+   *
+   * @param path the path of the file.
+   * @return the image in the file.
+   */
+  public Image load(String path) {
+    return forFile(path).decode(path);
+  }
+
+  /**
+   * Finds the size of the image in a file by reading its header only.
+   *
+   * @param path the path of the file.
+   * @return the width and height of the image.
+   * @throws IOException if the file cannot be read.
+   */
+  public Dimension probe(String path) throws IOException {
+    return forFile(path).probe(path);
+  }
+
+  /**
+   * Saves an image to a file through the codec of its extension.
+   *
+   * @param image the image to save.
+   * @param path  the path of the file.
+   * @throws IOException              if the file cannot be written.
+   * @throws IllegalArgumentException if no codec saves files with the extension of the path.
+   */
+  public void save(Image image, String path) throws IOException {
+    ImageCodec codec = forExtension(extensionOf(path));
+    if (codec == null) {
+      throw new IllegalArgumentException("Extension does not exist.");
+    }
+    codec.encode(image, path);
+  }
+
+  /**
+   * Gets the extensions of the files that can be saved, in the order of the codecs.
+   *
+   * @return the extensions, without the dot.
+   */
+  public List<String> getExtensions() {
+    Set<String> extensions = new LinkedHashSet<>();
+    for (ImageCodec codec : this.codecs) {
+      extensions.addAll(codec.getExtensions());
+    }
+    return new ArrayList<>(extensions);
+  }
+
+  /**
+   * Lists the extensions of the files that can be saved, for messages.
+   *
+   * @return the extensions, such as "ppm, png or jpg".
+   */
+  public String listExtensions() {
+    List<String> extensions = getExtensions();
+    if (extensions.size() < 2) {
+      return String.join("", extensions);
+    }
+    return String.join(", ", extensions.subList(0, extensions.size() - 1)) + " or "
+            + extensions.get(extensions.size() - 1);
+  }
+
+  // the first bytes of a file, or null if it cannot be read.
+  private static byte[] readHeader(String path) {
+    try (InputStream in = new FileInputStream(path)) {
+      byte[] header = new byte[HEADER_BYTES];
+      int length = in.readNBytes(header, 0, HEADER_BYTES);
+      return Arrays.copyOf(header, length);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+}
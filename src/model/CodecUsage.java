@@ -0,0 +1,100 @@
+package model;
+
+/**
+ * The decoding and encoding done by a thread: the time it took and the bytes of the files and
+ * streams read and written. Every decoding and encoding timed by a codec event is added to the
+ * usage of the thread it was done on, so that the part of a command spent in codecs can be told
+ * apart from the rest by taking the usage of its thread before and after it.
+ */
+public final class CodecUsage {
+  private static final ThreadLocal<long[]> CURRENT = ThreadLocal.withInitial(() -> new long[4]);
+
+  private final long decodeNanos;
+  private final long bytesRead;
+  private final long encodeNanos;
+  private final long bytesWritten;
+
+  /**
+   * Constructor for a usage of codecs.
+   *
+   * @param decodeNanos  the time spent decoding, in nanoseconds.
+   * @param bytesRead    the number of bytes decoded.
+   * @param encodeNanos  the time spent encoding, in nanoseconds.
+   * @param bytesWritten the number of bytes encoded.
+   */
+  public CodecUsage(long decodeNanos, long bytesRead, long encodeNanos, long bytesWritten) {
+    this.decodeNanos = decodeNanos;
+    this.bytesRead = bytesRead;
+    this.encodeNanos = encodeNanos;
+    this.bytesWritten = bytesWritten;
+  }
+
+  /**
+   * Gets the decoding and encoding done so far by the current thread.
+   *
+   * @return the usage of codecs of the current thread.
+   */
+  public static CodecUsage ofCurrentThread() {
+    long[] current = CURRENT.get();
+    return new CodecUsage(current[0], current[1], current[2], current[3]);
+  }
+
+  // adds a decoding or an encoding to the usage of the current thread.
+  static void add(String operation, long nanos, long bytes) {
+    long[] current = CURRENT.get();
+    int index = "decode".equals(operation) ? 0 : 2;
+    current[index] += nanos;
+    current[index + 1] += Math.max(bytes, 0);
+  }
+
+  /**
+   * Gets the usage of codecs since an earlier usage of the same thread.
+   *
+   * @param earlier the usage taken earlier.
+   * @return the decoding and encoding done since then.
+   */
+  public CodecUsage since(CodecUsage earlier) {
+    if (earlier == null) {
+      throw new IllegalArgumentException("Fields cannot be null.");
+    }
+    return new CodecUsage(this.decodeNanos - earlier.decodeNanos,
+            this.bytesRead - earlier.bytesRead, this.encodeNanos - earlier.encodeNanos,
+            this.bytesWritten - earlier.bytesWritten);
+  }
+
+  /**
+   * Gets the time spent decoding.
+   *
+   * @return the time in nanoseconds.
+   */
+  public long getDecodeNanos() {
+    return this.decodeNanos;
+  }
+
+  /**
+   * Gets the number of bytes of the files and streams decoded.
+   *
+   * @return the number of bytes read.
+   */
+  public long getBytesRead() {
+    return this.bytesRead;
+  }
+
+  /**
+   * Gets the time spent encoding.
+   *
+   * @return the time in nanoseconds.
+   */
+  public long getEncodeNanos() {
+    return this.encodeNanos;
+  }
+
+  /**
+   * Gets the number of bytes of the files and streams encoded.
+   *
+   * @return the number of bytes written.
+   */
+  public long getBytesWritten() {
+    return this.bytesWritten;
+  }
+}
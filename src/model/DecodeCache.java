@@ -0,0 +1,322 @@
+package model;
+
+import java.awt.Dimension;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * A cache of decoded image files, shared by the whole program. A file is identified by its
+ * canonical path, its size and the time it was last modified, so loading a file that has not
+ * changed since it was last loaded (under any name) builds the image from the pixels already
+ * decoded instead of reading and decoding the file again.
+ *
+ * <p>The images built from a cached file share its array of pixels until they are first changed,
+ * when they copy it. A file can be decoded ahead of time, and loading a file that is being
+ * decoded waits for that decoding instead of decoding the file a second time. The cache keeps
+ * within a memory limit by dropping the least recently used files, and the garbage collector may
+ * drop any of them when memory runs low.
+ */
+public class DecodeCache {
+  private static final String NAME = "decode cache";
+  private static DecodeCache instance;
+
+  private final long maxBytes;
+  private final LinkedHashMap<String, SizedReference> rasters;
+  private final HashMap<String, CompletableFuture<Raster>> decoding;
+  private long bytes;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /**
+   * Constructor for a decode cache.
+   *
+   * @param maxBytes the number of bytes the cached pixels may take up.
+   */
+  public DecodeCache(long maxBytes) {
+    if (maxBytes <= 0) {
+      throw new IllegalArgumentException("The size limit must be positive.");
+    }
+    this.maxBytes = maxBytes;
+    this.rasters = new LinkedHashMap<>(16, 0.75f, true);
+    this.decoding = new HashMap<>();
+  }
+
+  /**
+   * Gets the decode cache of the program. Its size limit is the decodeCacheSize system property
+   * in bytes, or a quarter of the memory available to the program if it is not set.
+   *
+   * @return the decode cache shared by the whole program.
+   */
+  public static synchronized DecodeCache getInstance() {
+    if (instance == null) {
+      instance = new DecodeCache(Long.getLong("decodeCacheSize",
+              Runtime.getRuntime().maxMemory() / 4));
+    }
+    return instance;
+  }
+
+  /**
+   * Loads the image in the given file, from the cache if the file has not changed since it was
+   * cached and through the given decoder otherwise.
+   *
+   * @param path    the path of the file.
+   * @param decoder reads and decodes the file if it is not cached.
+   * @return the image in the file.
+   */
+  public Image load(String path, Supplier<Image> decoder) {
+    String key = keyOf(path);
+    if (key == null) {
+      // files that cannot be found are left to the decoder to report.
+      return decoder.get();
+    }
+
+    CompletableFuture<Raster> decoding;
+    CompletableFuture<Raster> own = null;
+    synchronized (this) {
+      Raster raster = get(key);
+      if (raster != null) {
+        this.hits++;
+        CacheEvent.record(NAME, "hit", key, raster.size());
+        return raster.toImage();
+      }
+      decoding = this.decoding.get(key);
+      if (decoding == null) {
+        this.misses++;
+        CacheEvent.record(NAME, "miss", key, 0);
+        own = new CompletableFuture<>();
+        this.decoding.put(key, own);
+      }
+    }
+    if (own != null) {
+      return decode(key, decoder, own);
+    }
+
+    // the file is being decoded by another thread already, so its result is used.
+    Raster raster = decoding.join();
+    if (raster == null) {
+      return decoder.get();
+    }
+    synchronized (this) {
+      this.hits++;
+    }
+    CacheEvent.record(NAME, "hit", key, raster.size());
+    return raster.toImage();
+  }
+
+  /**
+   * Decodes the given file into the cache, unless it is cached or being decoded already. Files
+   * that do not exist are ignored.
+   *
+   * @param path the path of the file.
+   */
+  public void prefetch(String path) {
+    String key = keyOf(path);
+    if (key == null) {
+      return;
+    }
+    try {
+      // a file too large to be cached even at a byte per pixel would be decoded for nothing,
+      // and its header tells so without decoding it.
+      Dimension size = CodecRegistry.getInstance().probe(path);
+      if ((long) size.width * size.height > this.maxBytes) {
+        return;
+      }
+    } catch (IOException | RuntimeException e) {
+      // the load of the file reports the problem.
+      return;
+    }
+    CompletableFuture<Raster> decoding;
+    synchronized (this) {
+      if (get(key) != null || this.decoding.containsKey(key)) {
+        return;
+      }
+      this.misses++;
+      CacheEvent.record(NAME, "miss", key, 0);
+      decoding = new CompletableFuture<>();
+      this.decoding.put(key, decoding);
+    }
+    try {
+      decode(key, () -> CodecRegistry.getInstance().load(path), decoding);
+    } catch (RuntimeException e) {
+      // the load of the file decodes it again and reports the problem.
+    }
+  }
+
+  private Image decode(String key, Supplier<Image> decoder, CompletableFuture<Raster> decoding) {
+    Raster raster = null;
+    try {
+      Image image = decoder.get();
+      if (image instanceof AbstractImage && image.getWidth() > 0 && image.getHeight() > 0) {
+        AbstractImage decoded = (AbstractImage) image;
+        decoded.share();
+        raster = new Raster(decoded);
+        put(key, raster);
+      }
+      return image;
+    } finally {
+      synchronized (this) {
+        this.decoding.remove(key);
+      }
+      decoding.complete(raster);
+    }
+  }
+
+  /**
+   * Gets the number of files found in the cache.
+   *
+   * @return the number of hits.
+   */
+  public synchronized long getHits() {
+    return this.hits;
+  }
+
+  /**
+   * Gets the number of files that had to be decoded.
+   *
+   * @return the number of misses.
+   */
+  public synchronized long getMisses() {
+    return this.misses;
+  }
+
+  /**
+   * Gets the number of files dropped to keep the cache within its size limit.
+   *
+   * @return the number of evictions.
+   */
+  public synchronized long getEvictions() {
+    return this.evictions;
+  }
+
+  /**
+   * Gets the estimated number of bytes the cached pixels take up.
+   *
+   * @return the size of the cache in bytes.
+   */
+  public synchronized long getBytes() {
+    return this.bytes;
+  }
+
+  /**
+   * Drops every cached image, so that the next load of every file decodes it again. The hits,
+   * misses and evictions counted so far are kept.
+   */
+  public synchronized void clear() {
+    this.rasters.clear();
+    this.bytes = 0;
+  }
+
+  /**
+   * Describes the use of this cache.
+   *
+   * @return the hits, misses, evictions and size of this cache.
+   */
+  @Override
+  public synchronized String toString() {
+    return "Decode cache: " + this.hits + " hits, " + this.misses + " misses, "
+            + this.evictions + " evictions, " + this.bytes + " of " + this.maxBytes + " bytes";
+  }
+
+  // the cached raster of the given key, or null if it is not cached or was dropped.
+  private synchronized Raster get(String key) {
+    SizedReference reference = this.rasters.get(key);
+    Raster raster = reference == null ? null : reference.get();
+    if (raster == null && reference != null) {
+      // dropped by the garbage collector.
+      this.rasters.remove(key);
+      this.bytes -= reference.size;
+      CacheEvent.record(NAME, "eviction", key, reference.size);
+    }
+    return raster;
+  }
+
+  private synchronized void put(String key, Raster raster) {
+    long size = raster.size();
+    if (size > this.maxBytes) {
+      return;
+    }
+    SizedReference previous = this.rasters.put(key, new SizedReference(raster, size));
+    if (previous != null) {
+      this.bytes -= previous.size;
+    }
+    this.bytes += size;
+
+    List<String> eldest = new ArrayList<>(this.rasters.keySet());
+    for (int i = 0; i < eldest.size() && this.bytes > this.maxBytes; i++) {
+      long evicted = this.rasters.remove(eldest.get(i)).size;
+      this.bytes -= evicted;
+      this.evictions++;
+      CacheEvent.record(NAME, "eviction", eldest.get(i), evicted);
+    }
+  }
+
+  private String keyOf(String path) {
+    try {
+      File file = new File(path).getCanonicalFile();
+      if (!file.isFile()) {
+        return null;
+      }
+      return file.getPath() + "|" + file.length() + "|" + file.lastModified();
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * A soft reference to a raster that remembers how much memory the raster takes up, so the
+   * size of the cache can be kept after the garbage collector drops it.
+   */
+  private static class SizedReference extends SoftReference<Raster> {
+    private final long size;
+
+    private SizedReference(Raster raster, long size) {
+      super(raster);
+      this.size = size;
+    }
+  }
+
+  /**
+   * The decoded pixels of a file, which are never changed.
+   */
+  private static class Raster {
+    private final int width;
+    private final int height;
+    private final int maxValue;
+    private final Pixel[][] pixels;
+    // the gray values of a gray file, kept instead of the pixels.
+    private final byte[] gray;
+    private final boolean ppm;
+
+    private Raster(AbstractImage image) {
+      this.width = image.getWidth();
+      this.height = image.getHeight();
+      this.maxValue = image.maxValue;
+      this.gray = image.returnGray();
+      this.pixels = this.gray == null ? image.returnPixels() : null;
+      this.ppm = image instanceof ImagePPM;
+    }
+
+    private Image toImage() {
+      AbstractImage image = this.ppm
+              ? new ImagePPM(this.width, this.height, this.maxValue, this.pixels)
+              : new ImageOther(this.width, this.height, this.maxValue, this.pixels);
+      if (this.gray != null) {
+        image.loadGray(this.gray);
+      }
+      image.share();
+      return image;
+    }
+
+    private long size() {
+      return AbstractImage.estimateBytes((long) this.width * this.height, this.gray != null);
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package model;
 
+import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.util.Map;
 
@@ -22,6 +23,13 @@ public interface Image {
    */
   int getHeight();
 
+  /**
+   * Gets the maximum value a channel of a pixel of this image can have.
+   *
+   * @return the maximum value, such as 255.
+   */
+  int getMaxValue();
+
   /**
    * This operations regards loading an image, instantiating it, details are implementation
    * dependant.
@@ -78,6 +86,41 @@ public interface Image {
    */
   void horizontalFlip();
 
+  /**
+   * Rotates this image clockwise.
+   *
+   * @param degrees the angle to rotate by, a multiple of 90 degrees (negative to rotate
+   *                counterclockwise).
+   */
+  void rotate(int degrees);
+
+  /**
+   * Transforms this image by an affine transform, such as a rotation, a scaling, a shear or a
+   * translation. Consecutive transforms, flips and rotations are composed, and the pixels are
+   * sampled once for all of them when the image is next read or changed otherwise.
+   *
+   * @param transform     maps coordinates of this image, the pixel at a row and column covering
+   *                      the square from (column, row) to (column + 1, row + 1), to the result.
+   * @param width         the width of the result.
+   * @param height        the height of the result.
+   * @param interpolation how pixels are sampled between the pixels of this image.
+   * @throws IllegalArgumentException if the transform cannot be inverted or the size is not
+   *                                  positive.
+   */
+  void transform(AffineTransform transform, int width, int height, Interpolation interpolation);
+
+  /**
+   * Crops this image to a rectangular region of it. The region shares the pixels of the image,
+   * so every operation applied to it afterwards only reads and changes the pixels of the region.
+   *
+   * @param x      the column of the left edge of the region.
+   * @param y      the row of the top edge of the region.
+   * @param width  the width of the region.
+   * @param height the height of the region.
+   * @throws IllegalArgumentException if the region does not lie within this image.
+   */
+  void crop(int x, int y, int width, int height);
+
   /**
    * Changes the brightness of the image by the specific brightness value.
    */
@@ -95,10 +138,27 @@ public interface Image {
    * Translates the given image class to a buffered Image so the image can be written as a file
    * with an extension other than ppm.
    *
-   * @return the given image as a buffered image.
+   * @return the given image as a buffered image, with 8 bit gray pixels if the image is gray.
    */
   BufferedImage createImage();
 
+  /**
+   * Tells whether this image is gray, so that it keeps a single byte per pixel. The operations
+   * that only give gray pixels make an image gray, and the others accept gray images.
+   *
+   * @return true if this image is gray.
+   */
+  boolean isGray();
+
+  /**
+   * Estimates the number of bytes the pixels of this image take up in memory. A region cut from a
+   * larger image, or an image whose resampling is still pending, counts the whole array of pixels
+   * it is read from, as it keeps that array alive.
+   *
+   * @return the estimated number of bytes.
+   */
+  long estimateBytes();
+
   /**
    * Blurs an image.
    */
@@ -126,6 +186,14 @@ public interface Image {
    */
   Pixel[][] returnPixels();
 
+  /**
+   * Gives the gray values of the pixels of this image row by row, or null if it is in color. The
+   * values must not be changed, as they may be shared with other images.
+   *
+   * @return the gray value of every pixel, one byte each, or null.
+   */
+  byte[] returnGray();
+
   /**
    * Gets the width and height of this image and multiplies them, obtaining the product. This
    * implementation exists solely for the purpose of the histogram.
@@ -166,6 +234,15 @@ public interface Image {
    */
   Map<Integer, Integer> getIntensityHistogram();
 
+  /**
+   * Counts the red, green, blue and intensity values of every pixel in a single pass, as the
+   * four histograms above would.
+   *
+   * @return the counts of the red, green, blue and intensity values, in that order, each indexed
+   *         by the value from 0 to 255.
+   */
+  int[][] getHistograms();
+
   /**
    * Downsizes this image to a smaller version of itself based on the new parameters given.
    *
@@ -0,0 +1,123 @@
+package model;
+
+import java.awt.Dimension;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * Represents a file format that images can be loaded from and saved to. The codecs of the
+ * program are found through the codec registry, which recognises a file by the magic bytes at
+ * its start, or by its extension when it is saved. Other codecs, such as faster ones for a format
+ * already supported, are added by declaring them as services of this interface in
+ * META-INF/services/model.ImageCodec on the class path, and take precedence over the codecs of
+ * the program.
+ */
+public interface ImageCodec {
+
+  /**
+   * Gets the name of the format of this codec.
+   *
+   * @return the name of the format, such as png.
+   */
+  String getFormat();
+
+  /**
+   * Gets the extensions of the files this codec saves.
+   *
+   * @return the extensions, in lower case and without the dot.
+   */
+  List<String> getExtensions();
+
+  /**
+   * Tells whether a file is in the format of this codec, from the first bytes of the file.
+   *
+   * @param header the first bytes of the file, as many as CodecRegistry.HEADER_BYTES, or fewer if
+   *               the file is shorter.
+   * @return true if the file is in the format of this codec.
+   */
+  boolean matches(byte[] header);
+
+  /**
+   * Finds the size of the image in a file by reading its header only.
+   *
+   * @param path the path of the file.
+   * @return the width and height of the image.
+   * @throws IOException if the file cannot be read.
+   */
+  Dimension probe(String path) throws IOException;
+
+  /**
+   * Loads the image in a file, decoding all of its pixels at once.
+   *
+   * @param path the path of the file.
+   * @return the image in the file.
+   */
+  Image decode(String path);
+
+  /**
+   * Loads the image in a stream, such as the body of a request. Codecs that can decode a stream
+   * as it is received override this, and the others save it to a temporary file first.
+   *
+   * @param in the stream, positioned at the start of the image, which is left open.
+   * @return the image in the stream.
+   * @throws IOException if the stream cannot be read.
+   */
+  default Image decode(InputStream in) throws IOException {
+    File file = File.createTempFile("image", "." + getFormat());
+    try {
+      Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      return decode(file.getPath());
+    } finally {
+      file.delete();
+    }
+  }
+
+  /**
+   * Loads a rectangular region of the image in a file. Codecs that can decode part of a file
+   * override this to only decode the region, and the others decode the whole file and crop it.
+   *
+   * @param path   the path of the file.
+   * @param x      the column of the left edge of the region.
+   * @param y      the row of the top edge of the region.
+   * @param width  the width of the region.
+   * @param height the height of the region.
+   * @return the region of the image in the file.
+   * @throws IllegalArgumentException if the region does not lie within the image.
+   */
+  default Image decodeRegion(String path, int x, int y, int width, int height) {
+    Image image = decode(path);
+    image.crop(x, y, width, height);
+    return image;
+  }
+
+  /**
+   * Writes an image in the format of this codec to a stream, as it is encoded.
+   *
+   * @param image the image to write.
+   * @param out   the stream to write to, which is left open.
+   * @throws IOException if the stream cannot be written.
+   */
+  void encode(Image image, OutputStream out) throws IOException;
+
+  /**
+   * Saves an image in the format of this codec to a file.
+   *
+   * @param image the image to save.
+   * @param path  the path of the file.
+   * @throws IOException if the file cannot be written.
+   */
+  default void encode(Image image, String path) throws IOException {
+    CodecEvent event = CodecEvent.start();
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(path), 1 << 16)) {
+      encode(image, out);
+    }
+    event.finish("encode", path, image.getWidth(), image.getHeight());
+  }
+}
@@ -0,0 +1,101 @@
+package model;
+
+import java.awt.Dimension;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * The codec of a format that ImageIO reads and writes, such as png, bmp or jpg.
+ */
+final class ImageIOCodec implements ImageCodec {
+  private final String format;
+  private final byte[] magic;
+  private final List<String> extensions;
+
+  /**
+   * Constructor for an ImageIO codec.
+   *
+   * @param format     the name ImageIO writes the format by.
+   * @param magic      the bytes the files of the format begin with, or none to recognise no file.
+   * @param extensions the extensions of the files of the format.
+   */
+  ImageIOCodec(String format, byte[] magic, String... extensions) {
+    this.format = format;
+    this.magic = magic;
+    this.extensions = List.of(extensions);
+  }
+
+  @Override
+  public String getFormat() {
+    return this.format;
+  }
+
+  @Override
+  public List<String> getExtensions() {
+    return this.extensions;
+  }
+
+  @Override
+  public boolean matches(byte[] header) {
+    return this.magic.length > 0 && header.length >= this.magic.length
+            && Arrays.equals(header, 0, this.magic.length, this.magic, 0, this.magic.length);
+  }
+
+  @Override
+  public Dimension probe(String path) throws IOException {
+    try (ImageInputStream in = ImageIO.createImageInputStream(new File(path))) {
+      Iterator<javax.imageio.ImageReader> readers = in == null ? null
+              : ImageIO.getImageReaders(in);
+      if (readers == null || !readers.hasNext()) {
+        throw new IOException("The file " + path + " cannot be read.");
+      }
+      javax.imageio.ImageReader reader = readers.next();
+      try {
+        // the size is in the header, so no pixel is read.
+        reader.setInput(in, true, true);
+        return new Dimension(reader.getWidth(0), reader.getHeight(0));
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  @Override
+  public Image decode(String path) {
+    ImageReader reader = new ImageReaderGen();
+    reader.readOther(path);
+    return new ImageOther(reader);
+  }
+
+  @Override
+  public Image decode(InputStream in) throws IOException {
+    ImageReaderGen reader = new ImageReaderGen();
+    reader.readOther(in);
+    return new ImageOther(reader);
+  }
+
+  @Override
+  public Image decodeRegion(String path, int x, int y, int width, int height) {
+    ImageReader reader = new ImageReaderGen();
+    reader.readOtherRegion(path, x, y, width, height);
+    return new ImageOther(reader);
+  }
+
+  @Override
+  public void encode(Image image, OutputStream out) throws IOException {
+    new ImageWriterGen(image).writeOther(out, this.format);
+  }
+
+  @Override
+  public void encode(Image image, String path) {
+    new ImageWriterGen(image).writeImageOther(path, this.format);
+  }
+}
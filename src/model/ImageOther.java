@@ -31,15 +31,41 @@ public class ImageOther extends AbstractImage {
    */
   public ImageOther(int width, int height, int maxValue, Pixel[][] pixels) {
     super(width, height, maxValue, pixels);
-    loadImage();
+  }
+
+  /**
+   * Secondary Image constructor for a gray image.
+   *
+   * @param width    the width of an image.
+   * @param height   the height of an image.
+   * @param maxValue the maximum value a pixel can have in an image.
+   * @param gray     the gray value of every pixel of the image, one byte each, row by row.
+   */
+  public ImageOther(int width, int height, int maxValue, byte[] gray) {
+    super(width, height, maxValue, gray);
   }
 
 
   /**
-   * gets the rgb values of each pixel and adds it to the 2D array of pixels of this image.
+   * gets the rgb values of each pixel and adds it to the 2D array of pixels of this image, or the
+   * gray values of a gray image or of a pgm or pbm file. An image that was created from its
+   * pixels has nothing to load.
    */
   @Override
   public void loadImage() {
+    if (this.imageReader != null && this.imageReader.getGray() != null) {
+      loadGray(this.imageReader.getGray());
+      return;
+    }
+    if (this.image == null) {
+      return;
+    }
+    if (this.image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+      // gray files stay gray, read as they are stored: getRGB would convert them to another color
+      // space, and lighten them.
+      loadGray((byte[]) this.image.getRaster().getDataElements(0, 0, width, height, null));
+      return;
+    }
     this.pixels = new Pixel[height][width];
     for (int i = 0; i < height; i++) {
       for (int j = 0; j < width; j++) {
@@ -52,22 +78,15 @@ public class ImageOther extends AbstractImage {
   }
 
   /**
-   * Creates a new copy of the given Image, that is separate from this image.
+   * Creates a new copy of the given Image, that is separate from this image. The copy shares the
+   * array of pixels with this image until either of them is changed, so copying takes no time.
    *
    * @return A new image which is a copy of this image.
    */
   @Override
-  public Image createCopy() {
-    AbstractImage newImage = new ImageOther(this.imageReader);
-    Pixel[][] test = new Pixel[height][width];
-
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        Pixel current = this.pixels[i][j];
-        test[i][j] = current;
-      }
-    }
-    newImage.pixels = test;
-    return newImage;
+  public synchronized Image createCopy() {
+    ImageOther copy = new ImageOther(this.width, this.height, this.maxValue, this.pixels);
+    shareWith(copy);
+    return copy;
   }
 }
@@ -26,14 +26,30 @@ public class ImagePPM extends AbstractImage {
    */
   public ImagePPM(int width, int height, int maxValue, Pixel[][] pixels) {
     super(width, height, maxValue, pixels);
-    loadImage();
   }
 
   /**
-   * gets the rgb values of each pixel and adds it to the 2D array of pixels of this image.
+   * Secondary Image constructor for a gray image.
+   *
+   * @param width    the width of an image.
+   * @param height   the height of an image.
+   * @param maxValue the maximum value a pixel can have in an image.
+   * @param gray     the gray value of every pixel of the image, one byte each, row by row.
+   */
+  public ImagePPM(int width, int height, int maxValue, byte[] gray) {
+    super(width, height, maxValue, gray);
+  }
+
+  /**
+   * gets the rgb values of each pixel and adds it to the 2D array of pixels of this image. An
+   * image that was created from its pixels has nothing to load.
    */
   public void loadImage() {
+    if (this.imageReader == null) {
+      return;
+    }
     String[] array = this.imageReader.provideRGBAsString();
+    this.pixels = new Pixel[height][width];
     for (int i = 0; i < height; i++) {
       for (int j = 0; j < width; j++) {
         String[] redGreenBlue = array[i * width + j].split(",");
@@ -45,22 +61,15 @@ public class ImagePPM extends AbstractImage {
   }
 
   /**
-   * Creates a new copy of the given Image, that is separate from this image.
+   * Creates a new copy of the given Image, that is separate from this image. The copy shares the
+   * array of pixels with this image until either of them is changed, so copying takes no time.
    *
    * @return A new image which is a copy of this image.
    */
   @Override
-  public Image createCopy() {
-    AbstractImage newImage = new ImagePPM(this.imageReader);
-    Pixel[][] test = new Pixel[height][width];
-
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        Pixel current = this.pixels[i][j];
-        test[i][j] = current;
-      }
-    }
-    newImage.pixels = test;
-    return newImage;
+  public synchronized Image createCopy() {
+    ImagePPM copy = new ImagePPM(this.width, this.height, this.maxValue, this.pixels);
+    shareWith(copy);
+    return copy;
   }
 }
\ No newline at end of file
@@ -16,6 +16,33 @@ public interface ImageReader {
 
   void readOther(String filepath);
 
+  /**
+   * Read a rectangular region of an image file in a non-ppm format, decoding only the pixels of
+   * the region where the format allows it.
+   *
+   * @param filePath the path of the file.
+   * @param x        the column of the left edge of the region.
+   * @param y        the row of the top edge of the region.
+   * @param width    the width of the region.
+   * @param height   the height of the region.
+   * @throws IllegalArgumentException if the region does not lie within the image.
+   */
+  void readOtherRegion(String filePath, int x, int y, int width, int height);
+
+  /**
+   * Read a gray PGM file, plain (P2) or raw (P5), into a single gray value per pixel.
+   *
+   * @param filePath the path of the file.
+   */
+  void readPGM(String filePath);
+
+  /**
+   * Read a black and white PBM file, plain (P1) or raw (P4), into a single gray value per pixel.
+   *
+   * @param filePath the path of the file.
+   */
+  void readPBM(String filePath);
+
   /**
    * A method that contains the height of the Image.
    *
@@ -51,4 +78,12 @@ public interface ImageReader {
    */
   BufferedImage getImage();
 
+  /**
+   * A method that provides the gray values of a PGM or PBM file.
+   *
+   * @return the gray value of every pixel, one byte each row by row, or null if the file read
+   *         was not gray.
+   */
+  byte[] getGray();
+
 }
@@ -1,13 +1,21 @@
 package model;
 
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
 import java.util.Scanner;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.stream.ImageInputStream;
 
 /**
  * Represents a general image reader.
@@ -17,6 +25,7 @@ public class ImageReaderGen implements ImageReader {
   private int height;
   private int width;
   private int maxValue = 255;
+  private byte[] gray;
   private final StringBuilder rgbValues = new StringBuilder();
 
 
@@ -26,6 +35,7 @@ public class ImageReaderGen implements ImageReader {
    * @param filePath the path of the file.
    */
   public void readOther(String filePath) {
+    CodecEvent event = CodecEvent.start();
     try {
       this.image = ImageIO.read(new File(filePath));
     } catch (IOException e) {
@@ -33,6 +43,66 @@ public class ImageReaderGen implements ImageReader {
     }
     this.height = image.getHeight();
     this.width = image.getWidth();
+    event.finish("decode", filePath, this.width, this.height);
+  }
+
+  /**
+   * Read an image in a non-ppm format from a stream, as it is received, and store the relevant
+   * information. The stream is left open.
+   *
+   * @param in the stream, positioned at the start of the image.
+   * @throws IOException              if the stream cannot be read.
+   * @throws IllegalArgumentException if no reader of ImageIO recognises the image.
+   */
+  void readOther(InputStream in) throws IOException {
+    BufferedImage decoded = ImageIO.read(in);
+    if (decoded == null) {
+      throw new IllegalArgumentException("The image is in a format that cannot be read.");
+    }
+    this.image = decoded;
+    this.height = decoded.getHeight();
+    this.width = decoded.getWidth();
+  }
+
+  /**
+   * Read a rectangular region of an image file in a non-ppm format and store the relevant
+   * information. Only the rows of the region are decoded, and only the columns of the region are
+   * kept.
+   *
+   * @param filePath the path of the file.
+   * @param x        the column of the left edge of the region.
+   * @param y        the row of the top edge of the region.
+   * @param width    the width of the region.
+   * @param height   the height of the region.
+   * @throws IllegalArgumentException if the region does not lie within the image.
+   */
+  public void readOtherRegion(String filePath, int x, int y, int width, int height) {
+    CodecEvent event = CodecEvent.start();
+    try (ImageInputStream in = ImageIO.createImageInputStream(new File(filePath))) {
+      Iterator<javax.imageio.ImageReader> readers = in == null ? null
+              : ImageIO.getImageReaders(in);
+      if (readers == null || !readers.hasNext()) {
+        throw new IllegalArgumentException("The file " + filePath + " cannot be read.");
+      }
+      javax.imageio.ImageReader reader = readers.next();
+      try {
+        reader.setInput(in, true, true);
+        if (x < 0 || y < 0 || width <= 0 || height <= 0 || x > reader.getWidth(0) - width
+                || y > reader.getHeight(0) - height) {
+          throw new IllegalArgumentException("The region must lie within the image.");
+        }
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceRegion(new Rectangle(x, y, width, height));
+        this.image = reader.read(0, param);
+      } finally {
+        reader.dispose();
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    this.height = image.getHeight();
+    this.width = image.getWidth();
+    event.finish("decode", filePath, this.width, this.height);
   }
 
 
@@ -42,19 +112,35 @@ public class ImageReaderGen implements ImageReader {
    * @param filePath the path of the file.
    */
   public void readPPM(String filePath) {
-    StringBuilder heightWidth = new StringBuilder();
-    Scanner sc;
-
+    CodecEvent event = CodecEvent.start();
+    InputStream file;
     try {
-      sc = new Scanner(new FileInputStream(filePath));
+      file = new FileInputStream(filePath);
     } catch (FileNotFoundException e) {
       System.out.println("File " + filePath + " not found!");
       return;
     }
+    try (InputStream in = file) {
+      readPPM(in);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    event.finish("decode", filePath, this.width, this.height);
+  }
+
+  /**
+   * Read an image in the PPM format from a stream and store the relevant information. The stream
+   * is left open.
+   *
+   * @param in the stream, positioned at the start of the image.
+   */
+  void readPPM(InputStream in) {
+    StringBuilder heightWidth = new StringBuilder();
+    Scanner sc = new Scanner(in);
     StringBuilder builder = new StringBuilder();
     while (sc.hasNextLine()) {
       String s = sc.nextLine();
-      if (s.charAt(0) != '#') {
+      if (!s.startsWith("#")) {
         builder.append(s + System.lineSeparator());
       }
     }
@@ -91,6 +177,166 @@ public class ImageReaderGen implements ImageReader {
   }
 
 
+  /**
+   * Read a gray PGM file, plain (P2) or raw (P5), and store the relevant information. The gray
+   * values are scaled from the maximum value of the file to 255, and the pixels of a raw file are
+   * read in a single bulk read.
+   *
+   * @param filePath the path of the file.
+   */
+  public void readPGM(String filePath) {
+    readGray(filePath, '2', '5');
+  }
+
+  /**
+   * Read a black and white PBM file, plain (P1) or raw (P4), and store the relevant information.
+   * Black pixels have the gray value 0 and white ones 255, and the packed bits of a raw file are
+   * read in a single bulk read.
+   *
+   * @param filePath the path of the file.
+   */
+  public void readPBM(String filePath) {
+    readGray(filePath, '1', '4');
+  }
+
+  // reads a PBM or PGM file whose magic number is P followed by either of the given characters.
+  private void readGray(String filePath, char plain, char raw) {
+    CodecEvent event = CodecEvent.start();
+    try (InputStream in = new BufferedInputStream(new FileInputStream(filePath), 1 << 16)) {
+      readGray(in, filePath, plain, raw);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    event.finish("decode", filePath, this.width, this.height);
+  }
+
+  /**
+   * Read a PGM or PBM image from a stream, whose magic number is P followed by either of the
+   * given characters, and store the relevant information. The stream is left open.
+   *
+   * @param stream the stream, positioned at the start of the image.
+   * @param source what the stream is read from, for the messages of errors.
+   * @param plain  the character after the P of a plain image.
+   * @param raw    the character after the P of a raw image.
+   * @throws IOException if the stream cannot be read.
+   */
+  void readGray(InputStream stream, String source, char plain, char raw) throws IOException {
+    DataInputStream in = new DataInputStream(stream);
+    try {
+      int magic = in.read() == 'P' ? in.read() : -1;
+      if (magic != plain && magic != raw) {
+        throw new IllegalArgumentException("Invalid file: " + source + " should begin with P"
+                + plain + " or P" + raw);
+      }
+      boolean bitmap = plain == '1';
+      int width = nextNumber(in);
+      int height = nextNumber(in);
+      int maxValue = bitmap ? 1 : nextNumber(in);
+      if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE - 8) {
+        throw new IllegalArgumentException("Invalid file: " + source + " has an invalid size");
+      }
+      if (maxValue <= 0 || maxValue > 65535) {
+        throw new IllegalArgumentException("Invalid file: " + source
+                + " has an invalid maximum value");
+      }
+
+      byte[] gray = new byte[width * height];
+      if (bitmap && magic == raw) {
+        // rows of packed bits, the first pixel in the highest bit, where 1 is black.
+        int rowBytes = (width + 7) / 8;
+        byte[] bits = new byte[rowBytes * height];
+        in.readFully(bits);
+        for (int i = 0; i < height; i++) {
+          for (int j = 0; j < width; j++) {
+            boolean black = (bits[i * rowBytes + j / 8] & (0x80 >> (j % 8))) != 0;
+            gray[i * width + j] = (byte) (black ? 0 : 255);
+          }
+        }
+      } else if (bitmap) {
+        for (int i = 0; i < gray.length; i++) {
+          gray[i] = (byte) (nextBit(in) == 1 ? 0 : 255);
+        }
+      } else if (magic == raw && maxValue < 256) {
+        in.readFully(gray);
+        if (maxValue != 255) {
+          byte[] scaled = new byte[256];
+          for (int value = 0; value <= maxValue; value++) {
+            scaled[value] = (byte) scale(value, maxValue);
+          }
+          for (int i = 0; i < gray.length; i++) {
+            gray[i] = scaled[Math.min(gray[i] & 0xFF, maxValue)];
+          }
+        }
+      } else if (magic == raw) {
+        // two bytes per value, the most significant first.
+        byte[] values = new byte[2 * gray.length];
+        in.readFully(values);
+        for (int i = 0; i < gray.length; i++) {
+          int value = ((values[2 * i] & 0xFF) << 8) | (values[2 * i + 1] & 0xFF);
+          gray[i] = (byte) scale(Math.min(value, maxValue), maxValue);
+        }
+      } else {
+        for (int i = 0; i < gray.length; i++) {
+          gray[i] = (byte) scale(Math.min(nextNumber(in), maxValue), maxValue);
+        }
+      }
+
+      this.width = width;
+      this.height = height;
+      this.maxValue = 255;
+      this.gray = gray;
+      this.image = null;
+    } catch (EOFException e) {
+      throw new IllegalArgumentException("Invalid file: " + source + " ends too early");
+    }
+  }
+
+  private static int scale(int value, int maxValue) {
+    return maxValue == 255 ? value : (value * 255 + maxValue / 2) / maxValue;
+  }
+
+  // skips the whitespace and comments before the next number of the header or of a plain file,
+  // and reads it along with the single whitespace character after it. The codecs probe the
+  // headers of netpbm files with it too.
+  static int nextNumber(InputStream in) throws IOException {
+    int c = skipWhitespace(in);
+    if (c < '0' || c > '9') {
+      throw new IllegalArgumentException("Invalid file: a number was expected");
+    }
+    long number = 0;
+    while (c >= '0' && c <= '9') {
+      number = Math.min(number * 10 + (c - '0'), Integer.MAX_VALUE);
+      c = in.read();
+    }
+    return (int) number;
+  }
+
+  // the digits of a plain PBM file need not be separated.
+  private static int nextBit(InputStream in) throws IOException {
+    int c = skipWhitespace(in);
+    if (c != '0' && c != '1') {
+      throw new IllegalArgumentException("Invalid file: a 0 or a 1 was expected");
+    }
+    return c - '0';
+  }
+
+  private static int skipWhitespace(InputStream in) throws IOException {
+    int c = in.read();
+    while (c == '#' || Character.isWhitespace(c)) {
+      if (c == '#') {
+        while (c != '\n' && c != '\r' && c != -1) {
+          c = in.read();
+        }
+      } else {
+        c = in.read();
+      }
+    }
+    if (c == -1) {
+      throw new EOFException();
+    }
+    return c;
+  }
+
   /**
    * A method that contains the height of the Image.
    *
@@ -135,4 +381,14 @@ public class ImageReaderGen implements ImageReader {
   public BufferedImage getImage() {
     return this.image;
   }
+
+  /**
+   * A method that provides the gray values of a PGM or PBM file.
+   *
+   * @return the gray value of every pixel, one byte each row by row, or null if the file read
+   *         was not gray.
+   */
+  public byte[] getGray() {
+    return this.gray;
+  }
 }
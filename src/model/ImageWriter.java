@@ -22,4 +22,23 @@ public interface ImageWriter {
    * @param extension represents the extension of the file. (png, jpg, bmp ...)
    */
   void writeImageOther(String fileName, String extension);
+
+  /**
+   * A method that writes a file to the local device as a gray PGM Image, one byte per pixel.
+   *
+   * @param file  represents the name and directory of the file.
+   * @param plain true to write the plain (P2) format instead of the raw (P5) one.
+   * @throws IOException if the file cannot be written.
+   */
+  void writeImagePGM(String file, boolean plain) throws IOException;
+
+  /**
+   * A method that writes a file to the local device as a black and white PBM Image, one bit per
+   * pixel, where the black pixels of the image are black and all others are white.
+   *
+   * @param file  represents the name and directory of the file.
+   * @param plain true to write the plain (P1) format instead of the raw (P4) one.
+   * @throws IOException if the file cannot be written.
+   */
+  void writeImagePBM(String file, boolean plain) throws IOException;
 }
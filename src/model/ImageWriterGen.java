@@ -1,8 +1,12 @@
 package model;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 import javax.imageio.ImageIO;
 
@@ -10,6 +14,10 @@ import javax.imageio.ImageIO;
  * Represents a general Image Writer class that can write new files.
  */
 public class ImageWriterGen implements ImageWriter {
+  // the compression level of png files, read once from the pngCompressionLevel system property.
+  private static final int DEFAULT_PNG_COMPRESSION_LEVEL = 4;
+  private static final int PNG_COMPRESSION_LEVEL = pngCompressionLevel();
+
   private Image image;
 
   /**
@@ -22,29 +30,193 @@ public class ImageWriterGen implements ImageWriter {
   }
 
   /**
-   * Writes a file as a type other than ppm.
+   * Writes a file as a type other than ppm. Png files are encoded in parallel, at the compression
+   * level set by the pngCompressionLevel system property, from 0 to 9 or -1 for the default of
+   * the deflater (4 if it is not set or is not one of those).
    *
    * @param fileName  represents the name of the file including the path it will be written to.
    * @param extension represents the extension of the file. (png, jpg, bmp ...)
    */
   public void writeImageOther(String fileName, String extension) {
-    File file = new File(fileName);
+    if (extension.equals("pgm") || extension.equals("pbm")) {
+      // the gray formats are written here, raw unless the plainNetpbm property is set.
+      try {
+        if (extension.equals("pgm")) {
+          writeImagePGM(fileName, Boolean.getBoolean("plainNetpbm"));
+        } else {
+          writeImagePBM(fileName, Boolean.getBoolean("plainNetpbm"));
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      return;
+    }
+    CodecEvent event = CodecEvent.start();
     try {
-      ImageIO.write(this.image.createImage(), extension, file);
+      if (extension.equals("png")) {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(fileName),
+                1 << 16)) {
+          writeOther(out, extension);
+        }
+      } else {
+        ImageIO.write(this.image.createImage(), extension, new File(fileName));
+      }
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
+    event.finish("encode", fileName, this.image.getWidth(), this.image.getHeight());
+  }
+
+  // writes the image as a file of a type other than ppm to a stream, which is left open.
+  void writeOther(OutputStream out, String extension) throws IOException {
+    if (extension.equals("png")) {
+      new PngEncoder(PNG_COMPRESSION_LEVEL).encode(this.image, out);
+    } else if (!ImageIO.write(this.image.createImage(), extension, out)) {
+      throw new IOException("Images cannot be written as " + extension + ".");
+    }
+  }
+
+  // the compression level set by the pngCompressionLevel system property, or the default with a
+  // message if it is not a level the png encoder accepts, instead of failing every png save.
+  private static int pngCompressionLevel() {
+    String property = System.getProperty("pngCompressionLevel");
+    if (property == null) {
+      return DEFAULT_PNG_COMPRESSION_LEVEL;
+    }
+    try {
+      int level = Integer.parseInt(property.trim());
+      if (level >= -1 && level <= 9) {
+        return level;
+      }
+    } catch (NumberFormatException e) {
+      // reported below, as is a level out of range.
+    }
+    System.out.println("The png compression level must be from -1 to 9, not " + property
+            + "; " + DEFAULT_PNG_COMPRESSION_LEVEL + " is used instead.");
+    return DEFAULT_PNG_COMPRESSION_LEVEL;
   }
 
   /**
-   * A method that writes a ppm file.
+   * A method that writes a ppm file, through the codec that saves ppm files.
    *
    * @param file represents the name and directory of the file.
    * @throws IOException if the file cannot be written.
    */
   public void writeImagePPM(String file) throws IOException {
-    FileOutputStream f = new FileOutputStream(file);
-    f.write(new String(this.image.formatTextPPM()).getBytes());
-    f.close();
+    CodecRegistry.getInstance().forExtension("ppm").encode(this.image, file);
+  }
+
+  /**
+   * A method that writes a gray pgm file. A gray image is written as it is kept, and a color
+   * image as its greyscale.
+   *
+   * @param file  represents the name and directory of the file.
+   * @param plain true to write the plain (P2) format instead of the raw (P5) one.
+   * @throws IOException if the file cannot be written.
+   */
+  public void writeImagePGM(String file, boolean plain) throws IOException {
+    CodecEvent event = CodecEvent.start();
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16)) {
+      writePGM(out, plain);
+    }
+    event.finish("encode", file, this.image.getWidth(), this.image.getHeight());
+  }
+
+  // writes the image as a pgm file to a stream, which is left open.
+  void writePGM(OutputStream out, boolean plain) throws IOException {
+    int width = this.image.getWidth();
+    int height = this.image.getHeight();
+    byte[] gray = grayValues();
+    out.write(((plain ? "P2" : "P5") + "\n" + width + " " + height + "\n255\n")
+            .getBytes(StandardCharsets.US_ASCII));
+    if (plain) {
+      StringBuilder line = new StringBuilder();
+      for (int i = 0; i < height; i++) {
+        line.setLength(0);
+        for (int j = 0; j < width; j++) {
+          // lines of a plain file should not be longer than 70 characters.
+          if (j > 0) {
+            line.append(j % 16 == 0 ? '\n' : ' ');
+          }
+          line.append(gray[i * width + j] & 0xFF);
+        }
+        out.write(line.append('\n').toString().getBytes(StandardCharsets.US_ASCII));
+      }
+    } else {
+      out.write(gray);
+    }
+  }
+
+  /**
+   * A method that writes a black and white pbm file, such as a clipping mask: the pixels that
+   * are black in the image are black in the file, and all others are white.
+   *
+   * @param file  represents the name and directory of the file.
+   * @param plain true to write the plain (P1) format instead of the raw (P4) one.
+   * @throws IOException if the file cannot be written.
+   */
+  public void writeImagePBM(String file, boolean plain) throws IOException {
+    CodecEvent event = CodecEvent.start();
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16)) {
+      writePBM(out, plain);
+    }
+    event.finish("encode", file, this.image.getWidth(), this.image.getHeight());
+  }
+
+  // writes the image as a pbm file to a stream, which is left open.
+  void writePBM(OutputStream out, boolean plain) throws IOException {
+    int width = this.image.getWidth();
+    int height = this.image.getHeight();
+    byte[] gray = this.image instanceof AbstractImage
+            ? ((AbstractImage) this.image).returnGray() : null;
+    Pixel[][] pixels = gray == null ? this.image.returnPixels() : null;
+    Pixel black = new Pixel(0);
+    out.write(((plain ? "P1" : "P4") + "\n" + width + " " + height + "\n")
+            .getBytes(StandardCharsets.US_ASCII));
+    int rowBytes = plain ? 2 * width : (width + 7) / 8;
+    byte[] row = new byte[rowBytes];
+    for (int i = 0; i < height; i++) {
+      Arrays.fill(row, plain ? (byte) ' ' : 0);
+      for (int j = 0; j < width; j++) {
+        boolean isBlack = gray != null ? gray[i * width + j] == 0
+                : pixels[i][j].equals(black);
+        if (plain) {
+          row[2 * j] = (byte) (isBlack ? '1' : '0');
+        } else if (isBlack) {
+          row[j / 8] |= (byte) (0x80 >> (j % 8));
+        }
+      }
+      if (plain) {
+        // a line break every 35 pixels keeps lines under 70 characters.
+        for (int j = 34; j < width - 1; j += 35) {
+          row[2 * j + 1] = '\n';
+        }
+        row[rowBytes - 1] = '\n';
+      }
+      out.write(row);
+    }
+  }
+
+  // the gray value of every pixel of the image, row by row: the value of a gray pixel, and the
+  // gray scale of any other.
+  private byte[] grayValues() {
+    if (this.image instanceof AbstractImage) {
+      byte[] gray = ((AbstractImage) this.image).returnGray();
+      if (gray != null) {
+        return gray;
+      }
+    }
+    Pixel[][] pixels = this.image.returnPixels();
+    int width = this.image.getWidth();
+    byte[] gray = new byte[width * this.image.getHeight()];
+    for (int i = 0; i < pixels.length; i++) {
+      for (int j = 0; j < width; j++) {
+        Pixel pixel = pixels[i][j];
+        gray[i * width + j] = (byte) (pixel.getRed() == pixel.getGreen()
+                && pixel.getGreen() == pixel.getBlue()
+                ? pixel.getRed() : pixel.convertGrayScale().getRed());
+      }
+    }
+    return gray;
   }
 }
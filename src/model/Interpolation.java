@@ -0,0 +1,27 @@
+package model;
+
+/**
+ * The ways the pixels of a transformed image are sampled from the image, between its pixels.
+ */
+public enum Interpolation {
+  /**
+   * Weighs the four nearest pixels by their distance.
+   */
+  BILINEAR,
+
+  /**
+   * Fits a cubic curve through the sixteen nearest pixels, which keeps edges sharper.
+   */
+  BICUBIC;
+
+  /**
+   * Gets the interpolation set by the interpolation system property (bilinear or bicubic),
+   * bicubic by default.
+   *
+   * @return the interpolation the commands transform images with.
+   */
+  public static Interpolation getDefault() {
+    return System.getProperty("interpolation", "bicubic").equalsIgnoreCase("bilinear")
+            ? BILINEAR : BICUBIC;
+  }
+}
@@ -0,0 +1,89 @@
+package model;
+
+import java.awt.Dimension;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * The codec of gray pgm files or of black and white pbm files, plain or raw, which are loaded as
+ * gray images. They are saved raw unless the plainNetpbm system property is set.
+ */
+final class NetpbmCodec implements ImageCodec {
+  private final String format;
+  private final char plain;
+  private final char raw;
+
+  /**
+   * Constructor for a netpbm codec.
+   *
+   * @param format pgm or pbm.
+   * @param plain  the character after the P of the plain files of the format.
+   * @param raw    the character after the P of the raw files of the format.
+   */
+  NetpbmCodec(String format, char plain, char raw) {
+    this.format = format;
+    this.plain = plain;
+    this.raw = raw;
+  }
+
+  @Override
+  public String getFormat() {
+    return this.format;
+  }
+
+  @Override
+  public List<String> getExtensions() {
+    return List.of(this.format);
+  }
+
+  @Override
+  public boolean matches(byte[] header) {
+    return header.length > 2 && header[0] == 'P'
+            && (header[1] == this.plain || header[1] == this.raw)
+            && (Character.isWhitespace(header[2]) || header[2] == '#');
+  }
+
+  @Override
+  public Dimension probe(String path) throws IOException {
+    try (InputStream in = new BufferedInputStream(new FileInputStream(path))) {
+      int magic = in.read() == 'P' ? in.read() : -1;
+      if (magic != this.plain && magic != this.raw) {
+        throw new IllegalArgumentException("Invalid file: " + path + " should begin with P"
+                + this.plain + " or P" + this.raw);
+      }
+      int width = ImageReaderGen.nextNumber(in);
+      return new Dimension(width, ImageReaderGen.nextNumber(in));
+    }
+  }
+
+  @Override
+  public Image decode(String path) {
+    ImageReader reader = new ImageReaderGen();
+    if (this.format.equals("pgm")) {
+      reader.readPGM(path);
+    } else {
+      reader.readPBM(path);
+    }
+    return new ImageOther(reader);
+  }
+
+  @Override
+  public Image decode(InputStream in) throws IOException {
+    ImageReaderGen reader = new ImageReaderGen();
+    reader.readGray(in, "the " + this.format + " image", this.plain, this.raw);
+    return new ImageOther(reader);
+  }
+
+  @Override
+  public void encode(Image image, OutputStream out) throws IOException {
+    if (this.format.equals("pgm")) {
+      new ImageWriterGen(image).writePGM(out, Boolean.getBoolean("plainNetpbm"));
+    } else {
+      new ImageWriterGen(image).writePBM(out, Boolean.getBoolean("plainNetpbm"));
+    }
+  }
+}
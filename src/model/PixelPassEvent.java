@@ -0,0 +1,63 @@
+package model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A flight recorder event for one pass of an operation over the pixels of an image. Passes are
+ * recorded without a stack trace, so the event costs next to nothing while a recording runs and
+ * nothing at all while none does.
+ */
+@Name("imageprocessing.PixelPass")
+@Label("Pixel Pass")
+@Category({"Image Processing", "Operations"})
+@Description("A pass of an operation over the pixels of an image")
+@StackTrace(false)
+public class PixelPassEvent extends Event {
+  @Label("Operation")
+  String operation;
+
+  @Label("Rows")
+  int rows;
+
+  @Label("Columns")
+  int columns;
+
+  @Label("Parallelism")
+  @Description("The number of threads the pass was split across")
+  int parallelism;
+
+  /**
+   * Starts timing a pass.
+   *
+   * @return the event of the pass.
+   */
+  public static PixelPassEvent start() {
+    PixelPassEvent event = new PixelPassEvent();
+    event.begin();
+    return event;
+  }
+
+  /**
+   * Ends the pass and records it, if a recording wants it.
+   *
+   * @param operation   the name of the operation.
+   * @param rows        the number of rows the pass went over.
+   * @param columns     the number of columns the pass went over.
+   * @param parallelism the number of threads the pass was split across.
+   */
+  public void finish(String operation, int rows, int columns, int parallelism) {
+    end();
+    if (shouldCommit()) {
+      this.operation = operation;
+      this.rows = rows;
+      this.columns = columns;
+      this.parallelism = parallelism;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,312 @@
+package model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.stream.IntStream;
+
+/**
+ * Encodes images as png files, 8 bit gray for gray images and 8 bit rgb for the others. Every row
+ * is filtered by whichever of the five png filters gives the smallest sum of differences, and the
+ * rows are split in bands that are filtered and compressed in parallel, each by its own deflater.
+ * Every band but the last ends with a full flush, which ends its compressed data on a whole byte
+ * without ending the stream, so the bands are written one after the other as a single zlib stream,
+ * whose checksum is combined from those of the bands.
+ */
+final class PngEncoder {
+  // the least number of bytes of rows in a band, so that small images are not split for nothing.
+  private static final int MIN_BAND_BYTES = 1 << 18;
+  private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+  // the largest prime below 65536, which the sums of an adler-32 checksum are taken modulo.
+  private static final int ADLER_BASE = 65521;
+
+  private final int level;
+  private final int maxBands;
+
+  /**
+   * Constructor for a png encoder that splits an image in at most one band per processor.
+   *
+   * @param level the compression level, from 0 for none to 9 for the best, or -1 for the default
+   *              of the deflater.
+   * @throws IllegalArgumentException if the level is not one of those.
+   */
+  PngEncoder(int level) {
+    this(level, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Constructor for a png encoder that splits an image in at most the given number of bands.
+   *
+   * @param level    the compression level, from 0 for none to 9 for the best, or -1 for the
+   *                 default of the deflater.
+   * @param maxBands the largest number of bands an image is split in.
+   * @throws IllegalArgumentException if the level is not one of those or there is no band.
+   */
+  PngEncoder(int level, int maxBands) {
+    if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+      throw new IllegalArgumentException("The compression level must be from -1 to 9.");
+    }
+    if (maxBands <= 0) {
+      throw new IllegalArgumentException("There must be at least one band.");
+    }
+    this.level = level;
+    this.maxBands = maxBands;
+  }
+
+  /**
+   * Writes an image as a png file to a stream.
+   *
+   * @param image the image to write.
+   * @param out   the stream to write to, which is left open.
+   * @throws IOException if the stream cannot be written.
+   */
+  void encode(Image image, OutputStream out) throws IOException {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    byte[] gray = image instanceof AbstractImage ? ((AbstractImage) image).returnGray() : null;
+    Pixel[][] pixels = gray == null ? image.returnPixels() : null;
+    int bytesPerPixel = gray == null ? 3 : 1;
+    long rowBytes = (long) width * bytesPerPixel + 1;
+
+    int bands = bands(rowBytes, height);
+    int[] firstRows = new int[bands + 1];
+    for (int band = 0; band <= bands; band++) {
+      firstRows[band] = (int) ((long) band * height / bands);
+    }
+    byte[][] compressed = new byte[bands][];
+    int[] checksums = new int[bands];
+    IntStream.range(0, bands).parallel().forEach(band -> {
+      Adler32 adler = new Adler32();
+      compressed[band] = compress(gray, pixels, width, bytesPerPixel, firstRows[band],
+              firstRows[band + 1], band == bands - 1, adler);
+      checksums[band] = (int) adler.getValue();
+    });
+    int checksum = checksums[0];
+    for (int band = 1; band < bands; band++) {
+      checksum = combine(checksum, checksums[band],
+              (firstRows[band + 1] - firstRows[band]) * rowBytes);
+    }
+
+    out.write(SIGNATURE);
+    ByteArrayOutputStream header = new ByteArrayOutputStream();
+    DataOutputStream data = new DataOutputStream(header);
+    data.writeInt(width);
+    data.writeInt(height);
+    // 8 bits per sample, gray or rgb, deflated, filtered per row and not interlaced.
+    data.writeByte(8);
+    data.writeByte(gray == null ? 2 : 0);
+    data.writeByte(0);
+    data.writeByte(0);
+    data.writeByte(0);
+    writeChunk(out, "IHDR", header.toByteArray());
+    // the bands make up the zlib stream, after its header and before its checksum.
+    byte[] trailer = {(byte) (checksum >>> 24), (byte) (checksum >>> 16),
+        (byte) (checksum >>> 8), (byte) checksum};
+    for (int band = 0; band < bands; band++) {
+      writeChunk(out, "IDAT", band == 0 ? zlibHeader() : new byte[0], compressed[band],
+              band == bands - 1 ? trailer : new byte[0]);
+    }
+    writeChunk(out, "IEND");
+  }
+
+  // the number of bands an image is split in: at most the largest number given, but no more than
+  // there are rows or whole bands of at least the least number of bytes.
+  int bands(long rowBytes, int height) {
+    return (int) Math.max(1, Math.min(Math.min(this.maxBands, height),
+            rowBytes * height / MIN_BAND_BYTES));
+  }
+
+  // the header of a zlib stream deflated with a window of 32 KB, telling how hard it was
+  // compressed, and followed by a check that makes it a multiple of 31.
+  private byte[] zlibHeader() {
+    int effort;
+    if (this.level == Deflater.DEFAULT_COMPRESSION || this.level == 6) {
+      effort = 2;
+    } else {
+      effort = this.level < 2 ? 0 : this.level < 6 ? 1 : 3;
+    }
+    int header = (0x78 << 8) | (effort << 6);
+    header += (31 - header % 31) % 31;
+    return new byte[] {(byte) (header >>> 8), (byte) header};
+  }
+
+  // filters and deflates the rows from first to last, adding the filtered rows to the checksum.
+  private byte[] compress(byte[] gray, Pixel[][] pixels, int width, int bytesPerPixel,
+                          int first, int last, boolean end, Adler32 adler) {
+    int length = width * bytesPerPixel;
+    byte[] previous = new byte[length];
+    byte[] current = new byte[length];
+    byte[] filtered = new byte[length + 1];
+    byte[] best = new byte[length + 1];
+    if (first > 0) {
+      // the filters of the first row of a band refer to the row above it.
+      samples(gray, pixels, width, first - 1, previous);
+    }
+
+    Deflater deflater = new Deflater(this.level, true);
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    byte[] buffer = new byte[1 << 16];
+    try {
+      for (int row = first; row < last; row++) {
+        samples(gray, pixels, width, row, current);
+        long bestSum = Long.MAX_VALUE;
+        for (int filter = 0; filter < 5; filter++) {
+          long sum = filter(filter, current, previous, bytesPerPixel, filtered, bestSum);
+          if (sum < bestSum) {
+            bestSum = sum;
+            byte[] swap = best;
+            best = filtered;
+            filtered = swap;
+          }
+        }
+        adler.update(best);
+        deflater.setInput(best);
+        drain(deflater, buffer, result, Deflater.NO_FLUSH);
+        byte[] swap = previous;
+        previous = current;
+        current = swap;
+      }
+      if (end) {
+        deflater.finish();
+        while (!deflater.finished()) {
+          result.write(buffer, 0, deflater.deflate(buffer));
+        }
+      } else {
+        drain(deflater, buffer, result, Deflater.FULL_FLUSH);
+      }
+    } finally {
+      deflater.end();
+    }
+    return result.toByteArray();
+  }
+
+  // deflates all of the input given to the deflater, flushing as given.
+  private static void drain(Deflater deflater, byte[] buffer, ByteArrayOutputStream result,
+                            int flush) {
+    int written;
+    do {
+      written = deflater.deflate(buffer, 0, buffer.length, flush);
+      result.write(buffer, 0, written);
+    } while (written == buffer.length || !deflater.needsInput());
+  }
+
+  // the samples of a row, one byte a pixel for a gray image and three for the others.
+  private static void samples(byte[] gray, Pixel[][] pixels, int width, int row, byte[] result) {
+    if (gray != null) {
+      System.arraycopy(gray, row * width, result, 0, width);
+      return;
+    }
+    Pixel[] pixelRow = pixels[row];
+    for (int col = 0; col < width; col++) {
+      Pixel pixel = pixelRow[col];
+      result[3 * col] = (byte) pixel.getRed();
+      result[3 * col + 1] = (byte) pixel.getGreen();
+      result[3 * col + 2] = (byte) pixel.getBlue();
+    }
+  }
+
+  // filters a row by the given png filter, returning the sum of the filtered bytes as signed
+  // differences, which is smaller the better the row compresses. Filtering stops once the sum
+  // reaches the limit, as the row is then filtered better by another filter.
+  private static long filter(int filter, byte[] row, byte[] above, int bytesPerPixel,
+                             byte[] result, long limit) {
+    result[0] = (byte) filter;
+    long sum = 0;
+    int i = 0;
+    // the first pixel has no pixel to its left, which the filters take as zero.
+    for (; i < bytesPerPixel && i < row.length; i++) {
+      int b = filter == 0 || filter == 1 ? 0 : filter == 3 ? (above[i] & 0xFF) >>> 1
+              : above[i] & 0xFF;
+      result[i + 1] = (byte) (row[i] - b);
+      sum += Math.abs(result[i + 1]);
+    }
+    switch (filter) {
+      case 0:
+        for (; i < row.length && sum < limit; i++) {
+          result[i + 1] = row[i];
+          sum += Math.abs(row[i]);
+        }
+        break;
+      case 1:
+        for (; i < row.length && sum < limit; i++) {
+          byte value = (byte) (row[i] - row[i - bytesPerPixel]);
+          result[i + 1] = value;
+          sum += Math.abs(value);
+        }
+        break;
+      case 2:
+        for (; i < row.length && sum < limit; i++) {
+          byte value = (byte) (row[i] - above[i]);
+          result[i + 1] = value;
+          sum += Math.abs(value);
+        }
+        break;
+      case 3:
+        for (; i < row.length && sum < limit; i++) {
+          byte value = (byte) (row[i] - (((row[i - bytesPerPixel] & 0xFF)
+                  + (above[i] & 0xFF)) >>> 1));
+          result[i + 1] = value;
+          sum += Math.abs(value);
+        }
+        break;
+      default:
+        for (; i < row.length && sum < limit; i++) {
+          byte value = (byte) (row[i] - paeth(row[i - bytesPerPixel] & 0xFF, above[i] & 0xFF,
+                  above[i - bytesPerPixel] & 0xFF));
+          result[i + 1] = value;
+          sum += Math.abs(value);
+        }
+    }
+    return sum;
+  }
+
+  // whichever of the left, above and upper left samples is closest to left + above - upper left.
+  private static int paeth(int a, int b, int c) {
+    int p = a + b - c;
+    int pa = Math.abs(p - a);
+    int pb = Math.abs(p - b);
+    int pc = Math.abs(p - c);
+    if (pa <= pb && pa <= pc) {
+      return a;
+    }
+    return pb <= pc ? b : c;
+  }
+
+  // the adler-32 checksum of two pieces of data one after the other, from their checksums and the
+  // length of the second one.
+  private static int combine(int first, int second, long secondLength) {
+    long remainder = secondLength % ADLER_BASE;
+    long sum1 = first & 0xFFFF;
+    long sum2 = (remainder * sum1) % ADLER_BASE;
+    sum1 += (second & 0xFFFF) + ADLER_BASE - 1;
+    sum2 += ((first >>> 16) & 0xFFFF) + ((second >>> 16) & 0xFFFF) + ADLER_BASE - remainder;
+    sum1 %= ADLER_BASE;
+    sum2 %= ADLER_BASE;
+    return (int) ((sum2 << 16) | sum1);
+  }
+
+  // writes a chunk whose data is the given parts one after the other.
+  private static void writeChunk(OutputStream out, String type, byte[]... parts)
+          throws IOException {
+    byte[] name = type.getBytes(StandardCharsets.US_ASCII);
+    CRC32 crc = new CRC32();
+    crc.update(name);
+    int length = 0;
+    for (byte[] part : parts) {
+      crc.update(part);
+      length += part.length;
+    }
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(length);
+    data.write(name);
+    for (byte[] part : parts) {
+      data.write(part);
+    }
+    data.writeInt((int) crc.getValue());
+  }
+}
@@ -0,0 +1,157 @@
+package model;
+
+import java.awt.Dimension;
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * The codec of plain ppm files, which begin with P3, and of raw ones, which begin with P6 and whose
+ * pixels are read in a single bulk read. Images are always saved plain.
+ */
+final class PpmCodec implements ImageCodec {
+
+  @Override
+  public String getFormat() {
+    return "ppm";
+  }
+
+  @Override
+  public List<String> getExtensions() {
+    return List.of("ppm");
+  }
+
+  @Override
+  public boolean matches(byte[] header) {
+    return header.length > 2 && header[0] == 'P' && (header[1] == '3' || header[1] == '6')
+            && Character.isWhitespace(header[2]);
+  }
+
+  @Override
+  public Dimension probe(String path) throws IOException {
+    try (InputStream in = new BufferedInputStream(new FileInputStream(path))) {
+      int magic = in.read() == 'P' ? in.read() : -1;
+      if (magic != '3' && magic != '6') {
+        throw new IllegalArgumentException("Invalid PPM file: " + path
+                + " should begin with P3 or P6");
+      }
+      int width = ImageReaderGen.nextNumber(in);
+      return new Dimension(width, ImageReaderGen.nextNumber(in));
+    }
+  }
+
+  @Override
+  public Image decode(String path) {
+    if (!isRaw(path)) {
+      ImageReader reader = new ImageReaderGen();
+      reader.readPPM(path);
+      return new ImagePPM(reader);
+    }
+    CodecEvent event = CodecEvent.start();
+    Image image;
+    try (InputStream in = new BufferedInputStream(new FileInputStream(path), 1 << 16)) {
+      image = decodeRaw(in, path);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    event.finish("decode", path, image.getWidth(), image.getHeight());
+    return image;
+  }
+
+  @Override
+  public Image decode(InputStream in) throws IOException {
+    InputStream stream = in.markSupported() ? in : new BufferedInputStream(in);
+    stream.mark(2);
+    boolean raw = stream.read() == 'P' && stream.read() == '6';
+    stream.reset();
+    if (raw) {
+      return decodeRaw(stream, "the ppm image");
+    }
+    ImageReaderGen reader = new ImageReaderGen();
+    reader.readPPM(stream);
+    return new ImagePPM(reader);
+  }
+
+  // whether the file is a raw ppm file, which begins with P6. A file that cannot be opened is
+  // left to the reader of plain files, which reports it.
+  private static boolean isRaw(String path) {
+    try (InputStream in = new FileInputStream(path)) {
+      return in.read() == 'P' && in.read() == '6';
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  // reads a raw ppm image, whose header is followed by the red, green and blue values of every
+  // pixel, one byte each or two bytes each, the most significant first, if the maximum value is
+  // above 255. The values are scaled to 255.
+  private static Image decodeRaw(InputStream stream, String source) throws IOException {
+    DataInputStream in = new DataInputStream(stream);
+    try {
+      if (in.read() != 'P' || in.read() != '6') {
+        throw new IllegalArgumentException("Invalid PPM file: " + source
+                + " should begin with P6");
+      }
+      int width = ImageReaderGen.nextNumber(in);
+      int height = ImageReaderGen.nextNumber(in);
+      int maxValue = ImageReaderGen.nextNumber(in);
+      if (width <= 0 || height <= 0 || (long) width * height * 6 > Integer.MAX_VALUE - 8) {
+        throw new IllegalArgumentException("Invalid file: " + source + " has an invalid size");
+      }
+      if (maxValue <= 0 || maxValue > 65535) {
+        throw new IllegalArgumentException("Invalid file: " + source
+                + " has an invalid maximum value");
+      }
+
+      int bytesPerValue = maxValue < 256 ? 1 : 2;
+      byte[] row = new byte[3 * bytesPerValue * width];
+      Pixel[][] pixels = new Pixel[height][width];
+      for (int i = 0; i < height; i++) {
+        in.readFully(row);
+        for (int j = 0; j < width; j++) {
+          int at = 3 * j * bytesPerValue;
+          pixels[i][j] = new Pixel(value(row, at, bytesPerValue, maxValue),
+                  value(row, at + bytesPerValue, bytesPerValue, maxValue),
+                  value(row, at + 2 * bytesPerValue, bytesPerValue, maxValue));
+        }
+      }
+      return new ImagePPM(width, height, 255, pixels);
+    } catch (EOFException e) {
+      throw new IllegalArgumentException("Invalid file: " + source + " ends too early");
+    }
+  }
+
+  // the value of a raw ppm file at the given index, scaled from its maximum value to 255.
+  private static int value(byte[] row, int at, int bytesPerValue, int maxValue) {
+    int value = bytesPerValue == 1 ? row[at] & 0xFF
+            : ((row[at] & 0xFF) << 8) | (row[at + 1] & 0xFF);
+    value = Math.min(value, maxValue);
+    return maxValue == 255 ? value : (value * 255 + maxValue / 2) / maxValue;
+  }
+
+  @Override
+  public void encode(Image image, OutputStream out) throws IOException {
+    // written pixel by pixel, as the file is, without building all of its text first.
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.US_ASCII),
+            1 << 16);
+    writer.write("P3\n# Created by GIMP version 2.10.20 PNM plug-in\n" + image.getWidth()
+            + " " + image.getHeight() + "\n255\n");
+    Pixel[][] pixels = image.returnPixels();
+    for (int i = 0; i < image.getHeight(); i++) {
+      for (int j = 0; j < image.getWidth(); j++) {
+        writer.write(pixels[i][j].getRed() + "\n" + pixels[i][j].getGreen() + "\n"
+                + pixels[i][j].getBlue() + "\n");
+      }
+    }
+    writer.flush();
+  }
+}
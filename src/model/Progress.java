@@ -0,0 +1,118 @@
+package model;
+
+import java.util.concurrent.CancellationException;
+import java.util.function.IntConsumer;
+
+/**
+ * Follows the passes over pixels that operations on images execute on a thread, so that a long
+ * operation can report how far it has got and be cancelled between two rows. Passes executed
+ * while no progress is followed on their thread are not slowed down by it.
+ */
+public class Progress {
+  private static final Progress NONE = new Progress(1, null);
+  private static final ThreadLocal<Progress> CURRENT = new ThreadLocal<>();
+
+  private final int passes;
+  private final IntConsumer listener;
+  private volatile boolean cancelled;
+  private int passesBegun;
+  private int rows;
+  private int rowsDone;
+  private int percent;
+
+  /**
+   * Constructor for the progress of an operation.
+   *
+   * @param passes   the number of passes over pixels the operation is expected to execute.
+   * @param listener told the percentage done every time it changes, or null.
+   */
+  public Progress(int passes, IntConsumer listener) {
+    if (passes <= 0) {
+      throw new IllegalArgumentException("The number of passes must be positive.");
+    }
+    this.passes = passes;
+    this.listener = listener;
+  }
+
+  /**
+   * Executes an operation on the current thread, following its progress.
+   *
+   * @param operation the operation to be executed.
+   * @throws CancellationException if the operation was cancelled before it finished.
+   */
+  public void follow(Runnable operation) {
+    if (operation == null) {
+      throw new IllegalArgumentException("Fields cannot be null.");
+    }
+    Progress previous = CURRENT.get();
+    CURRENT.set(this);
+    try {
+      operation.run();
+    } finally {
+      CURRENT.set(previous);
+    }
+  }
+
+  /**
+   * Cancels the operation, which stops at the next row of the pass it is executing. Can be
+   * called from any thread.
+   */
+  public void cancel() {
+    this.cancelled = true;
+  }
+
+  /**
+   * Tells whether the operation was cancelled.
+   *
+   * @return true if the operation was cancelled.
+   */
+  public boolean isCancelled() {
+    return this.cancelled;
+  }
+
+  /**
+   * Gets the progress followed on the current thread, with the start of a new pass.
+   *
+   * @param rows the number of rows of the pass.
+   * @return the progress the pass reports its rows to.
+   */
+  static Progress begin(int rows) {
+    Progress progress = CURRENT.get();
+    if (progress == null) {
+      return NONE;
+    }
+    progress.passesBegun++;
+    progress.rows = Math.max(rows, 1);
+    progress.rowsDone = 0;
+    return progress;
+  }
+
+  /**
+   * Reports that a row of the current pass is done. Can be called from the threads a pass is
+   * split across.
+   *
+   * @throws CancellationException if the operation was cancelled.
+   */
+  void row() {
+    if (this == NONE) {
+      return;
+    }
+    if (this.cancelled) {
+      throw new CancellationException("The operation was cancelled.");
+    }
+    if (this.listener != null) {
+      report();
+    }
+  }
+
+  private synchronized void report() {
+    this.rowsDone++;
+    double passesDone = Math.min(this.passesBegun - 1 + (double) this.rowsDone / this.rows,
+            this.passes);
+    int percent = (int) (passesDone * 100 / this.passes);
+    if (percent != this.percent) {
+      this.percent = percent;
+      this.listener.accept(percent);
+    }
+  }
+}
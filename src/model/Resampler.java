@@ -0,0 +1,163 @@
+package model;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.util.stream.IntStream;
+
+/**
+ * Resamples an array of pixels through an affine transform in a single pass. Every row of the
+ * result steps through the source along a straight line, so the coordinates of each pixel are
+ * found by adding the step of a column to those of the previous one instead of transforming it,
+ * and the rows are split in bands that are resampled in parallel. Pixels that the transform maps
+ * from outside the source are black.
+ */
+final class Resampler {
+  // the least number of rows in a band, so that small images are not split for nothing.
+  private static final int MIN_BAND = 16;
+
+  private final Pixel[][] source;
+  private final int sourceWidth;
+  private final int sourceHeight;
+  private final Interpolation interpolation;
+
+  /**
+   * Constructor for a resampler of the given pixels.
+   *
+   * @param source        the pixels, with at least one row and one column.
+   * @param interpolation how pixels are sampled between the pixels of the source.
+   */
+  Resampler(Pixel[][] source, Interpolation interpolation) {
+    this.source = source;
+    this.sourceHeight = source.length;
+    this.sourceWidth = source[0].length;
+    this.interpolation = interpolation;
+  }
+
+  /**
+   * Resamples the pixels through the given transform.
+   *
+   * @param transform maps coordinates of the source, the pixel at a row and column covering the
+   *                  square from (column, row) to (column + 1, row + 1), to the result.
+   * @param width     the width of the result.
+   * @param height    the height of the result.
+   * @return the pixels of the result.
+   * @throws IllegalArgumentException if the transform cannot be inverted.
+   */
+  Pixel[][] resample(AffineTransform transform, int width, int height) {
+    AffineTransform inverse;
+    try {
+      inverse = transform.createInverse();
+    } catch (NoninvertibleTransformException e) {
+      throw new IllegalArgumentException("The transform cannot be inverted.");
+    }
+
+    PixelPassEvent pass = PixelPassEvent.start();
+    Progress progress = Progress.begin(height);
+    Pixel[][] result = new Pixel[height][width];
+    int bands = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(),
+            height / MIN_BAND));
+    IntStream.range(0, bands).parallel().forEach(band -> {
+      for (int row = band * height / bands; row < (band + 1) * height / bands; row++) {
+        progress.row();
+        resampleRow(inverse, row, result[row]);
+      }
+    });
+    pass.finish("transform" + this.interpolation, height, width, bands);
+    return result;
+  }
+
+  private void resampleRow(AffineTransform inverse, int row, Pixel[] result) {
+    // the source coordinates of the center of the first pixel of the row, moved back half a
+    // pixel so that whole numbers fall on the centers of the source pixels.
+    double x = inverse.getScaleX() * 0.5 + inverse.getShearX() * (row + 0.5)
+            + inverse.getTranslateX() - 0.5;
+    double y = inverse.getShearY() * 0.5 + inverse.getScaleY() * (row + 0.5)
+            + inverse.getTranslateY() - 0.5;
+    double stepX = inverse.getScaleX();
+    double stepY = inverse.getShearY();
+    Pixel black = new Pixel(0);
+    int[] rgb = new int[3];
+
+    for (int col = 0; col < result.length; col++, x += stepX, y += stepY) {
+      if (x < -0.5 || y < -0.5 || x >= this.sourceWidth - 0.5 || y >= this.sourceHeight - 0.5) {
+        result[col] = black;
+      } else {
+        if (this.interpolation == Interpolation.BILINEAR) {
+          bilinear(x, y, rgb);
+        } else {
+          bicubic(x, y, rgb);
+        }
+        result[col] = new Pixel(rgb[0], rgb[1], rgb[2]);
+      }
+    }
+  }
+
+  private void bilinear(double x, double y, int[] rgb) {
+    int left = (int) Math.floor(x);
+    int top = (int) Math.floor(y);
+    double weightX = x - left;
+    double weightY = y - top;
+    Pixel[] upper = this.source[clamp(top, this.sourceHeight)];
+    Pixel[] lower = this.source[clamp(top + 1, this.sourceHeight)];
+    Pixel a = upper[clamp(left, this.sourceWidth)];
+    Pixel b = upper[clamp(left + 1, this.sourceWidth)];
+    Pixel c = lower[clamp(left, this.sourceWidth)];
+    Pixel d = lower[clamp(left + 1, this.sourceWidth)];
+    double wa = (1 - weightX) * (1 - weightY);
+    double wb = weightX * (1 - weightY);
+    double wc = (1 - weightX) * weightY;
+    double wd = weightX * weightY;
+    rgb[0] = channel(a.getRed() * wa + b.getRed() * wb + c.getRed() * wc + d.getRed() * wd);
+    rgb[1] = channel(a.getGreen() * wa + b.getGreen() * wb + c.getGreen() * wc
+            + d.getGreen() * wd);
+    rgb[2] = channel(a.getBlue() * wa + b.getBlue() * wb + c.getBlue() * wc + d.getBlue() * wd);
+  }
+
+  private void bicubic(double x, double y, int[] rgb) {
+    int left = (int) Math.floor(x);
+    int top = (int) Math.floor(y);
+    double[] weightsX = cubicWeights(x - left);
+    double[] weightsY = cubicWeights(y - top);
+    double red = 0;
+    double green = 0;
+    double blue = 0;
+    for (int i = 0; i < 4; i++) {
+      Pixel[] sourceRow = this.source[clamp(top - 1 + i, this.sourceHeight)];
+      double rowRed = 0;
+      double rowGreen = 0;
+      double rowBlue = 0;
+      for (int j = 0; j < 4; j++) {
+        Pixel pixel = sourceRow[clamp(left - 1 + j, this.sourceWidth)];
+        rowRed += pixel.getRed() * weightsX[j];
+        rowGreen += pixel.getGreen() * weightsX[j];
+        rowBlue += pixel.getBlue() * weightsX[j];
+      }
+      red += rowRed * weightsY[i];
+      green += rowGreen * weightsY[i];
+      blue += rowBlue * weightsY[i];
+    }
+    rgb[0] = channel(red);
+    rgb[1] = channel(green);
+    rgb[2] = channel(blue);
+  }
+
+  // the Catmull-Rom weights of the four pixels around a point the given fraction past the second.
+  private static double[] cubicWeights(double t) {
+    double t2 = t * t;
+    double t3 = t2 * t;
+    return new double[] {
+        (-t3 + 2 * t2 - t) / 2,
+        (3 * t3 - 5 * t2 + 2) / 2,
+        (-3 * t3 + 4 * t2 + t) / 2,
+        (t3 - t2) / 2
+    };
+  }
+
+  private static int clamp(int index, int size) {
+    return Math.max(0, Math.min(size - 1, index));
+  }
+
+  private static int channel(double value) {
+    return (int) Math.max(0, Math.min(255, Math.round(value)));
+  }
+}
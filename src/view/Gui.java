@@ -2,16 +2,19 @@ package view;
 
 import java.awt.Component;
 import java.awt.Dimension;
+import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.JFileChooser;
 
-import model.Image;
-
-
+import javax.swing.AbstractAction;
+import javax.swing.JComponent;
 import javax.swing.JFrame;
+import javax.swing.KeyStroke;
 import javax.swing.JPanel;
 import javax.swing.JButton;
 import javax.swing.JLabel;
@@ -19,20 +22,18 @@ import javax.swing.JScrollPane;
 import javax.swing.JComboBox;
 import javax.swing.BoxLayout;
 import javax.swing.JOptionPane;
-import javax.swing.ImageIcon;
+import javax.swing.JProgressBar;
 import javax.swing.BorderFactory;
 import java.awt.BorderLayout;
 import java.awt.FlowLayout;
-import model.ImageOther;
-import model.ImagePPM;
-import model.ImageReader;
-import model.ImageReaderGen;
+
+import model.CodecRegistry;
 
 /**
  * represents a class for the graphical user interface of an image processing program. Supports.
- * functions such as opening an image (ppm, png, bmp or jpg format), editing a file using commands.
- * such as brighten, converting to sepia or grayscale, etc, displaying a histogram of the various.
- * components of the current image and saving the current image.
+ * functions such as opening an image (in any format of the codec registry), editing a file using
+ * commands. such as brighten, converting to sepia or grayscale, etc, displaying a histogram of
+ * the various. components of the current image and saving the current image.
  */
 public class Gui extends JFrame implements IGui {
   private JPanel mainPanel;
@@ -43,12 +44,19 @@ public class Gui extends JFrame implements IGui {
   private JLabel fileSaveDisplay;
   private JButton fileOpenButton;
   private JButton fileSaveButton;
+  private JButton undoButton;
+  private JButton redoButton;
   private JPanel imagePanel;
+  private TiledImagePanel imageView;
   private JPanel histogramPanel;
   private JLabel comboboxDisplay;
   private JComboBox<String> combobox;
   private String imageName;
   private String saveImageName;
+  private JPanel progressPanel;
+  private JProgressBar progressBar;
+  private JButton cancelButton;
+  private String progressName;
 
   /**
    * represents the default constructor for the gui of the GUI class, and initializes all the.
@@ -59,6 +67,7 @@ public class Gui extends JFrame implements IGui {
     combobox.setActionCommand("Transform");
     initialize();
     imagePanel = new JPanel();
+    imageView = new TiledImagePanel();
     dialogBoxesPanel = new JPanel();
     fileopenPanel = new JPanel();
     histogramPanel = new JPanel();
@@ -73,6 +82,9 @@ public class Gui extends JFrame implements IGui {
     fileOpenButton.addActionListener(listener);
     combobox.addActionListener(listener);
     fileSaveButton.addActionListener(listener);
+    cancelButton.addActionListener(listener);
+    undoButton.addActionListener(listener);
+    redoButton.addActionListener(listener);
     this.mainScrollPane = mainScrollPane;
     this.fileOpenDisplay = fileOpenDisplay;
     this.fileSaveDisplay = fileSaveDisplay;
@@ -98,6 +110,8 @@ public class Gui extends JFrame implements IGui {
     mainPanel = new JPanel();
     mainPanel.setLayout(new BoxLayout(mainPanel, BoxLayout.PAGE_AXIS));
     mainScrollPane = new JScrollPane(mainPanel);
+    mainScrollPane.getVerticalScrollBar().setUnitIncrement(32);
+    mainScrollPane.getHorizontalScrollBar().setUnitIncrement(32);
     this.add(mainScrollPane, BorderLayout.CENTER);
 
     // sets the file open button
@@ -111,16 +125,36 @@ public class Gui extends JFrame implements IGui {
     fileSaveButton.setActionCommand("Save file");
     fileSaveButton.setAlignmentY(Component.CENTER_ALIGNMENT);
 
+    // sets the undo and redo buttons, also pressed with ctrl+z and ctrl+y
+    undoButton = new JButton("Undo");
+    undoButton.setActionCommand("Undo");
+    undoButton.setEnabled(false);
+    redoButton = new JButton("Redo");
+    redoButton.setActionCommand("Redo");
+    redoButton.setEnabled(false);
+    bindKey(undoButton, KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK));
+    bindKey(redoButton, KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK));
+
     // sets the dropdown of commands
     comboboxDisplay = new JLabel();
-    String[] options = {"<none>", "Vertical flip", "Horizontal flip", "Brighten", "Grayscale value",
-      "Grayscale red", "Grayscale green", "Grayscale blue", "Intensity", "Luma", "Sepia",
-      "Grayscale", "Blur", "Sharpen", "Down size"};
+    String[] options = {"<none>", "Vertical flip", "Horizontal flip", "Rotate right", "Rotate left",
+      "Brighten", "Grayscale value", "Grayscale red", "Grayscale green", "Grayscale blue",
+      "Intensity", "Luma", "Sepia", "Grayscale", "Blur", "Sharpen", "Down size"};
 
     for (int i = 0; i < options.length; i++) {
       combobox.addItem(options[i]);
     }
 
+    // sets the progress bar of the transformation being applied, hidden until one is applied
+    progressPanel = new JPanel(new FlowLayout());
+    progressBar = new JProgressBar(0, 100);
+    progressBar.setStringPainted(true);
+    cancelButton = new JButton("Cancel");
+    cancelButton.setActionCommand("Cancel transformation");
+    progressPanel.add(progressBar);
+    progressPanel.add(cancelButton);
+    progressPanel.setVisible(false);
+
     // can be seen
     setVisible(true);
   }
@@ -137,8 +171,9 @@ public class Gui extends JFrame implements IGui {
     fileOpenDisplay = new JLabel();
     fileopenPanel.add(fileOpenDisplay);
     final JFileChooser fchooser = new JFileChooser(".");
+    String[] extensions = CodecRegistry.getInstance().getExtensions().toArray(new String[0]);
     FileNameExtensionFilter filter = new FileNameExtensionFilter(
-            "PPM, PNG, BMP & JPG Images", "ppm", "png", "bmp", "jpg");
+            String.join(", ", extensions).toUpperCase() + " Images", extensions);
     fchooser.setFileFilter(filter);
     int retvalue = fchooser.showOpenDialog(this);
     if (retvalue == JFileChooser.APPROVE_OPTION) {
@@ -155,7 +190,8 @@ public class Gui extends JFrame implements IGui {
   }
 
   /**
-   * displays an image in the image panel in the current GUI.
+   * displays an image in the image panel in the current GUI. The image is shown once it has.
+   * been read and given to displayBufferedImage, so that a large file is not read twice.
    *
    * @param imageName the path of the image to be displayed.
    */
@@ -163,11 +199,6 @@ public class Gui extends JFrame implements IGui {
     imagePanel.removeAll();
     imagePanel.setBorder(BorderFactory.createTitledBorder("Current image"));
     mainPanel.add(imagePanel);
-
-    String image = imageName;
-    JLabel imageLabel = new JLabel();
-    imageLabel.setIcon(new ImageIcon(image));
-    imagePanel.add(imageLabel);
   }
 
   /**
@@ -177,55 +208,51 @@ public class Gui extends JFrame implements IGui {
    */
   public void displayBufferedImage(BufferedImage image) {
     imagePanel.removeAll();
-    BufferedImage currentImage = image;
-    JLabel editedImageLabel = new JLabel();
-    editedImageLabel.setIcon(new ImageIcon(currentImage));
-    imagePanel.add(editedImageLabel);
+    imageView.setImage(image, image.getWidth(), image.getHeight());
+    imagePanel.add(imageView);
     mainPanel.add(imagePanel);
     revalidate();
   }
 
   /**
-   * initializes the histogram in the GUI when an image is first displayed.
+   * displays a preview of an edited image in the image panel in the GUI, stretching a smaller.
+   * version of the image to the size of the image.
    *
-   * @param filepath the path of the file whose histogram needs to be displayed.
+   * @param preview the smaller version of the image.
+   * @param width   the width the preview is displayed at.
+   * @param height  the height the preview is displayed at.
    */
-  public void initializeHistogram(String filepath) {
-    mainPanel.remove(histogramPanel);
-    String[] stringList = filepath.split("/");
-    String[] stringList2 = stringList[stringList.length - 1].split("\\.");
-    Image image;
-    if (stringList2[stringList2.length - 1].equalsIgnoreCase("ppm")) {
-      ImageReader reader = new ImageReaderGen();
-      reader.readPPM(filepath);
-      image = new ImagePPM(reader);
-    } else {
-      ImageReader reader = new ImageReaderGen();
-      reader.readOther(filepath);
-      image = new ImageOther(reader);
-    }
-    this.histogramPanel = new Histogram(image);
-    this.histogramPanel.setPreferredSize(new Dimension(120, 120));
-    histogramPanel.removeAll();
-    histogramPanel.setBorder(BorderFactory.createTitledBorder("Graph of Values " +
-            "(0-255) vs frequencies (0-100)"));
-    histogramPanel.add(new JLabel("                                                         " +
-            "                                " +
-            "                      (Intensity is the yellow line, rest are represented " +
-            "by their respective colors)"));
-    mainPanel.add(histogramPanel);
+  public void displayPreview(BufferedImage preview, int width, int height) {
+    imagePanel.removeAll();
+    imageView.setImage(preview, width, height);
+    imagePanel.add(imageView);
+    mainPanel.add(imagePanel);
     revalidate();
     repaint();
   }
 
+  /**
+   * initializes the histogram in the GUI when an image is first displayed. The panel stays empty.
+   * until the histogram, computed in the background once the file is read, is displayed.
+   *
+   * @param filepath the path of the file whose histogram needs to be displayed.
+   */
+  public void initializeHistogram(String filepath) {
+    showHistogramPanel(new JPanel());
+  }
+
   /**
    * is used to update the histogram when the current image is changed or edited.
    *
    * @param h the histogram of the new/edited image.
    */
   public void displayHistogram(Histogram h) {
+    showHistogramPanel(h);
+  }
+
+  private void showHistogramPanel(JPanel panel) {
     mainPanel.remove(histogramPanel);
-    this.histogramPanel = h;
+    this.histogramPanel = panel;
     this.histogramPanel.setPreferredSize(new Dimension(120, 120));
     histogramPanel.setBorder(BorderFactory.createTitledBorder("Graph of Values " +
             "(0-255) vs frequencies (0-100)"));
@@ -245,6 +272,31 @@ public class Gui extends JFrame implements IGui {
     fileopenPanel.add(fileSaveButton);
     fileSaveDisplay = new JLabel();
     fileopenPanel.add(fileSaveDisplay);
+    fileopenPanel.add(undoButton);
+    fileopenPanel.add(redoButton);
+  }
+
+  /**
+   * enables the undo and redo buttons when there is something to undo or redo.
+   *
+   * @param canUndo true if there is a transformation to undo.
+   * @param canRedo true if there is a transformation to redo.
+   */
+  public void displayHistory(boolean canUndo, boolean canRedo) {
+    undoButton.setEnabled(canUndo);
+    redoButton.setEnabled(canRedo);
+  }
+
+  // presses the button when the key is pressed anywhere in the window.
+  private void bindKey(JButton button, KeyStroke key) {
+    getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(key,
+            button.getActionCommand());
+    getRootPane().getActionMap().put(button.getActionCommand(), new AbstractAction() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        button.doClick();
+      }
+    });
   }
 
   /**
@@ -267,6 +319,37 @@ public class Gui extends JFrame implements IGui {
     comboboxDisplay.removeAll();
     mainPanel.add(comboboxDisplay);
     mainPanel.add(combobox);
+    mainPanel.add(progressPanel);
+  }
+
+  /**
+   * shows a progress bar for a transformation that is being applied, with a button to cancel it.
+   *
+   * @param transformation the name of the transformation being applied.
+   */
+  public void showProgress(String transformation) {
+    progressName = transformation;
+    displayProgress(0);
+    progressPanel.setVisible(true);
+    revalidate();
+  }
+
+  /**
+   * updates the progress bar of the transformation being applied.
+   *
+   * @param percent how much of the transformation is done, from 0 to 100.
+   */
+  public void displayProgress(int percent) {
+    progressBar.setValue(percent);
+    progressBar.setString(progressName + " " + percent + "%");
+  }
+
+  /**
+   * hides the progress bar once no transformation is being applied.
+   */
+  public void hideProgress() {
+    progressPanel.setVisible(false);
+    revalidate();
   }
 
   /**
@@ -2,9 +2,9 @@ package view;
 
 import java.awt.Color;
 import java.awt.Graphics;
-
-import java.util.Arrays;
-import java.util.Map;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
 
 import javax.swing.JPanel;
 
@@ -12,16 +12,15 @@ import model.Image;
 
 /**
  * A class representing the operations required by a histogram that caters to a line chart
- * specifically for our image class.
+ * specifically for our image class. The chart is drawn once into an image of its own, which every
+ * repaint then copies, as the values of a histogram never change.
  */
 public class Histogram extends JPanel {
-  private Image image;
-  private Map<Integer, Integer> redHashMap;
-  private Map<Integer, Integer> greenHashMap;
-  private Map<Integer, Integer> blueHashMap;
-  private Map<Integer, Integer> intensityHashMap;
-  private int min;
-  private int max;
+  private static final Color[] COLORS = {Color.red, Color.green, Color.blue, Color.yellow};
+
+  // the red, green, blue and intensity frequencies, normalized from 0 to 100.
+  private final int[][] values;
+  private BufferedImage chart;
 
   /**
    * Public constructor for a histogram that obtains all the frequencies of pixels from the
@@ -30,22 +29,26 @@ public class Histogram extends JPanel {
    * @param image represents an image that all the data will be obtained from.
    */
   public Histogram(Image image) {
-    this.image = image;
-    this.redHashMap = this.image.getRedHistogram();
-    this.greenHashMap = this.image.getGreenHistogram();
-    this.blueHashMap = this.image.getBlueHistogram();
-    this.intensityHashMap = this.image.getIntensityHistogram();
-    computeMinValues();
-    computeMaxValues();
-    normalizeAllHashMaps();
+    this.values = image.getHistograms();
+    normalize(this.values, 100);
   }
 
-  private void normalizeAllHashMaps() {
-    this.image.changeBrightness(0);
-    normalizeHashMap(redHashMap);
-    normalizeHashMap(greenHashMap);
-    normalizeHashMap(blueHashMap);
-    normalizeHashMap(intensityHashMap);
+  // scales every frequency between the smallest and the largest frequency of all four channels.
+  private static void normalize(int[][] histograms, int maxBound) {
+    int min = Integer.MAX_VALUE;
+    int max = Integer.MIN_VALUE;
+    for (int[] histogram : histograms) {
+      for (int frequency : histogram) {
+        min = Math.min(min, frequency);
+        max = Math.max(max, frequency);
+      }
+    }
+    double maxMin = max - min;
+    for (int[] histogram : histograms) {
+      for (int i = 0; i < histogram.length; i++) {
+        histogram[i] = (int) ((histogram[i] - min) / maxMin * maxBound);
+      }
+    }
   }
 
   /**
@@ -57,64 +60,33 @@ public class Histogram extends JPanel {
   @Override
   public void paintComponent(Graphics g) {
     super.paintComponent(g);
-    g.drawLine(10, 100, 10, 10);
-    g.drawLine(10, 100, 522, 100);
-    drawLine(g, this.redHashMap, Color.red);
-    drawLine(g, this.greenHashMap, Color.green);
-    drawLine(g, this.blueHashMap, Color.blue);
-    drawLine(g, this.intensityHashMap, Color.yellow);
-  }
-
-  private void normalizeHashMap(Map<Integer, Integer> map) {
-    Integer[] histogramArray = normalizeData(map, 100);
-    for (int key = 0; key < 256; key++) {
-      map.replace(key, histogramArray[key]);
+    if (this.chart == null) {
+      this.chart = drawChart();
     }
+    g.drawImage(this.chart, 0, 0, null);
   }
 
-  private Integer[] normalizeData(Map<Integer, Integer> histogram, int maxBound) {
-    Integer[] histogramArray = histogram.values().toArray(new Integer[0]);
-    for (int i = 0; i < histogramArray.length; i++) {
-      double currentValue = histogramArray[i] - this.min;
-      double maxMin = this.max - this.min;
-      double x = currentValue / maxMin;
-      double x2 = x * maxBound;
-      histogramArray[i] = (int) x2;
+  private BufferedImage drawChart() {
+    GraphicsConfiguration configuration = getGraphicsConfiguration();
+    BufferedImage image = configuration == null
+            ? new BufferedImage(523, 101, BufferedImage.TYPE_INT_ARGB)
+            : configuration.createCompatibleImage(523, 101, Transparency.TRANSLUCENT);
+    Graphics g = image.getGraphics();
+    g.setColor(getForeground());
+    g.drawLine(10, 100, 10, 10);
+    g.drawLine(10, 100, 522, 100);
+    for (int channel = 0; channel < this.values.length; channel++) {
+      drawLine(g, this.values[channel], COLORS[channel]);
     }
-    return histogramArray;
-  }
-
-  private void computeMinValues() {
-    int redGreen = Math.min(findMinValue(redHashMap), findMinValue(greenHashMap));
-    int blueIntensity = Math.min(findMinValue(blueHashMap), findMinValue(intensityHashMap));
-    this.min = Math.min(redGreen, blueIntensity);
-  }
-
-  private int findMinValue(Map<Integer, Integer> map) {
-    Integer[] frequencies = map.values().toArray(new Integer[0]);
-    Arrays.sort(frequencies);
-    return frequencies[0];
-  }
-
-  private void computeMaxValues() {
-    int redGreen = Math.max(findMaxValue(redHashMap), findMaxValue(greenHashMap));
-    int blueIntensity = Math.max(findMaxValue(blueHashMap), findMaxValue(intensityHashMap));
-    this.max = Math.max(redGreen, blueIntensity);
-  }
-
-  private int findMaxValue(Map<Integer, Integer> map) {
-    Integer[] frequencies = map.values().toArray(new Integer[0]);
-    Arrays.sort(frequencies);
-    return frequencies[frequencies.length - 1];
+    g.dispose();
+    return image;
   }
 
-  private void drawLine(Graphics g, Map<Integer, Integer> hash, Color color) {
+  private void drawLine(Graphics g, int[] histogram, Color color) {
+    g.setColor(color);
     for (int i = 0; i < 255; i++) {
       int currentPointX = (i * 2) + 10;
-      int currentPointY = 100 - hash.get(i);
-      int nextPointY = 100 - hash.get(i + 1);
-      g.setColor(color);
-      g.drawLine(currentPointX, currentPointY, currentPointX + 2, nextPointY);
+      g.drawLine(currentPointX, 100 - histogram[i], currentPointX + 2, 100 - histogram[i + 1]);
     }
   }
-}
\ No newline at end of file
+}
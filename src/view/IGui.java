@@ -48,6 +48,16 @@ public interface IGui {
    */
   void displayBufferedImage(BufferedImage image);
 
+  /**
+   * displays a preview of an edited image in the image panel in the GUI, stretching a smaller.
+   * version of the image to the size of the image.
+   *
+   * @param preview the smaller version of the image.
+   * @param width   the width the preview is displayed at.
+   * @param height  the height the preview is displayed at.
+   */
+  void displayPreview(BufferedImage preview, int width, int height);
+
   /**
    * initializes the histogram in the GUI when an image is first displayed.
    *
@@ -72,6 +82,14 @@ public interface IGui {
    */
   void saveFileButtonOnPress();
 
+  /**
+   * enables the undo and redo buttons when there is something to undo or redo.
+   *
+   * @param canUndo true if there is a transformation to undo.
+   * @param canRedo true if there is a transformation to redo.
+   */
+  void displayHistory(boolean canUndo, boolean canRedo);
+
   /**
    * adds the dropdown of commands/transformations for editing an image to the GUI.
    */
@@ -122,4 +140,23 @@ public interface IGui {
    */
   String getSaveImageName();
 
+
+  /**
+   * shows a progress bar for a transformation that is being applied, with a button to cancel it.
+   *
+   * @param transformation the name of the transformation being applied.
+   */
+  void showProgress(String transformation);
+
+  /**
+   * updates the progress bar of the transformation being applied.
+   *
+   * @param percent how much of the transformation is done, from 0 to 100.
+   */
+  void displayProgress(int percent);
+
+  /**
+   * hides the progress bar once no transformation is being applied.
+   */
+  void hideProgress();
 }
@@ -0,0 +1,429 @@
+package view;
+
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.ActionEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.AbstractAction;
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+import javax.swing.JViewport;
+import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
+
+/**
+ * A panel that shows an image, however large, by painting only the tiles of it that can be seen.
+ * Tiles are copied from the raster of the image, or at a zoom under 100% taken from a pyramid of
+ * halved versions of the image built tile by tile in the background, and the tiles painted most
+ * recently are kept so that scrolling back over them costs nothing. Until a tile of the pyramid
+ * is built, its part of the image is drawn scaled straight from the raster. The image is zoomed
+ * with ctrl and the mouse wheel, or ctrl and plus, minus and 0.
+ */
+public class TiledImagePanel extends JPanel {
+  private static final long serialVersionUID = 1L;
+  private static final int TILE = 256;
+  private static final double MIN_ZOOM = 1.0 / 64;
+  private static final double MAX_ZOOM = 32;
+  private static final double ZOOM_STEP = 1.25;
+
+  private final int cacheTiles;
+  private final ExecutorService builder;
+  private volatile Pyramid pyramid;
+  // the level of the pyramid last painted, so that tiles of another zoom are no longer built.
+  private volatile int level;
+  private int width;
+  private int height;
+  private double zoom = 1;
+
+  /**
+   * Constructor for an empty panel, keeping up to -DtileCacheSize bytes of tiles (an eighth of
+   * the heap by default).
+   */
+  public TiledImagePanel() {
+    this(Long.getLong("tileCacheSize", Runtime.getRuntime().maxMemory() / 8));
+  }
+
+  /**
+   * Constructor for an empty panel.
+   *
+   * @param cacheBytes the number of bytes of tiles kept.
+   */
+  public TiledImagePanel(long cacheBytes) {
+    if (cacheBytes <= 0) {
+      throw new IllegalArgumentException("The cache size must be positive.");
+    }
+    this.cacheTiles = (int) Math.max(16, Math.min(Integer.MAX_VALUE,
+            cacheBytes / (TILE * TILE * 4)));
+    this.builder = Executors.newSingleThreadExecutor(r -> {
+      Thread thread = new Thread(r, "tile builder");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    addMouseWheelListener(this::wheelMoved);
+    bindKey(KeyStroke.getKeyStroke(KeyEvent.VK_EQUALS, InputEvent.CTRL_DOWN_MASK), "Zoom in",
+            () -> zoom(ZOOM_STEP, null));
+    bindKey(KeyStroke.getKeyStroke(KeyEvent.VK_ADD, InputEvent.CTRL_DOWN_MASK), "Zoom in",
+            () -> zoom(ZOOM_STEP, null));
+    bindKey(KeyStroke.getKeyStroke(KeyEvent.VK_MINUS, InputEvent.CTRL_DOWN_MASK), "Zoom out",
+            () -> zoom(1 / ZOOM_STEP, null));
+    bindKey(KeyStroke.getKeyStroke(KeyEvent.VK_SUBTRACT, InputEvent.CTRL_DOWN_MASK), "Zoom out",
+            () -> zoom(1 / ZOOM_STEP, null));
+    bindKey(KeyStroke.getKeyStroke(KeyEvent.VK_0, InputEvent.CTRL_DOWN_MASK), "Actual size",
+            () -> zoom(1 / this.zoom, null));
+  }
+
+  /**
+   * Shows an image, stretched to the given size before it is zoomed. Showing the same image
+   * again keeps the tiles already made of it.
+   *
+   * @param image  the image to be shown.
+   * @param width  the width the image is shown at, at a zoom of 100%.
+   * @param height the height the image is shown at, at a zoom of 100%.
+   */
+  public void setImage(BufferedImage image, int width, int height) {
+    if (image == null) {
+      throw new IllegalArgumentException("Fields cannot be null.");
+    }
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("The size must be positive.");
+    }
+    if (this.pyramid == null || this.pyramid.source != image) {
+      this.pyramid = new Pyramid(image, this.cacheTiles);
+    }
+    this.width = width;
+    this.height = height;
+    revalidate();
+    repaint();
+  }
+
+  /**
+   * Gets the zoom the image is shown at.
+   *
+   * @return the zoom, 1 being 100%.
+   */
+  public double getZoom() {
+    return this.zoom;
+  }
+
+  /**
+   * Sets the zoom the image is shown at, keeping the middle of the part that can be seen in
+   * place.
+   *
+   * @param zoom the zoom, 1 being 100%.
+   */
+  public void setZoom(double zoom) {
+    zoom(zoom / this.zoom, null);
+  }
+
+  @Override
+  public Dimension getPreferredSize() {
+    if (this.pyramid == null) {
+      return new Dimension(0, 0);
+    }
+    return new Dimension((int) Math.ceil(this.width * this.zoom),
+            (int) Math.ceil(this.height * this.zoom));
+  }
+
+  /**
+   * Paints the tiles of the image that intersect the area to be painted.
+   *
+   * @param g the graphics to paint on.
+   */
+  @Override
+  protected void paintComponent(Graphics g) {
+    super.paintComponent(g);
+    Pyramid pyramid = this.pyramid;
+    if (pyramid == null) {
+      return;
+    }
+    Rectangle clip = g.getClipBounds();
+    if (clip == null) {
+      clip = new Rectangle(0, 0, getWidth(), getHeight());
+    }
+
+    // the pixels of the panel per pixel of the source, and the level of the pyramid that is
+    // never smaller than the image painted.
+    double scaleX = this.width * this.zoom / pyramid.source.getWidth();
+    double scaleY = this.height * this.zoom / pyramid.source.getHeight();
+    int level = 0;
+    while ((pyramid.width(level) > 1 || pyramid.height(level) > 1)
+            && Math.min(scaleX, scaleY) * (1L << (level + 1)) <= 1) {
+      level++;
+    }
+    this.level = level;
+    double tileX = scaleX * (1 << level);
+    double tileY = scaleY * (1 << level);
+    int columns = (pyramid.width(level) + TILE - 1) / TILE;
+    int rows = (pyramid.height(level) + TILE - 1) / TILE;
+    int firstColumn = Math.max(0, (int) (clip.x / (TILE * tileX)));
+    int lastColumn = Math.min(columns - 1, (int) ((clip.x + clip.width) / (TILE * tileX)));
+    int firstRow = Math.max(0, (int) (clip.y / (TILE * tileY)));
+    int lastRow = Math.min(rows - 1, (int) ((clip.y + clip.height) / (TILE * tileY)));
+
+    Graphics2D g2 = (Graphics2D) g.create();
+    boolean pixelated = tileX >= 1 && tileY >= 1 && this.width == pyramid.source.getWidth();
+    g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, pixelated
+            ? RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR
+            : RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+    for (int row = firstRow; row <= lastRow; row++) {
+      for (int column = firstColumn; column <= lastColumn; column++) {
+        Key key = new Key(level, column, row);
+        int w = pyramid.tileWidth(level, column);
+        int h = pyramid.tileHeight(level, row);
+        int x1 = (int) Math.round(column * TILE * tileX);
+        int y1 = (int) Math.round(row * TILE * tileY);
+        int x2 = (int) Math.round((column * TILE + w) * tileX);
+        int y2 = (int) Math.round((row * TILE + h) * tileY);
+
+        BufferedImage tile = pyramid.cached(key);
+        if (tile == null && level == 0) {
+          // a copy of the raster, cheap enough to be made while painting.
+          tile = pyramid.tile(key);
+        }
+        if (tile != null) {
+          g2.drawImage(tile, x1, y1, x2, y2, 0, 0, w, h, null);
+        } else {
+          int sourceX = column * (TILE << level);
+          int sourceY = row * (TILE << level);
+          g2.drawImage(pyramid.source, x1, y1, x2, y2, sourceX, sourceY,
+                  Math.min(sourceX + (TILE << level), pyramid.source.getWidth()),
+                  Math.min(sourceY + (TILE << level), pyramid.source.getHeight()), null);
+          request(pyramid, key);
+        }
+      }
+    }
+    g2.dispose();
+  }
+
+  // builds a tile of the pyramid in the background, then paints it.
+  private void request(Pyramid pyramid, Key key) {
+    if (!pyramid.queued.add(key)) {
+      return;
+    }
+    this.builder.execute(() -> {
+      try {
+        if (this.pyramid == pyramid && this.level == key.level) {
+          pyramid.tile(key);
+          SwingUtilities.invokeLater(this::repaint);
+        }
+      } finally {
+        pyramid.queued.remove(key);
+      }
+    });
+  }
+
+  private void wheelMoved(MouseWheelEvent e) {
+    if ((e.getModifiersEx() & InputEvent.CTRL_DOWN_MASK) != 0) {
+      zoom(e.getPreciseWheelRotation() < 0 ? ZOOM_STEP : 1 / ZOOM_STEP, e.getPoint());
+    } else if (getParent() != null) {
+      // scrolls the panels around the image as if it were not listening to the wheel.
+      getParent().dispatchEvent(SwingUtilities.convertMouseEvent(this, e, getParent()));
+    }
+  }
+
+  // zooms by the given factor, keeping the given point of the panel, or the middle of the part
+  // that can be seen, in place.
+  private void zoom(double factor, Point anchor) {
+    double next = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, this.zoom * factor));
+    if (Math.abs(next - 1) < 1e-9) {
+      next = 1;
+    }
+    if (next == this.zoom) {
+      return;
+    }
+    Rectangle visible = getVisibleRect();
+    if (anchor == null) {
+      anchor = new Point(visible.x + visible.width / 2, visible.y + visible.height / 2);
+    }
+    JViewport viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+    Point inViewport = viewport == null ? null
+            : SwingUtilities.convertPoint(this, anchor, viewport);
+    double imageX = anchor.x / this.zoom;
+    double imageY = anchor.y / this.zoom;
+    this.zoom = next;
+    revalidate();
+
+    if (viewport != null && viewport.getView() != null) {
+      viewport.getParent().validate();
+      Point moved = SwingUtilities.convertPoint(this, (int) Math.round(imageX * next),
+              (int) Math.round(imageY * next), viewport.getView());
+      Dimension view = viewport.getViewSize();
+      Dimension extent = viewport.getExtentSize();
+      viewport.setViewPosition(new Point(
+              Math.max(0, Math.min(moved.x - inViewport.x, view.width - extent.width)),
+              Math.max(0, Math.min(moved.y - inViewport.y, view.height - extent.height))));
+    }
+    repaint();
+  }
+
+  private void bindKey(KeyStroke key, String name, Runnable action) {
+    getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(key, name);
+    getActionMap().put(name, new AbstractAction() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        action.run();
+      }
+    });
+  }
+
+  /**
+   * The position of a tile in the pyramid: its level, 0 being the image itself and every level
+   * half the size of the one below, and its column and row in that level.
+   */
+  private static final class Key {
+    private final int level;
+    private final int column;
+    private final int row;
+
+    private Key(int level, int column, int row) {
+      this.level = level;
+      this.column = column;
+      this.row = row;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return this.level == other.level && this.column == other.column && this.row == other.row;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(this.level, this.column, this.row);
+    }
+  }
+
+  /**
+   * The tiles made of an image, the most recently used of which are kept.
+   */
+  private static final class Pyramid {
+    private final BufferedImage source;
+    private final Map<Key, BufferedImage> tiles;
+    private final Set<Key> queued;
+
+    private Pyramid(BufferedImage source, int cacheTiles) {
+      this.source = source;
+      this.tiles = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, BufferedImage> eldest) {
+          return size() > cacheTiles;
+        }
+      };
+      this.queued = Collections.synchronizedSet(new HashSet<>());
+    }
+
+    private int width(int level) {
+      return Math.max(1, (int) ((this.source.getWidth() + (1L << level) - 1) >> level));
+    }
+
+    private int height(int level) {
+      return Math.max(1, (int) ((this.source.getHeight() + (1L << level) - 1) >> level));
+    }
+
+    private int tileWidth(int level, int column) {
+      return Math.min(TILE, width(level) - column * TILE);
+    }
+
+    private int tileHeight(int level, int row) {
+      return Math.min(TILE, height(level) - row * TILE);
+    }
+
+    private BufferedImage cached(Key key) {
+      synchronized (this.tiles) {
+        return this.tiles.get(key);
+      }
+    }
+
+    // gets a tile, making it (and the tiles of the levels below it) if it is not kept.
+    private BufferedImage tile(Key key) {
+      BufferedImage tile = cached(key);
+      if (tile != null) {
+        return tile;
+      }
+      int w = tileWidth(key.level, key.column);
+      int h = tileHeight(key.level, key.row);
+      int[] pixels = key.level == 0 ? copy(key.column * TILE, key.row * TILE, w, h)
+              : halve(key, w, h);
+      tile = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+      tile.getRaster().setDataElements(0, 0, w, h, pixels);
+      synchronized (this.tiles) {
+        this.tiles.put(key, tile);
+      }
+      return tile;
+    }
+
+    private int[] copy(int x, int y, int w, int h) {
+      if (this.source.getType() == BufferedImage.TYPE_INT_RGB) {
+        return (int[]) this.source.getRaster().getDataElements(x, y, w, h, null);
+      }
+      // other images, such as gray ones, are drawn rather than read through getRGB, which would
+      // convert them to another color space.
+      BufferedImage area = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+      Graphics2D g = area.createGraphics();
+      g.drawImage(this.source, -x, -y, null);
+      g.dispose();
+      return (int[]) area.getRaster().getDataElements(0, 0, w, h, null);
+    }
+
+    // averages every two by two pixels of the four tiles of the level below.
+    private int[] halve(Key key, int w, int h) {
+      int belowWidth = Math.min(2 * TILE, width(key.level - 1) - 2 * key.column * TILE);
+      int belowHeight = Math.min(2 * TILE, height(key.level - 1) - 2 * key.row * TILE);
+      int[] below = new int[belowWidth * belowHeight];
+      for (int dy = 0; dy < 2 && dy * TILE < belowHeight; dy++) {
+        for (int dx = 0; dx < 2 && dx * TILE < belowWidth; dx++) {
+          BufferedImage child = tile(new Key(key.level - 1, 2 * key.column + dx,
+                  2 * key.row + dy));
+          int cw = child.getWidth();
+          int ch = child.getHeight();
+          int[] childPixels = (int[]) child.getRaster().getDataElements(0, 0, cw, ch, null);
+          for (int i = 0; i < ch; i++) {
+            System.arraycopy(childPixels, i * cw, below, (dy * TILE + i) * belowWidth
+                    + dx * TILE, cw);
+          }
+        }
+      }
+
+      int[] pixels = new int[w * h];
+      for (int i = 0; i < h; i++) {
+        int row0 = 2 * i * belowWidth;
+        int row1 = Math.min(2 * i + 1, belowHeight - 1) * belowWidth;
+        for (int j = 0; j < w; j++) {
+          int x0 = 2 * j;
+          int x1 = Math.min(2 * j + 1, belowWidth - 1);
+          int a = below[row0 + x0];
+          int b = below[row0 + x1];
+          int c = below[row1 + x0];
+          int d = below[row1 + x1];
+          int red = ((a >> 16 & 0xFF) + (b >> 16 & 0xFF) + (c >> 16 & 0xFF) + (d >> 16 & 0xFF)
+                  + 2) >> 2;
+          int green = ((a >> 8 & 0xFF) + (b >> 8 & 0xFF) + (c >> 8 & 0xFF) + (d >> 8 & 0xFF)
+                  + 2) >> 2;
+          int blue = ((a & 0xFF) + (b & 0xFF) + (c & 0xFF) + (d & 0xFF) + 2) >> 2;
+          pixels[i * w + j] = red << 16 | green << 8 | blue;
+        }
+      }
+      return pixels;
+    }
+  }
+}
@@ -0,0 +1,165 @@
+package controller;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import model.AbstractImage;
+import model.Image;
+import model.ImageOther;
+import model.ImagePPM;
+import model.Pixel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the image store spills the least recently used images once its budget is exceeded,
+ * reads them back unchanged, and compacts and deletes its spill file as images leave it.
+ */
+public class ImageStoreTest {
+  // ten by ten color images are estimated at 2800 bytes each, so two fit in the budget.
+  private static final long BUDGET = 6000;
+  private static final int RAW_BYTES = 10 * 10 * 3;
+
+  private ImageStore store;
+
+  @Before
+  public void setUp() {
+    this.store = new ImageStore(BUDGET);
+  }
+
+  @After
+  public void tearDown() {
+    this.store.close();
+  }
+
+  // a color image of random pixels, the same for the same seed.
+  private static Image color(long seed) {
+    Random random = new Random(seed);
+    Pixel[][] pixels = new Pixel[10][10];
+    for (int i = 0; i < 10; i++) {
+      for (int j = 0; j < 10; j++) {
+        pixels[i][j] = new Pixel(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+      }
+    }
+    return seed % 2 == 0 ? new ImagePPM(10, 10, 255, pixels) : new ImageOther(10, 10, 255, pixels);
+  }
+
+  private void putAll(String... names) {
+    for (int i = 0; i < names.length; i++) {
+      this.store.put(names[i], color(i));
+    }
+  }
+
+  @Test
+  public void testLeastRecentlyUsedIsSpilled() {
+    putAll("a", "b");
+    assertEquals(0, this.store.getEvictions());
+    this.store.get("a");
+    this.store.put("c", color(2));
+    // b was used less recently than a.
+    assertEquals(1, this.store.getEvictions());
+    assertEquals(RAW_BYTES, this.store.getSpilledBytes());
+    assertEquals(RAW_BYTES, this.store.getSpillFileBytes());
+    assertEquals(2 * 2800, this.store.getResidentBytes());
+    assertTrue(this.store.contains("b"));
+    assertEquals(1, this.store.getHits());
+    assertEquals(0, this.store.getMisses());
+  }
+
+  @Test
+  public void testSpilledImageIsReadBackUnchanged() {
+    putAll("a", "b", "c");
+    Image original = color(0);
+    Image reloaded = this.store.get("a");
+    assertEquals(1, this.store.getMisses());
+    assertEquals(ImagePPM.class, reloaded.getClass());
+    assertEquals(original.getWidth(), reloaded.getWidth());
+    assertEquals(original.getHeight(), reloaded.getHeight());
+    assertArrayEquals(original.returnPixels(), reloaded.returnPixels());
+    // read back, it is held in memory again, and b is spilled in its place.
+    assertSame(reloaded, this.store.get("a"));
+    assertEquals(1, this.store.getHits());
+    assertEquals(2, this.store.getEvictions());
+  }
+
+  @Test
+  public void testGrayImageIsSpilledAsGray() {
+    ImageStore gray = new ImageStore(150);
+    try {
+      byte[] values = new byte[100];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = (byte) (i * 7);
+      }
+      gray.put("g", new ImageOther(10, 10, 255, values.clone()));
+      gray.put("h", new ImageOther(10, 10, 255, new byte[100]));
+      assertEquals(100, gray.getSpilledBytes());
+      AbstractImage reloaded = (AbstractImage) gray.get("g");
+      assertEquals(ImageOther.class, reloaded.getClass());
+      assertArrayEquals(values, reloaded.returnGray());
+    } finally {
+      gray.close();
+    }
+  }
+
+  @Test
+  public void testSpillFileIsCompactedAndDeleted() {
+    putAll("a", "b", "c", "d", "e");
+    assertEquals(3 * RAW_BYTES, this.store.getSpillFileBytes());
+
+    // removing a spilled image frees its space, which is given back once it is half the file.
+    this.store.remove("a");
+    assertEquals(3 * RAW_BYTES, this.store.getSpillFileBytes());
+    this.store.remove("b");
+    assertEquals(RAW_BYTES, this.store.getSpillFileBytes());
+    assertFalse(this.store.contains("a"));
+    assertEquals(0, this.store.getMisses());
+
+    // c was moved to the start of the file, and is read back from there.
+    assertArrayEquals(color(2).returnPixels(), this.store.get("c").returnPixels());
+    // d is spilled to make room for c, into a new file.
+    assertEquals(RAW_BYTES, this.store.getSpillFileBytes());
+    assertArrayEquals(color(3).returnPixels(), this.store.get("d").returnPixels());
+  }
+
+  @Test
+  public void testReplacingSpilledImage() {
+    putAll("a", "b", "c");
+    this.store.put("a", color(7));
+    assertArrayEquals(color(7).returnPixels(), this.store.get("a").returnPixels());
+    assertEquals(0, this.store.getMisses());
+  }
+
+  @Test
+  public void testCloseForgetsSpilledImages() {
+    putAll("a", "b", "c");
+    this.store.close();
+    assertEquals(0, this.store.getSpillFileBytes());
+    assertFalse(this.store.contains("a"));
+    assertNull(this.store.get("a"));
+    assertTrue(this.store.contains("b"));
+    assertTrue(this.store.contains("c"));
+  }
+
+  @Test
+  public void testImageLargerThanBudgetIsKept() {
+    ImageStore small = new ImageStore(1000);
+    try {
+      small.put("a", color(0));
+      assertEquals(0, small.getEvictions());
+      assertEquals(2800, small.getResidentBytes());
+      small.put("b", color(1));
+      assertEquals(1, small.getEvictions());
+      assertTrue(small.contains("a"));
+    } finally {
+      small.close();
+    }
+  }
+}
@@ -0,0 +1,173 @@
+package controller;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+
+import model.AbstractImage;
+import model.Image;
+import model.ImageOther;
+import model.ImagePPM;
+import model.Pixel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests that the result cache gives back the images and messages it was given under keys made
+ * from the content of the inputs, keeps them between instances, and deletes the least recently
+ * used results to stay within its size limit.
+ */
+public class ResultCacheTest {
+  // a ten by ten color result with no messages takes up 20 bytes of header and 300 of pixels.
+  private static final long RESULT_BYTES = 320;
+
+  private File directory;
+
+  @Before
+  public void setUp() throws IOException {
+    this.directory = Files.createTempDirectory("results").toFile();
+  }
+
+  @After
+  public void tearDown() {
+    File[] files = this.directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    this.directory.delete();
+  }
+
+  // a color image of random pixels, the same for the same seed.
+  private static Image color(long seed) {
+    Random random = new Random(seed);
+    Pixel[][] pixels = new Pixel[10][10];
+    for (int i = 0; i < 10; i++) {
+      for (int j = 0; j < 10; j++) {
+        pixels[i][j] = new Pixel(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+      }
+    }
+    return new ImagePPM(10, 10, 255, pixels);
+  }
+
+  private static String key(ResultCache cache, String command, Image input) {
+    return cache.key(command, List.of(), List.of(input), List.of());
+  }
+
+  @Test
+  public void testRoundTrip() {
+    ResultCache cache = new ResultCache(this.directory, 1 << 20);
+    String key = key(cache, "blur", color(1));
+    assertNull(cache.get(key));
+    cache.put(key, color(2), "done\n");
+
+    ResultCache.Result result = cache.get(key);
+    assertNotNull(result);
+    assertEquals("done\n", result.getMessages());
+    assertEquals(ImagePPM.class, result.getImage().getClass());
+    assertArrayEquals(color(2).returnPixels(), result.getImage().returnPixels());
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+  }
+
+  @Test
+  public void testGrayRoundTrip() {
+    ResultCache cache = new ResultCache(this.directory, 1 << 20);
+    byte[] values = new byte[12];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = (byte) (i * 20);
+    }
+    String key = key(cache, "luma-component", color(1));
+    cache.put(key, new ImageOther(4, 3, 255, values.clone()), "");
+    AbstractImage image = (AbstractImage) cache.get(key).getImage();
+    assertEquals(ImageOther.class, image.getClass());
+    assertEquals(4, image.getWidth());
+    assertEquals(3, image.getHeight());
+    assertArrayEquals(values, image.returnGray());
+  }
+
+  @Test
+  public void testKeyFollowsContentAndParameters() {
+    ResultCache cache = new ResultCache(this.directory, 1 << 20);
+    String key = cache.key("brighten", List.of("10"), List.of(color(1)), List.of());
+    assertEquals(key, cache.key("brighten", List.of("10"), List.of(color(1)), List.of()));
+    assertNotEquals(key, cache.key("brighten", List.of("20"), List.of(color(1)), List.of()));
+    assertNotEquals(key, cache.key("brighten", List.of("10"), List.of(color(2)), List.of()));
+    assertNotEquals(key, cache.key("sharpen", List.of("10"), List.of(color(1)), List.of()));
+  }
+
+  @Test
+  public void testKeyFollowsInterpolation() {
+    ResultCache cache = new ResultCache(this.directory, 1 << 20);
+    String bicubic = key(cache, "rotate", color(1));
+    System.setProperty("interpolation", "bilinear");
+    try {
+      assertNotEquals(bicubic, key(cache, "rotate", color(1)));
+    } finally {
+      System.clearProperty("interpolation");
+    }
+  }
+
+  @Test
+  public void testResultsKeptBetweenInstances() {
+    ResultCache cache = new ResultCache(this.directory, 1 << 20);
+    String key = key(cache, "blur", color(1));
+    cache.put(key, color(2), "");
+
+    ResultCache reopened = new ResultCache(this.directory, 1 << 20);
+    assertEquals(RESULT_BYTES, reopened.getBytes());
+    assertArrayEquals(color(2).returnPixels(), reopened.get(key).getImage().returnPixels());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedIsEvicted() {
+    ResultCache cache = new ResultCache(this.directory, 2 * RESULT_BYTES);
+    String first = key(cache, "blur", color(1));
+    String second = key(cache, "sharpen", color(1));
+    String third = key(cache, "sepia", color(1));
+    cache.put(first, color(1), "");
+    cache.put(second, color(2), "");
+    assertNotNull(cache.get(first));
+    cache.put(third, color(3), "");
+
+    // the second result was used less recently than the first.
+    assertEquals(1, cache.getEvictions());
+    assertEquals(2 * RESULT_BYTES, cache.getBytes());
+    assertNull(cache.get(second));
+    assertNotNull(cache.get(first));
+    assertNotNull(cache.get(third));
+    assertEquals(2, this.directory.listFiles((dir, name) -> name.endsWith(".raw")).length);
+  }
+
+  @Test
+  public void testTooLargeDirectoryIsTrimmedWhenOpened() {
+    ResultCache cache = new ResultCache(this.directory, 1 << 20);
+    for (int i = 0; i < 3; i++) {
+      cache.put(key(cache, "blur", color(i)), color(i), "");
+    }
+    ResultCache smaller = new ResultCache(this.directory, RESULT_BYTES);
+    assertEquals(2, smaller.getEvictions());
+    assertEquals(RESULT_BYTES, smaller.getBytes());
+  }
+
+  @Test
+  public void testDamagedResultIsMissing() throws IOException {
+    ResultCache cache = new ResultCache(this.directory, 1 << 20);
+    String key = key(cache, "blur", color(1));
+    cache.put(key, color(2), "");
+    Files.write(new File(this.directory, key + ".raw").toPath(), new byte[]{1, 2, 3});
+    assertNull(cache.get(key));
+    assertEquals(0, cache.getBytes());
+  }
+}
@@ -0,0 +1,151 @@
+package controller;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import view.ImageView;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the planner computes repeated commands and loads once, by reusing the result of the
+ * first, and removes the commands whose results are never saved or used.
+ */
+public class ScriptPlannerTest {
+  private Map<String, ScriptCommand.Argument[]> signatures;
+  private ScriptPlanner planner;
+
+  @Before
+  public void setUp() {
+    this.signatures = new ImageController(new HashMap<>(), new ImageView(),
+            new StringReader("")).getSignatures();
+    this.planner = new ScriptPlanner();
+  }
+
+  private List<ScriptCommand> parse(String script) {
+    return new ScriptParser(this.signatures).parse(new StringReader(script));
+  }
+
+  private List<ScriptCommand> plan(String script) {
+    return this.planner.plan(parse(script));
+  }
+
+  // the indices in the script of the commands of a plan.
+  private static List<Integer> indices(List<ScriptCommand> plan) {
+    List<Integer> indices = new ArrayList<>();
+    for (ScriptCommand command : plan) {
+      indices.add(command.getIndex());
+    }
+    return indices;
+  }
+
+  @Test
+  public void testRepeatedOperationIsReused() {
+    List<ScriptCommand> plan = plan("load a.ppm img\nblur img b1\nblur img b2\n"
+            + "save o1.ppm b1\nsave o2.ppm b2\n");
+    assertEquals(List.of(0, 1, 2, 3, 4), indices(plan));
+    assertFalse(plan.get(1).isReuse());
+    assertTrue(plan.get(2).isReuse());
+    assertEquals(1, plan.get(2).getSource());
+    assertEquals(List.of("b1"), plan.get(2).reads());
+    assertEquals(List.of("b2"), plan.get(2).writes());
+  }
+
+  @Test
+  public void testRepeatedLoadIsDecodedOnce() {
+    List<ScriptCommand> plan = plan("load a.ppm x\nload a.ppm y\nsave o1.ppm x\nsave o2.ppm y\n");
+    assertTrue(plan.get(1).isReuse());
+    assertEquals(0, plan.get(1).getSource());
+    assertEquals(List.of("x"), plan.get(1).reads());
+  }
+
+  @Test
+  public void testLoadAfterSavingToTheFileIsNotReused() {
+    List<ScriptCommand> plan = plan("load a.ppm x\nblur x y\nsave a.ppm y\nload a.ppm z\n"
+            + "save o.ppm z\n");
+    assertEquals(List.of(0, 1, 2, 3, 4), indices(plan));
+    assertFalse(plan.get(3).isReuse());
+  }
+
+  @Test
+  public void testDifferentParametersAreNotReused() {
+    List<ScriptCommand> plan = plan("load a.ppm img\nbrighten 10 img a\nbrighten 20 img b\n"
+            + "brighten 10 img c\nsave o1.ppm a\nsave o2.ppm b\nsave o3.ppm c\n");
+    assertFalse(plan.get(2).isReuse());
+    assertTrue(plan.get(3).isReuse());
+    assertEquals(1, plan.get(3).getSource());
+  }
+
+  @Test
+  public void testReplacedResultIsComputedAgain() {
+    // b1 no longer holds the blur of img when it is asked for again, and no other name does.
+    List<ScriptCommand> plan = plan("load a.ppm img\nblur img b1\nsharpen b1 b1\nblur img b2\n"
+            + "save o1.ppm b1\nsave o2.ppm b2\n");
+    assertEquals(List.of(0, 1, 2, 3, 4, 5), indices(plan));
+    for (ScriptCommand command : plan) {
+      assertFalse(command.isReuse());
+    }
+  }
+
+  @Test
+  public void testUnusedCommandsAreRemoved() {
+    // the blur is never used, and the sharpen is replaced before it is read.
+    List<ScriptCommand> plan = plan("load a.ppm img\nblur img unused\nsharpen img t\n"
+            + "sepia img t\nsave o.ppm t\n");
+    assertEquals(List.of(0, 3, 4), indices(plan));
+  }
+
+  @Test
+  public void testCommandsOnlyUsedByRemovedOnesAreRemoved() {
+    List<ScriptCommand> plan = plan("load a.ppm img\nload b.ppm other\nblur other x\n"
+            + "sharpen x y\nsave o.ppm img\n");
+    assertEquals(List.of(0, 4), indices(plan));
+  }
+
+  @Test
+  public void testCommandsWithoutOutputsAreKept() {
+    // an unknown command and stats store nothing, so they are kept, unlike the unused load.
+    List<ScriptCommand> plan = plan("load a.ppm img\nfoo\nstats\n");
+    assertEquals(List.of(1, 2), indices(plan));
+  }
+
+  @Test
+  public void testReuseOfUnusedResultIsRemoved() {
+    List<ScriptCommand> plan = plan("load a.ppm img\nblur img b1\nblur img b2\nsave o.ppm b1\n");
+    assertEquals(List.of(0, 1, 3), indices(plan));
+  }
+
+  @Test
+  public void testExplainCountsAndSizes() throws IOException {
+    File image = File.createTempFile("planner", ".ppm");
+    image.deleteOnExit();
+    Files.write(image.toPath(), ("P3\n4 2\n255\n1 2 3 4 5 6 7 8 9 10 11 12\n"
+            + "13 14 15 16 17 18 19 20 21 22 23 24\n").getBytes(StandardCharsets.US_ASCII));
+    String path = image.getPath();
+    String text = this.planner.explain(parse("load " + path + " img\nrotate 90 img r\n"
+            + "crop 1 0 1 3 r c\nblur img b1\nblur img b2\nsave o1.ppm c\nsave o2.ppm b1\n"
+            + "save o3.ppm b2\nsepia img unused\n"));
+    assertTrue(text, text.startsWith("Plan: 9 commands, 7 computed, 1 reused, "
+            + "1 removed as unused\n"));
+    String[] lines = text.split("\n");
+    assertTrue(lines[1], lines[1].matches("#0 +load .* 4x2 2 passes"));
+    assertTrue(lines[2], lines[2].matches("#1 +rotate .* 4x2 2 passes"));
+    assertTrue(lines[3], lines[3].matches("#2 +crop .* 2x4 2 passes"));
+    assertTrue(lines[5], lines[5].matches("#4 +blur .* 4x2 0 passes"));
+    assertTrue(lines[6], lines[6].matches("#5 +save .* 1x3 2 passes"));
+    assertTrue(text, text.contains("#8    sepia img unused"));
+    assertTrue(text, text.contains("removed as unused\nEstimated work: "));
+  }
+}
@@ -0,0 +1,202 @@
+package controller;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import commands.Command;
+import controller.ScriptCommand.Argument;
+import model.Image;
+import model.ImageOther;
+import view.ImageView;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the scheduler runs a command only after the commands it depends on, runs the others
+ * at the same time, renders messages in script order, makes stats wait for everything before it,
+ * and releases the images of the script once nothing reads them any more.
+ */
+public class ScriptSchedulerTest {
+  private Map<String, Argument[]> signatures;
+  private Map<String, Supplier<Command>> commands;
+  // what the commands and the images did, in the order they did it.
+  private List<String> log;
+  private CountDownLatch meeting;
+
+  @Before
+  public void setUp() {
+    this.log = Collections.synchronizedList(new ArrayList<>());
+    this.meeting = new CountDownLatch(2);
+    this.signatures = new HashMap<>();
+    this.commands = new HashMap<>();
+
+    // make sleep name: sleeps for the given milliseconds, then stores a new image.
+    add("make", (sc, view, images) -> {
+      int sleep = sc.nextInt();
+      String name = sc.next();
+      run("make " + name, sleep, view);
+      images.put(name, new ImageOther(1, 1, 255, new byte[1]));
+    }, Argument.Param, Argument.Write);
+    // copy sleep from to: sleeps, then stores the image it read under another name.
+    add("copy", (sc, view, images) -> {
+      int sleep = sc.nextInt();
+      String from = sc.next();
+      String to = sc.next();
+      if (!images.containsKey(from)) {
+        throw new IOException("copy " + to + " found no " + from);
+      }
+      run("copy " + to, sleep, view);
+      images.put(to, images.get(from));
+    }, Argument.Param, Argument.Read, Argument.Write);
+    // meet name: waits for another meet to be running at the same time.
+    add("meet", (sc, view, images) -> {
+      String name = sc.next();
+      this.meeting.countDown();
+      try {
+        if (!this.meeting.await(10, TimeUnit.SECONDS)) {
+          this.log.add("meet " + name + " alone");
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      images.put(name, new ImageOther(1, 1, 255, new byte[1]));
+    }, Argument.Write);
+    add("stats", (sc, view, images) -> run("stats", 0, view));
+  }
+
+  private void add(String name, Command command, Argument... signature) {
+    this.signatures.put(name, signature);
+    this.commands.put(name, () -> command);
+  }
+
+  private void run(String name, int sleep, ImageView view) throws IOException {
+    this.log.add(name + " start");
+    try {
+      Thread.sleep(sleep);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    view.renderMessage(name + "\n");
+    this.log.add(name + " end");
+  }
+
+  // runs a script on four threads, returning the messages it rendered.
+  private String run(String script, NamedImages images, boolean release) {
+    StringBuilder messages = new StringBuilder();
+    List<ScriptCommand> commands = new ScriptParser(this.signatures)
+            .parse(new StringReader(script));
+    new ScriptScheduler(this.commands, new ImageView(messages), images, 4, release, 0)
+            .run(commands);
+    return messages.toString();
+  }
+
+  private String run(String script) {
+    return run(script, NamedImages.of(new HashMap<>()), false);
+  }
+
+  private void assertBefore(String first, String second) {
+    assertTrue(this.log.toString(), this.log.indexOf(first) >= 0);
+    assertTrue(this.log.toString(), this.log.indexOf(first) < this.log.indexOf(second));
+  }
+
+  @Test
+  public void testReaderWaitsForWriter() {
+    assertEquals("make a\ncopy b\n", run("make 100 a\ncopy 0 a b\n"));
+    assertBefore("make a end", "copy b start");
+  }
+
+  @Test
+  public void testWriterWaitsForReaders() {
+    run("make 0 a\ncopy 100 a b\ncopy 100 a c\nmake 0 a\n");
+    int second = this.log.lastIndexOf("make a start");
+    assertTrue(this.log.toString(), this.log.indexOf("make a start") < second);
+    assertTrue(this.log.toString(), this.log.indexOf("copy b end") < second);
+    assertTrue(this.log.toString(), this.log.indexOf("copy c end") < second);
+  }
+
+  @Test
+  public void testIndependentCommandsRunTogether() {
+    Map<String, Image> map = new HashMap<>();
+    run("meet a\nmeet b\n", NamedImages.of(map), false);
+    // each meet waits until the other one has started, so neither met alone.
+    assertEquals(List.of(), this.log);
+    assertTrue(map.containsKey("a") && map.containsKey("b"));
+  }
+
+  @Test
+  public void testMessagesInScriptOrder() {
+    assertEquals("make a\nmake b\nmake c\n", run("make 150 a\nmake 50 b\nmake 0 c\n"));
+  }
+
+  @Test
+  public void testStatsWaitsForEverythingBeforeIt() {
+    assertEquals("make a\nmake b\nstats\nmake c\n",
+            run("make 100 a\nmake 50 b\nstats\nmake 0 c\n"));
+    assertBefore("make a end", "stats start");
+    assertBefore("make b end", "stats start");
+    assertBefore("stats end", "make c start");
+  }
+
+  @Test
+  public void testUnknownCommand() {
+    assertEquals("make a\nInvalid command, please enter again: make b\n",
+            run("make 0 a\nfoo\nmake 0 b\n"));
+  }
+
+  @Test
+  public void testImagesReleasedOnceUnused() {
+    Map<String, Image> map = new HashMap<>();
+    map.put("in", new ImageOther(1, 1, 255, new byte[1]));
+    NamedImages images = new NamedImages() {
+      @Override
+      public Image get(String name) {
+        return map.get(name);
+      }
+
+      @Override
+      public boolean contains(String name) {
+        return map.containsKey(name);
+      }
+
+      @Override
+      public void put(String name, Image image) {
+        map.put(name, image);
+      }
+
+      @Override
+      public void remove(String name) {
+        log.add("remove " + name);
+        map.remove(name);
+      }
+    };
+
+    run("copy 0 in a\ncopy 0 a b\ncopy 50 b c\n", images, true);
+    // a is no longer needed once b is computed from it, before c is.
+    assertBefore("remove a", "copy c start");
+    assertBefore("copy c end", "remove b");
+    // the images that were there before the script are kept.
+    assertEquals(List.of("in"), new ArrayList<>(map.keySet()));
+  }
+
+  @Test
+  public void testImagesKeptWithoutRelease() {
+    Map<String, Image> map = new HashMap<>();
+    map.put("in", new ImageOther(1, 1, 255, new byte[1]));
+    run("copy 0 in a\ncopy 0 a b\n", NamedImages.of(map), false);
+    assertTrue(map.keySet().containsAll(List.of("in", "a", "b")));
+    assertFalse(this.log.toString(), this.log.contains("remove a"));
+  }
+}
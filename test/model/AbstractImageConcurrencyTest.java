@@ -0,0 +1,190 @@
+package model;
+
+import org.junit.Test;
+
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that an image that is flipped, turned, transformed or cropped, whose pixels are only
+ * reordered or sampled when it is first read, gives the same pixels to every thread reading it at
+ * once as it gives to a single one.
+ */
+public class AbstractImageConcurrencyTest {
+  private static final int THREADS = 8;
+  private static final int ROUNDS = 20;
+
+  // an image of random pixels, the same for the same seed.
+  private static AbstractImage random(int width, int height, long seed) {
+    Random random = new Random(seed);
+    Pixel[][] pixels = new Pixel[height][width];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        pixels[i][j] = new Pixel(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+      }
+    }
+    return new ImageOther(width, height, 255, pixels);
+  }
+
+  // the pixels of a buffered image as it stores them, as the rgb of a gray image is lightened.
+  private static Pixel[][] pixelsOf(BufferedImage output) {
+    Pixel[][] pixels = new Pixel[output.getHeight()][output.getWidth()];
+    int[] samples = new int[output.getRaster().getNumBands()];
+    for (int i = 0; i < pixels.length; i++) {
+      for (int j = 0; j < pixels[i].length; j++) {
+        output.getRaster().getPixel(j, i, samples);
+        pixels[i][j] = samples.length == 1 ? new Pixel(samples[0])
+                : new Pixel(samples[0], samples[1], samples[2]);
+      }
+    }
+    return pixels;
+  }
+
+  // reads the image by every means at once from several threads, each read checked against the
+  // same image read by a single thread.
+  private static void readConcurrently(long seed, Consumer<AbstractImage> edit) throws Exception {
+    AbstractImage expected = random(120, 80, seed);
+    edit.accept(expected);
+    Pixel[][] pixels = expected.returnPixels();
+    String text = expected.formatTextPPM().toString();
+    int[][] histograms = expected.getHistograms();
+
+    AbstractImage image = random(120, 80, seed);
+    edit.accept(image);
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<?>> reads = new ArrayList<>();
+      for (int thread = 0; thread < THREADS; thread++) {
+        int read = thread % 5;
+        reads.add(executor.submit((Callable<Void>) () -> {
+          start.await();
+          switch (read) {
+            case 0:
+              assertArrayEquals(pixels, image.returnPixels());
+              break;
+            case 1:
+              assertEquals(text, image.formatTextPPM().toString());
+              break;
+            case 2:
+              assertArrayEquals(histograms, image.getHistograms());
+              break;
+            case 3:
+              assertArrayEquals(pixels, pixelsOf(image.createImage()));
+              break;
+            default:
+              assertArrayEquals(pixels, image.createCopy().returnPixels());
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> read : reads) {
+        read.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testFlippedAndTurned() throws Exception {
+    for (int round = 0; round < ROUNDS; round++) {
+      readConcurrently(round, image -> {
+        image.horizontalFlip();
+        image.rotate(90);
+        image.verticalFlip();
+      });
+    }
+  }
+
+  @Test
+  public void testCroppedRegion() throws Exception {
+    for (int round = 0; round < ROUNDS; round++) {
+      readConcurrently(round, image -> {
+        image.rotate(270);
+        image.crop(7, 11, 50, 90);
+      });
+    }
+  }
+
+  @Test
+  public void testPendingTransform() throws Exception {
+    for (int round = 0; round < ROUNDS; round++) {
+      readConcurrently(round, image -> {
+        image.transform(AffineTransform.getScaleInstance(1.5, 0.75), 180, 60,
+                Interpolation.BILINEAR);
+        image.horizontalFlip();
+      });
+    }
+  }
+
+  @Test
+  public void testGrayRegion() throws Exception {
+    for (int round = 0; round < ROUNDS; round++) {
+      readConcurrently(round, image -> {
+        image.createGrayScale();
+        image.verticalFlip();
+        image.crop(3, 5, 100, 60);
+      });
+    }
+  }
+
+  @Test
+  public void testClippingMaskReadByOthers() throws Exception {
+    for (int round = 0; round < ROUNDS; round++) {
+      AbstractImage mask = random(120, 80, round);
+      mask.createGrayScaleRed();
+      mask.horizontalFlip();
+      AbstractImage expected = random(120, 80, round + ROUNDS);
+      expected.clipSepia(mask.createCopy());
+      Pixel[][] pixels = expected.returnPixels();
+
+      ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+      try {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Pixel[][]>> clips = new ArrayList<>();
+        long seed = round + ROUNDS;
+        for (int thread = 0; thread < THREADS; thread++) {
+          clips.add(executor.submit(() -> {
+            AbstractImage image = random(120, 80, seed);
+            start.await();
+            image.clipSepia(mask);
+            return image.returnPixels();
+          }));
+        }
+        start.countDown();
+        for (Future<Pixel[][]> clip : clips) {
+          assertArrayEquals(pixels, clip.get());
+        }
+      } finally {
+        executor.shutdown();
+      }
+    }
+  }
+
+  @Test
+  public void testGivenOutPixelsStayAsTheyAre() {
+    AbstractImage image = random(20, 10, 1);
+    Pixel[][] given = image.returnPixels();
+    Pixel[][] before = new Pixel[given.length][];
+    for (int i = 0; i < given.length; i++) {
+      before[i] = Arrays.copyOf(given[i], given[i].length);
+    }
+    image.changeBrightness(40);
+    assertArrayEquals(before, given);
+  }
+}
@@ -0,0 +1,190 @@
+package model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the sizes and pixels of images that are turned by multiples of 90 degrees, flipped and
+ * cropped, which only change how the array of pixels is read, and the memory they are estimated
+ * to take up.
+ */
+public class AbstractImageGeometryTest {
+  private static final int WIDTH = 7;
+  private static final int HEIGHT = 4;
+
+  // an image of random pixels, the same for the same seed.
+  private static AbstractImage random(long seed) {
+    Random random = new Random(seed);
+    Pixel[][] pixels = new Pixel[HEIGHT][WIDTH];
+    for (int i = 0; i < HEIGHT; i++) {
+      for (int j = 0; j < WIDTH; j++) {
+        pixels[i][j] = new Pixel(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+      }
+    }
+    return new ImageOther(WIDTH, HEIGHT, 255, pixels);
+  }
+
+  private static void assertSize(int width, int height, Image image) {
+    assertEquals(width, image.getWidth());
+    assertEquals(height, image.getHeight());
+    Pixel[][] pixels = image.returnPixels();
+    assertEquals(height, pixels.length);
+    assertEquals(width, pixels[0].length);
+  }
+
+  @Test
+  public void testRotateClockwise() {
+    Pixel[][] original = random(1).returnPixels();
+    AbstractImage image = random(1);
+    image.rotate(90);
+    assertSize(HEIGHT, WIDTH, image);
+    Pixel[][] pixels = image.returnPixels();
+    for (int i = 0; i < WIDTH; i++) {
+      for (int j = 0; j < HEIGHT; j++) {
+        assertEquals(original[HEIGHT - 1 - j][i], pixels[i][j]);
+      }
+    }
+  }
+
+  @Test
+  public void testRotateHalfTurn() {
+    Pixel[][] original = random(2).returnPixels();
+    AbstractImage image = random(2);
+    image.rotate(180);
+    assertSize(WIDTH, HEIGHT, image);
+    Pixel[][] pixels = image.returnPixels();
+    for (int i = 0; i < HEIGHT; i++) {
+      for (int j = 0; j < WIDTH; j++) {
+        assertEquals(original[HEIGHT - 1 - i][WIDTH - 1 - j], pixels[i][j]);
+      }
+    }
+  }
+
+  @Test
+  public void testRotationsAddUp() {
+    AbstractImage counterclockwise = random(3);
+    counterclockwise.rotate(-90);
+    AbstractImage threeQuarters = random(3);
+    threeQuarters.rotate(270);
+    AbstractImage turns = random(3);
+    turns.rotate(90);
+    turns.rotate(180);
+    assertSize(HEIGHT, WIDTH, counterclockwise);
+    assertArrayEquals(threeQuarters.returnPixels(), counterclockwise.returnPixels());
+    assertArrayEquals(threeQuarters.returnPixels(), turns.returnPixels());
+
+    AbstractImage fullTurn = random(3);
+    fullTurn.rotate(450);
+    fullTurn.rotate(-90);
+    assertArrayEquals(random(3).returnPixels(), fullTurn.returnPixels());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRotateByOtherAngle() {
+    random(4).rotate(45);
+  }
+
+  @Test
+  public void testCrop() {
+    Pixel[][] original = random(5).returnPixels();
+    AbstractImage image = random(5);
+    image.crop(2, 1, 4, 3);
+    assertSize(4, 3, image);
+    Pixel[][] pixels = image.returnPixels();
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 4; j++) {
+        assertEquals(original[1 + i][2 + j], pixels[i][j]);
+      }
+    }
+  }
+
+  @Test
+  public void testCropOfCrop() {
+    Pixel[][] original = random(6).returnPixels();
+    AbstractImage image = random(6);
+    image.crop(1, 1, 5, 3);
+    image.crop(2, 1, 2, 2);
+    assertSize(2, 2, image);
+    Pixel[][] pixels = image.returnPixels();
+    assertEquals(original[2][3], pixels[0][0]);
+    assertEquals(original[3][4], pixels[1][1]);
+  }
+
+  @Test
+  public void testCropOfTurnedImage() {
+    Pixel[][] original = random(7).returnPixels();
+    AbstractImage image = random(7);
+    image.rotate(90);
+    image.horizontalFlip();
+    // turned and flipped, the image is the transpose of the original.
+    image.crop(1, 2, 3, 4);
+    assertSize(3, 4, image);
+    Pixel[][] pixels = image.returnPixels();
+    for (int i = 0; i < 4; i++) {
+      for (int j = 0; j < 3; j++) {
+        assertEquals(original[1 + j][2 + i], pixels[i][j]);
+      }
+    }
+  }
+
+  @Test
+  public void testTurnOfCroppedImage() {
+    Pixel[][] original = random(8).returnPixels();
+    AbstractImage image = random(8);
+    image.crop(3, 0, 4, 2);
+    image.rotate(270);
+    assertSize(2, 4, image);
+    Pixel[][] pixels = image.returnPixels();
+    for (int i = 0; i < 4; i++) {
+      for (int j = 0; j < 2; j++) {
+        assertEquals(original[j][3 + 3 - i], pixels[i][j]);
+      }
+    }
+  }
+
+  @Test
+  public void testCopyOfCropHasTheSizeOfTheRegion() {
+    AbstractImage image = random(9);
+    image.crop(1, 1, 3, 2);
+    Image copy = image.createCopy();
+    assertSize(3, 2, copy);
+    assertArrayEquals(image.returnPixels(), copy.returnPixels());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCropBeyondTheImage() {
+    random(10).crop(5, 0, 3, 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCropBeyondTheTurnedImage() {
+    AbstractImage image = random(11);
+    image.rotate(90);
+    // the turned image is only seven rows high.
+    image.crop(0, 0, 4, 8);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testEmptyCrop() {
+    random(12).crop(0, 0, 0, 1);
+  }
+
+  @Test
+  public void testEstimatedBytes() {
+    assertEquals(WIDTH * HEIGHT * 28L, random(13).estimateBytes());
+    assertEquals(WIDTH * HEIGHT * 28L, AbstractImage.estimateBytes(WIDTH * HEIGHT, false));
+    assertEquals(WIDTH * HEIGHT, AbstractImage.estimateBytes(WIDTH * HEIGHT, true));
+    assertEquals(6L, new ImageOther(3, 2, 255, new byte[6]).estimateBytes());
+
+    // a turned or cropped image, and a copy of it, still hold the whole array of the image.
+    AbstractImage image = random(13);
+    image.rotate(90);
+    image.crop(0, 0, 2, 2);
+    assertEquals(WIDTH * HEIGHT * 28L, image.estimateBytes());
+    assertEquals(WIDTH * HEIGHT * 28L, image.createCopy().estimateBytes());
+  }
+}
@@ -0,0 +1,177 @@
+package model;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that gray pgm files and black and white pbm files, plain (P2, P1) and raw (P5, P4), are
+ * read into gray images and written from them.
+ */
+public class NetpbmCodecTest {
+  private static final ImageCodec PGM = CodecRegistry.getInstance().forExtension("pgm");
+  private static final ImageCodec PBM = CodecRegistry.getInstance().forExtension("pbm");
+
+  @After
+  public void tearDown() {
+    System.clearProperty("plainNetpbm");
+  }
+
+  private static byte[] bytes(String header, int... data) {
+    byte[] text = header.getBytes(StandardCharsets.US_ASCII);
+    byte[] result = new byte[text.length + data.length];
+    System.arraycopy(text, 0, result, 0, text.length);
+    for (int i = 0; i < data.length; i++) {
+      result[text.length + i] = (byte) data[i];
+    }
+    return result;
+  }
+
+  private static byte[] gray(int... values) {
+    return bytes("", values);
+  }
+
+  private static AbstractImage decode(ImageCodec codec, byte[] file) throws IOException {
+    Image image = codec.decode(new ByteArrayInputStream(file));
+    assertEquals(ImageOther.class, image.getClass());
+    return (AbstractImage) image;
+  }
+
+  private static byte[] encode(ImageCodec codec, Image image) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    codec.encode(image, out);
+    return out.toByteArray();
+  }
+
+  @Test
+  public void testReadPlainGray() throws IOException {
+    AbstractImage image = decode(PGM, bytes("P2\n# scaled to 255\n3 2\n15\n0 15 8\n1 2 3\n"));
+    assertEquals(3, image.getWidth());
+    assertEquals(2, image.getHeight());
+    assertEquals(255, image.getMaxValue());
+    assertArrayEquals(gray(0, 255, 136, 17, 34, 51), image.returnGray());
+  }
+
+  @Test
+  public void testReadRawGray() throws IOException {
+    AbstractImage image = decode(PGM, bytes("P5\n4 1\n255\n", 0, 10, 200, 255));
+    assertArrayEquals(gray(0, 10, 200, 255), image.returnGray());
+  }
+
+  @Test
+  public void testReadRawGrayOfTwoBytes() throws IOException {
+    AbstractImage image = decode(PGM, bytes("P5 2 1 65535\n", 0xFF, 0xFF, 0x80, 0x00));
+    assertArrayEquals(gray(255, 128), image.returnGray());
+  }
+
+  @Test
+  public void testReadPlainBitmap() throws IOException {
+    // the digits of a plain bitmap need not be separated, and 1 is black.
+    AbstractImage image = decode(PBM, bytes("P1\n3 2\n101\n0 1 0\n"));
+    assertArrayEquals(gray(0, 255, 0, 255, 0, 255), image.returnGray());
+  }
+
+  @Test
+  public void testReadRawBitmap() throws IOException {
+    // rows of ten pixels take two bytes, the first pixel in the highest bit.
+    AbstractImage image = decode(PBM, bytes("P4\n10 2\n", 0x80, 0x40, 0xFF, 0xC0));
+    assertArrayEquals(gray(0, 255, 255, 255, 255, 255, 255, 255, 255, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0), image.returnGray());
+  }
+
+  @Test
+  public void testReadFromFile() throws IOException {
+    File file = File.createTempFile("netpbm", ".pgm");
+    file.deleteOnExit();
+    Files.write(file.toPath(), bytes("P5\n2 2\n255\n", 1, 2, 3, 4));
+    Image image = CodecRegistry.getInstance().load(file.getPath());
+    assertEquals(2, image.getWidth());
+    assertArrayEquals(gray(1, 2, 3, 4), ((AbstractImage) image).returnGray());
+  }
+
+  @Test
+  public void testFilesWrittenAndReadBack() throws IOException {
+    Image image = new ImageOther(5, 3, 255, gray(0, 9, 18, 27, 36, 45, 54, 63, 72, 81, 90, 99,
+            108, 117, 255));
+    for (boolean plain : new boolean[]{false, true}) {
+      File pgm = File.createTempFile("netpbm", ".pgm");
+      pgm.deleteOnExit();
+      new ImageWriterGen(image).writeImagePGM(pgm.getPath(), plain);
+      ImageReaderGen reader = new ImageReaderGen();
+      reader.readPGM(pgm.getPath());
+      assertArrayEquals(((AbstractImage) image).returnGray(), reader.getGray());
+
+      File pbm = File.createTempFile("netpbm", ".pbm");
+      pbm.deleteOnExit();
+      new ImageWriterGen(image).writeImagePBM(pbm.getPath(), plain);
+      reader.readPBM(pbm.getPath());
+      assertArrayEquals(gray(0, 255, 255, 255, 255, 255, 255, 255, 255, 255, 255, 255, 255,
+              255, 255), reader.getGray());
+    }
+  }
+
+  @Test
+  public void testWriteRawGray() throws IOException {
+    Image image = new ImageOther(3, 2, 255, gray(0, 1, 2, 253, 254, 255));
+    byte[] file = encode(PGM, image);
+    assertArrayEquals(bytes("P5\n3 2\n255\n", 0, 1, 2, 253, 254, 255), file);
+    assertArrayEquals(gray(0, 1, 2, 253, 254, 255), decode(PGM, file).returnGray());
+  }
+
+  @Test
+  public void testWritePlainGray() throws IOException {
+    System.setProperty("plainNetpbm", "true");
+    Image image = new ImageOther(3, 2, 255, gray(0, 1, 2, 253, 254, 255));
+    byte[] file = encode(PGM, image);
+    assertArrayEquals(bytes("P2\n3 2\n255\n0 1 2\n253 254 255\n"), file);
+    assertArrayEquals(gray(0, 1, 2, 253, 254, 255), decode(PGM, file).returnGray());
+  }
+
+  @Test
+  public void testWriteRawBitmap() throws IOException {
+    byte[] values = new byte[20];
+    Arrays.fill(values, (byte) 255);
+    values[0] = 0;
+    values[9] = 0;
+    values[15] = 0;
+    byte[] file = encode(PBM, new ImageOther(10, 2, 255, values));
+    assertArrayEquals(bytes("P4\n10 2\n", 0x80, 0x40, 0x04, 0x00), file);
+    assertArrayEquals(values, decode(PBM, file).returnGray());
+  }
+
+  @Test
+  public void testWritePlainBitmap() throws IOException {
+    System.setProperty("plainNetpbm", "true");
+    byte[] file = encode(PBM, new ImageOther(3, 2, 255, gray(0, 255, 0, 255, 0, 255)));
+    assertArrayEquals(bytes("P1\n3 2\n1 0 1\n0 1 0\n"), file);
+  }
+
+  @Test
+  public void testBitmapOfColorImage() throws IOException {
+    Pixel[][] pixels = {{new Pixel(0, 0, 0), new Pixel(0, 0, 1)},
+        {new Pixel(255, 255, 255), new Pixel(0, 0, 0)}};
+    byte[] file = encode(PBM, new ImagePPM(2, 2, 255, pixels));
+    // only the pixels that are exactly black are black in the mask.
+    assertArrayEquals(gray(0, 255, 255, 0), decode(PBM, file).returnGray());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWrongMagicNumber() throws IOException {
+    decode(PGM, bytes("P6\n1 1\n255\n", 0, 0, 0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFileEndsTooEarly() throws IOException {
+    decode(PGM, bytes("P5\n2 2\n255\n", 1, 2, 3));
+  }
+}
@@ -0,0 +1,149 @@
+package model;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the png encoder writes files that another decoder reads back as the same pixels,
+ * for gray and color images of odd sizes, in one band and split in several, and at every kind of
+ * compression level.
+ */
+public class PngEncoderTest {
+  private static final int[] LEVELS = {-1, 0, 1, 9};
+
+  // an image of random pixels, the same for the same seed.
+  private static AbstractImage color(int width, int height, long seed) {
+    Random random = new Random(seed);
+    Pixel[][] pixels = new Pixel[height][width];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        pixels[i][j] = new Pixel(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+      }
+    }
+    return new ImageOther(width, height, 255, pixels);
+  }
+
+  // a gray image of random values, smooth enough in places for every filter to be chosen.
+  private static AbstractImage gray(int width, int height, long seed) {
+    Random random = new Random(seed);
+    byte[] gray = new byte[width * height];
+    for (int i = 0; i < gray.length; i++) {
+      gray[i] = (byte) (i % 7 == 0 ? random.nextInt(256) : (i / width + i % width) * 3);
+    }
+    return new ImageOther(width, height, 255, gray);
+  }
+
+  private static BufferedImage encodeAndDecode(PngEncoder encoder, Image image)
+          throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    encoder.encode(image, out);
+    BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+    assertEquals(image.getWidth(), decoded.getWidth());
+    assertEquals(image.getHeight(), decoded.getHeight());
+    return decoded;
+  }
+
+  // checks every sample of the decoded image against the image that was encoded.
+  private static void assertSamePixels(AbstractImage image, BufferedImage decoded) {
+    Raster raster = decoded.getRaster();
+    byte[] gray = image.returnGray();
+    if (gray != null) {
+      assertEquals(1, raster.getNumBands());
+      for (int i = 0; i < image.getHeight(); i++) {
+        for (int j = 0; j < image.getWidth(); j++) {
+          assertEquals(gray[i * image.getWidth() + j] & 0xFF, raster.getSample(j, i, 0));
+        }
+      }
+      return;
+    }
+    assertEquals(3, raster.getNumBands());
+    Pixel[][] pixels = image.returnPixels();
+    for (int i = 0; i < image.getHeight(); i++) {
+      for (int j = 0; j < image.getWidth(); j++) {
+        assertEquals(pixels[i][j].getRed(), raster.getSample(j, i, 0));
+        assertEquals(pixels[i][j].getGreen(), raster.getSample(j, i, 1));
+        assertEquals(pixels[i][j].getBlue(), raster.getSample(j, i, 2));
+      }
+    }
+  }
+
+  @Test
+  public void testOddSizesInOneBand() throws IOException {
+    int[][] sizes = {{1, 1}, {1, 9}, {9, 1}, {3, 5}, {17, 11}, {101, 33}};
+    for (int level : LEVELS) {
+      PngEncoder encoder = new PngEncoder(level, 8);
+      for (int[] size : sizes) {
+        assertEquals(1, encoder.bands(size[0] * 3 + 1, size[1]));
+        AbstractImage color = color(size[0], size[1], level + size[0]);
+        assertSamePixels(color, encodeAndDecode(encoder, color));
+        AbstractImage gray = gray(size[0], size[1], level + size[1]);
+        assertSamePixels(gray, encodeAndDecode(encoder, gray));
+      }
+    }
+  }
+
+  @Test
+  public void testColorInSeveralBands() throws IOException {
+    // 1553 bytes a row, so 513 rows are three bands of at least 256 KB.
+    AbstractImage image = color(517, 513, 1);
+    for (int level : LEVELS) {
+      PngEncoder encoder = new PngEncoder(level, 8);
+      assertEquals(3, encoder.bands(517 * 3 + 1, 513));
+      assertSamePixels(image, encodeAndDecode(encoder, image));
+    }
+  }
+
+  @Test
+  public void testGrayInSeveralBands() throws IOException {
+    AbstractImage image = gray(1001, 1003, 2);
+    for (int level : LEVELS) {
+      PngEncoder encoder = new PngEncoder(level, 8);
+      assertEquals(3, encoder.bands(1001 + 1, 1003));
+      assertSamePixels(image, encodeAndDecode(encoder, image));
+    }
+  }
+
+  @Test
+  public void testBandsLimitedByRowsAndGivenNumber() throws IOException {
+    // rows of over 256 KB each, so every row could be a band of its own.
+    AbstractImage image = gray(300_001, 5, 3);
+    PngEncoder encoder = new PngEncoder(6, 8);
+    assertEquals(5, encoder.bands(300_001 + 1, 5));
+    assertSamePixels(image, encodeAndDecode(encoder, image));
+    PngEncoder fewer = new PngEncoder(6, 2);
+    assertEquals(2, fewer.bands(300_001 + 1, 5));
+    assertSamePixels(image, encodeAndDecode(fewer, image));
+  }
+
+  @Test
+  public void testSplitFilesAreNoLargerThanNeeded() throws IOException {
+    AbstractImage image = gray(1001, 1003, 4);
+    ByteArrayOutputStream one = new ByteArrayOutputStream();
+    new PngEncoder(9, 1).encode(image, one);
+    ByteArrayOutputStream several = new ByteArrayOutputStream();
+    new PngEncoder(9, 8).encode(image, several);
+    // each flush between two bands costs a few bytes and a restarted dictionary, no more.
+    assertTrue(several.size() < one.size() * 1.05 + 64);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testLevelOutOfRange() {
+    new PngEncoder(10);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoBands() {
+    new PngEncoder(6, 0);
+  }
+}